@@ -26,6 +26,14 @@ public class RuntimeAnalyzer {
     private final Map<String, CommandMetrics> commandMetrics = new ConcurrentHashMap<>();
     private final Map<String, CommandUsageStats> usageStats = new ConcurrentHashMap<>();
 
+    /**
+     * Creates the instance AspectJ binds to the woven methods. It is never started, so it lets
+     * every call through untouched.
+     */
+    public RuntimeAnalyzer() {
+        this(null);
+    }
+
     public RuntimeAnalyzer(CommandService commandService) {
         this.commandService = commandService;
     }
@@ -10,6 +10,17 @@ public class ConnectionConfig {
     private String database;
     private String username;
     private String password;
+    private int minPoolSize = 1;
+    private int maxPoolSize = 10;
+    private long borrowTimeoutMillis = 30_000;
+    private long idleTimeoutMillis = 600_000;
+    private long leakDetectionThresholdMillis;
+    private int validationTimeoutSeconds = 5;
+    private FetchSizePolicy fetchSizePolicy = FetchSizePolicy.DRIVER_DEFAULT;
+    private long resultCacheTtlMillis;
+    private int resultCacheMaxEntries = 256;
+    private int resultCacheMaxRows = 10_000;
+    private String resultCacheDirectory;
     
     public ConnectionConfig() {
         // Default constructor
@@ -55,6 +66,114 @@ public class ConnectionConfig {
         this.password = password;
     }
 
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    public void setMinPoolSize(int minPoolSize) {
+        this.minPoolSize = minPoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public long getBorrowTimeoutMillis() {
+        return borrowTimeoutMillis;
+    }
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Gets how long a connection may stay borrowed before it is reported as a possible leak.
+     *
+     * @return the threshold in milliseconds, 0 when leak detection is disabled
+     */
+    public long getLeakDetectionThresholdMillis() {
+        return leakDetectionThresholdMillis;
+    }
+
+    public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public FetchSizePolicy getFetchSizePolicy() {
+        return fetchSizePolicy;
+    }
+
+    public void setFetchSizePolicy(FetchSizePolicy fetchSizePolicy) {
+        this.fetchSizePolicy = fetchSizePolicy;
+    }
+
+    /**
+     * Gets how long query results stay cached.
+     *
+     * @return the time to live in milliseconds, 0 when the result cache is disabled
+     */
+    public long getResultCacheTtlMillis() {
+        return resultCacheTtlMillis;
+    }
+
+    public void setResultCacheTtlMillis(long resultCacheTtlMillis) {
+        this.resultCacheTtlMillis = resultCacheTtlMillis;
+    }
+
+    public int getResultCacheMaxEntries() {
+        return resultCacheMaxEntries;
+    }
+
+    public void setResultCacheMaxEntries(int resultCacheMaxEntries) {
+        this.resultCacheMaxEntries = resultCacheMaxEntries;
+    }
+
+    /**
+     * Gets the largest result, in rows, that is cached; larger results are always read from the database.
+     *
+     * @return the row limit
+     */
+    public int getResultCacheMaxRows() {
+        return resultCacheMaxRows;
+    }
+
+    public void setResultCacheMaxRows(int resultCacheMaxRows) {
+        this.resultCacheMaxRows = resultCacheMaxRows;
+    }
+
+    /**
+     * Gets the directory where cached results are also kept, so later processes can use them.
+     *
+     * @return the directory, or {@code null} to cache in memory only
+     */
+    public String getResultCacheDirectory() {
+        return resultCacheDirectory;
+    }
+
+    public void setResultCacheDirectory(String resultCacheDirectory) {
+        this.resultCacheDirectory = resultCacheDirectory;
+    }
+
     public String getConnectionUrl() {
         return String.format("jdbc:oracle:thin:@%s:%d/%s", host, port, database);
     }
@@ -0,0 +1,338 @@
+package com.example.shelldemo.cli;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of physical database connections.
+ * Borrowed connections are handed out as proxies; closing the proxy returns the physical
+ * connection to the pool instead of closing it.
+ * <p>
+ * A returned connection is rolled back if it is in a transaction and put back into the state it
+ * was opened in (auto-commit, read-only, isolation level and catalog); a connection that cannot be
+ * reset is closed instead of being handed to the next borrower.
+ * <p>
+ * The pool opens the minimum number of connections up front. Idle connections are validated
+ * before they are handed out again, connections idle for
+ * longer than the idle timeout are closed down to the minimum pool size, and connections held
+ * for longer than the leak detection threshold are logged together with the borrowing stack trace.
+ * <p>
+ * A borrowed connection unwraps to itself as a {@link Connection}, so that a borrower cannot get
+ * hold of the physical connection and close it behind the pool's back. Driver interfaces beyond
+ * the JDBC ones are unwrapped by the physical connection.
+ */
+class ConnectionPool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+    /** Connections returned more recently than this are handed out again without validation. */
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutNanos;
+    private final long leakDetectionThresholdNanos;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile long leaksReported;
+    private volatile boolean closed;
+
+    ConnectionPool(ConnectionFactory factory, ConnectionConfig config) {
+        if (config.getMinPoolSize() < 0 || config.getMaxPoolSize() < 1
+                || config.getMinPoolSize() > config.getMaxPoolSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.getMinPoolSize()
+                + ", max=" + config.getMaxPoolSize());
+        }
+        this.factory = factory;
+        this.minSize = config.getMinPoolSize();
+        this.maxSize = config.getMaxPoolSize();
+        this.borrowTimeoutMillis = config.getBorrowTimeoutMillis();
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        this.leakDetectionThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getLeakDetectionThresholdMillis());
+        this.validationTimeoutSeconds = config.getValidationTimeoutSeconds();
+        this.permits = new Semaphore(maxSize, true);
+        for (int i = 0; i < minSize; i++) {
+            try {
+                idle.offerLast(new PooledConnection(factory.create()));
+            } catch (SQLException e) {
+                // borrow() opens connections on demand and reports the failure to its caller
+                log.warn("Could not open the minimum of {} pooled connections: {}", minSize, e.getMessage());
+                break;
+            }
+        }
+
+        long periodMillis = config.getIdleTimeoutMillis() / 2;
+        if (config.getLeakDetectionThresholdMillis() > 0) {
+            periodMillis = Math.min(periodMillis, config.getLeakDetectionThresholdMillis() / 2);
+        }
+        periodMillis = Math.max(periodMillis, 1000);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout if all connections are in use.
+     * The caller must close the returned connection to give it back to the pool.
+     *
+     * @return a validated connection
+     * @throws SQLTimeoutException if no connection became available in time
+     * @throws SQLException if the pool is closed or a new connection cannot be opened
+     */
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                    + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null && !isUsable(pooled)) {
+                discard(pooled);
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.create());
+            }
+            pooled.borrowedAt = System.nanoTime();
+            pooled.borrowTrace = leakDetectionThresholdNanos > 0 ? new Exception("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            inUse.add(pooled);
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    int getActiveCount() {
+        return inUse.size();
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    long getLeaksReported() {
+        return leaksReported;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+        if (!inUse.isEmpty()) {
+            log.warn("Closing connection pool with {} connections still in use", inUse.size());
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        inUse.remove(pooled);
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                discard(pooled);
+            } else {
+                pooled.reset();
+                pooled.lastUsed = System.nanoTime();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.debug("Discarding pooled connection that could not be reset: {}", e.getMessage());
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            return System.nanoTime() - pooled.lastUsed < VALIDATION_BYPASS_NANOS
+                || pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            log.debug("Error closing pooled connection: {}", e.getMessage());
+        }
+    }
+
+    private void housekeep() {
+        long now = System.nanoTime();
+
+        // Oldest idle connections sit at the tail since returned connections go to the head
+        PooledConnection eldest;
+        while (idle.size() > minSize && (eldest = idle.peekLast()) != null
+                && now - eldest.lastUsed > idleTimeoutNanos) {
+            if (idle.removeLastOccurrence(eldest)) {
+                discard(eldest);
+            }
+        }
+
+        if (leakDetectionThresholdNanos > 0) {
+            for (PooledConnection pooled : inUse) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThresholdNanos) {
+                    pooled.leakReported = true;
+                    leaksReported++;
+                    log.warn("Connection held for {} ms, possible connection leak",
+                        TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAt), pooled.borrowTrace);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens new physical connections for the pool.
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private final boolean autoCommit;
+        private final boolean readOnly;
+        private final int transactionIsolation;
+        private final String catalog;
+        private volatile long lastUsed = System.nanoTime();
+        private volatile long borrowedAt;
+        private volatile Exception borrowTrace;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            try {
+                this.autoCommit = physical.getAutoCommit();
+                this.readOnly = physical.isReadOnly();
+                this.transactionIsolation = physical.getTransactionIsolation();
+                this.catalog = physical.getCatalog();
+            } catch (SQLException | RuntimeException e) {
+                physical.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Rolls back what the borrower left uncommitted and restores the state the connection was
+         * opened in, so the next borrower does not inherit the transaction or the settings.
+         */
+        private void reset() throws SQLException {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+            }
+            if (physical.getAutoCommit() != autoCommit) {
+                physical.setAutoCommit(autoCommit);
+            }
+            if (physical.isReadOnly() != readOnly) {
+                physical.setReadOnly(readOnly);
+            }
+            if (physical.getTransactionIsolation() != transactionIsolation) {
+                physical.setTransactionIsolation(transactionIsolation);
+            }
+            if (!Objects.equals(physical.getCatalog(), catalog)) {
+                physical.setCatalog(catalog);
+            }
+            physical.clearWarnings();
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new Lease(this));
+        }
+    }
+
+    /**
+     * One borrowing of a pooled connection. Once closed, the lease rejects further use even if the
+     * physical connection has meanwhile been handed to someone else.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
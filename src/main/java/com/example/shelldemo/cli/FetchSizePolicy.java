@@ -0,0 +1,166 @@
+package com.example.shelldemo.cli;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Decides how many rows the JDBC driver fetches per round trip.
+ * <p>
+ * A fixed policy uses the same fetch size for every query. An adaptive policy starts small so the
+ * first rows arrive quickly, then doubles the fetch size each time a full fetch has been consumed,
+ * up to the number of rows of the estimated row width that fit into its memory budget.
+ */
+public final class FetchSizePolicy {
+    /** Leaves the fetch size to the driver, e.g. 10 rows per round trip for Oracle. */
+    public static final FetchSizePolicy DRIVER_DEFAULT = new FetchSizePolicy(0, 0);
+
+    private static final int ADAPTIVE_INITIAL_FETCH_SIZE = 100;
+    private static final int ADAPTIVE_MAX_FETCH_SIZE = 100_000;
+    private static final int ROW_OVERHEAD_BYTES = 64;
+
+    private final int fetchSize;
+    private final long memoryBudgetBytes;
+
+    private FetchSizePolicy(int fetchSize, long memoryBudgetBytes) {
+        this.fetchSize = fetchSize;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Creates a policy that always fetches the given number of rows per round trip.
+     *
+     * @param fetchSize rows per round trip, 0 for the driver default
+     * @return the policy
+     */
+    public static FetchSizePolicy fixed(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size cannot be negative: " + fetchSize);
+        }
+        return fetchSize == 0 ? DRIVER_DEFAULT : new FetchSizePolicy(fetchSize, 0);
+    }
+
+    /**
+     * Creates a policy that grows the fetch size while rows are consumed.
+     *
+     * @param memoryBudgetBytes roughly how much memory one fetch may take
+     * @return the policy
+     */
+    public static FetchSizePolicy adaptive(long memoryBudgetBytes) {
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudgetBytes);
+        }
+        return new FetchSizePolicy(ADAPTIVE_INITIAL_FETCH_SIZE, memoryBudgetBytes);
+    }
+
+    public boolean isAdaptive() {
+        return memoryBudgetBytes > 0;
+    }
+
+    /**
+     * Gets the fetch size to set on a statement before it is executed.
+     *
+     * @return rows per round trip, 0 for the driver default
+     */
+    public int getInitialFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the initial fetch size on a statement that is about to run a query.
+     *
+     * @param stmt the statement
+     * @throws SQLException if the driver rejects the fetch size
+     */
+    public void applyTo(Statement stmt) throws SQLException {
+        if (fetchSize > 0) {
+            stmt.setFetchSize(fetchSize);
+        }
+    }
+
+    /**
+     * Starts tracking a result set. Its rows have to be read through the returned tuner.
+     *
+     * @param rs the result set, positioned before the first row
+     * @return the tuner for the result set
+     * @throws SQLException if the result set metadata cannot be read
+     */
+    public Tuner tune(ResultSet rs) throws SQLException {
+        if (!isAdaptive()) {
+            return rs::next;
+        }
+        long rowBytes = estimateRowBytes(rs.getMetaData());
+        int maxFetchSize = (int) Math.max(ADAPTIVE_INITIAL_FETCH_SIZE,
+            Math.min(ADAPTIVE_MAX_FETCH_SIZE, memoryBudgetBytes / rowBytes));
+        return new AdaptiveTuner(rs, Math.min(fetchSize, maxFetchSize), maxFetchSize);
+    }
+
+    /**
+     * Estimates the client memory one row takes from the declared column types and sizes.
+     *
+     * @param metaData the result set metadata
+     * @return the estimated row size in bytes
+     * @throws SQLException if the metadata cannot be read
+     */
+    static long estimateRowBytes(ResultSetMetaData metaData) throws SQLException {
+        long bytes = ROW_OVERHEAD_BYTES;
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            bytes += switch (metaData.getColumnType(i)) {
+                case Types.CHAR, Types.VARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGVARCHAR,
+                     Types.LONGNVARCHAR, Types.BINARY, Types.VARBINARY ->
+                    2L * Math.min(Math.max(metaData.getPrecision(i), 1), 4000);
+                case Types.CLOB, Types.NCLOB, Types.BLOB, Types.LONGVARBINARY, Types.SQLXML -> 4096;
+                case Types.NUMERIC, Types.DECIMAL -> 24;
+                case Types.DATE, Types.TIME, Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> 16;
+                case Types.BIT, Types.BOOLEAN, Types.TINYINT, Types.SMALLINT, Types.INTEGER,
+                     Types.BIGINT, Types.REAL, Types.FLOAT, Types.DOUBLE -> 8;
+                default -> 64;
+            };
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the rows of one result set.
+     */
+    @FunctionalInterface
+    public interface Tuner {
+        /**
+         * Moves the result set to its next row, adjusting the fetch size as rows are read.
+         *
+         * @return {@code false} once every row has been read
+         * @throws SQLException if reading fails or the fetch size cannot be changed
+         */
+        boolean next() throws SQLException;
+    }
+
+    private static final class AdaptiveTuner implements Tuner {
+        private final ResultSet rs;
+        private final int maxFetchSize;
+        private int currentFetchSize;
+        private int rowsUntilGrowth;
+
+        private AdaptiveTuner(ResultSet rs, int initialFetchSize, int maxFetchSize) {
+            this.rs = rs;
+            this.maxFetchSize = maxFetchSize;
+            this.currentFetchSize = initialFetchSize;
+            this.rowsUntilGrowth = initialFetchSize;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            if (!rs.next()) {
+                return false;
+            }
+            if (currentFetchSize >= maxFetchSize || --rowsUntilGrowth > 0) {
+                return true;
+            }
+            currentFetchSize = Math.min(currentFetchSize * 2, maxFetchSize);
+            rowsUntilGrowth = currentFetchSize;
+            rs.setFetchSize(currentFetchSize);
+            return true;
+        }
+    }
+}
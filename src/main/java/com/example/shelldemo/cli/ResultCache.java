@@ -0,0 +1,687 @@
+package com.example.shelldemo.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.NotSerializableException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An opt-in cache of query results, keyed by the normalized SQL text and the bind values.
+ * Entries expire after a time to live, and beyond a maximum count the least recently used
+ * entry is evicted; with a directory, entries are also written to disk and outlive the process.
+ * <p>
+ * Only read-only queries whose tables can be told from the SQL are cached. A statement that
+ * writes a table invalidates every entry that reads it: in this process at once, and in other
+ * processes sharing the directory through a marker file per table. Statements whose targets
+ * cannot be told, such as procedure calls and anonymous blocks, invalidate every entry.
+ * Changes made by other programs are only noticed when the entries expire.
+ * <p>
+ * A view is a table of its own to the cache: writing a table does not invalidate the cached
+ * results of views over it, which are only refreshed when they expire. Queries that lock rows
+ * or read sequences, random values or the current time are never cached.
+ */
+public final class ResultCache {
+    private static final Logger log = LoggerFactory.getLogger(ResultCache.class);
+    private static final String ALL_TABLES = "*";
+    private static final String ENTRY_SUFFIX = ".result";
+    private static final long MARKER_REFRESH_MILLIS = 100;
+    private static final String IDENTIFIER = "[\\w$#\"\\[\\]]+(?:\\.[\\w$#\"\\[\\]]+)*";
+    private static final Pattern READ_TABLES = Pattern.compile("\\b(?:FROM|JOIN)\\s+(" + IDENTIFIER
+        + "(?:\\s+(?:AS\\s+)?\\w+)?(?:\\s*,\\s*" + IDENTIFIER + "(?:\\s+(?:AS\\s+)?\\w+)?)*)");
+    private static final Pattern WRITTEN_TABLE = Pattern.compile("^(?:(?:INSERT|REPLACE|UPSERT)\\s+INTO"
+        + "|UPDATE|DELETE(?:\\s+FROM)?|MERGE\\s+INTO|TRUNCATE(?:\\s+TABLE)?"
+        + "|(?:CREATE(?:\\s+OR\\s+REPLACE)?|DROP|ALTER|RENAME)\\s+(?:TABLE|(?:MATERIALIZED\\s+)?VIEW)"
+        + "(?:\\s+IF(?:\\s+NOT)?\\s+EXISTS)?)\\s+(" + IDENTIFIER + ")");
+    private static final Pattern WRITES_NOTHING = Pattern.compile("^(?:COMMIT|ROLLBACK|SAVEPOINT|RELEASE"
+        + "|SET\\s+TRANSACTION|GRANT|REVOKE|CREATE\\s+(?:UNIQUE\\s+)?INDEX|DROP\\s+INDEX|ANALYZE|EXPLAIN|SHOW"
+        + "|DESC|DESCRIBE|COMMENT)\\b");
+    private static final Pattern READ_ONLY = Pattern.compile("^(?:SELECT|WITH)\\b");
+    // Writable common table expressions and SELECT ... INTO
+    private static final Pattern QUERY_WRITES = Pattern.compile("\\b(?:INTO|INSERT|DELETE|MERGE)\\b|(?<!FOR )\\bUPDATE\\b");
+    // Locks and values that differ on every execution
+    private static final Pattern NOT_CACHEABLE = Pattern.compile(
+        "\\b(?:FOR UPDATE|NEXTVAL|CURRVAL|RANDOM|RAND|NEWID|SYS_GUID|UUID|GEN_RANDOM_UUID"
+        + "|SYSDATE|SYSTIMESTAMP|CURRENT_DATE|CURRENT_TIME|CURRENT_TIMESTAMP|LOCALTIME|LOCALTIMESTAMP"
+        + "|NOW|GETDATE|GETUTCDATE|SYSDATETIME|SYSUTCDATETIME|CURDATE|CURTIME|UTC_TIMESTAMP|CLOCK_TIMESTAMP)\\b");
+    private static final RowSetFactory ROW_SETS;
+
+    static {
+        try {
+            ROW_SETS = RowSetProvider.newFactory();
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String namespace;
+    private final long ttlMillis;
+    private final int maxRows;
+    private final Path directory;
+    private final Map<String, CachedResult> entries;
+    private final Map<String, Long> invalidatedAt = new HashMap<>();
+    private final Map<String, Long> markersWritten = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache.
+     *
+     * @param namespace identifies the database and user, so that entries on disk are only
+     *     shared by processes that would read the same data
+     * @param ttl how long an entry stays valid
+     * @param maxEntries the most entries kept in memory
+     * @param maxRows the largest result, in rows, that is cached
+     * @param directory the directory to keep entries in as well, or {@code null} for none
+     */
+    public ResultCache(String namespace, Duration ttl, int maxEntries, int maxRows, Path directory) {
+        if (ttl.isNegative() || ttl.isZero() || maxEntries < 1 || maxRows < 1) {
+            throw new IllegalArgumentException("The result cache needs a positive time to live, entry count and row limit");
+        }
+        this.namespace = namespace;
+        this.ttlMillis = ttl.toMillis();
+        this.maxRows = maxRows;
+        this.directory = directory;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        pruneExpiredFiles();
+    }
+
+    /**
+     * Starts a session for the statements of one connection. The session keeps the tables that
+     * connection wrote, whose changes other connections may not see yet, out of the cache.
+     *
+     * @return the session
+     */
+    public Session newSession() {
+        return new Session(this);
+    }
+
+    /**
+     * Invalidates the entries reading the tables a statement writes. Read-only statements
+     * invalidate nothing.
+     *
+     * @param sql the statement
+     */
+    public void invalidate(String sql) {
+        Analysis analysis = Analysis.of(sql);
+        if (!analysis.readOnly()) {
+            invalidateTables(analysis.tables(), false);
+        }
+    }
+
+    /**
+     * Invalidates every entry, here and in processes sharing the directory.
+     */
+    public void invalidateAll() {
+        invalidateTables(Set.of(ALL_TABLES), false);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private CachedResult lookup(Query query) {
+        CachedResult result;
+        synchronized (this) {
+            result = entries.get(query.key());
+        }
+        boolean fromDisk = false;
+        if (result == null && directory != null) {
+            result = readEntry(query.key());
+            fromDisk = result != null;
+        }
+        if (result == null || !isValid(result)) {
+            if (result != null) {
+                discard(result);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        if (fromDisk) {
+            synchronized (this) {
+                entries.put(result.key(), result);
+            }
+        }
+        hits.incrementAndGet();
+        return result;
+    }
+
+    private void store(Query query, RowSetMetaDataImpl metaData, List<Object[]> rows) {
+        CachedResult result = new CachedResult(query.key(), metaData, rows, query.tables(), query.startedAt());
+        // A table written while the query ran may have changed its result
+        if (!isValid(result)) {
+            return;
+        }
+        synchronized (this) {
+            entries.put(result.key(), result);
+        }
+        if (directory != null) {
+            writeEntry(result);
+        }
+    }
+
+    private boolean isValid(CachedResult result) {
+        if (System.currentTimeMillis() - result.createdAt() >= ttlMillis
+                || invalidatedAt(ALL_TABLES) >= result.createdAt()) {
+            return false;
+        }
+        for (String table : result.tables()) {
+            if (invalidatedAt(table) >= result.createdAt()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long invalidatedAt(String table) {
+        long at;
+        synchronized (this) {
+            at = invalidatedAt.getOrDefault(table, 0L);
+        }
+        if (directory != null) {
+            try {
+                at = Math.max(at, Long.parseLong(Files.readString(markerFile(table)).trim()));
+            } catch (NoSuchFileException e) {
+                // Never invalidated by another process
+            } catch (IOException | NumberFormatException e) {
+                // A marker being written right now
+                return Long.MAX_VALUE;
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Invalidates the entries reading some tables.
+     *
+     * @param tables the tables
+     * @param alwaysMark whether to write the markers for other processes even if they were written
+     *     moments ago
+     */
+    private void invalidateTables(Set<String> tables, boolean alwaysMark) {
+        long now = System.currentTimeMillis();
+        List<String> markers = new ArrayList<>();
+        synchronized (this) {
+            for (String table : tables) {
+                invalidatedAt.put(table, now);
+                // Statements in quick succession on the same table need only one marker write
+                if (directory != null
+                        && (alwaysMark || now - markersWritten.getOrDefault(table, 0L) >= MARKER_REFRESH_MILLIS)) {
+                    markersWritten.put(table, now);
+                    markers.add(table);
+                }
+            }
+            boolean all = tables.contains(ALL_TABLES);
+            entries.values().removeIf(entry -> all || !Collections.disjoint(entry.tables(), tables));
+        }
+        for (String table : markers) {
+            try {
+                Path marker = markerFile(table);
+                Files.createDirectories(marker.getParent());
+                Files.writeString(marker, Long.toString(now));
+            } catch (IOException e) {
+                log.warn("Could not record the invalidation of cached results of {}: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void discard(CachedResult result) {
+        entries.remove(result.key());
+    }
+
+    private CachedResult readEntry(String key) {
+        Path file = entryFile(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+            in.setObjectInputFilter(ObjectInputFilter.Config.createFilter(
+                "java.base/*;java.sql/*;java.sql.rowset/*;" + CachedResult.class.getName() + ";!*"));
+            if (in.readObject() instanceof CachedResult result && result.key().equals(key)) {
+                return result;
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            log.debug("Ignoring unreadable cached result {}: {}", file, e.getMessage());
+        }
+        return null;
+    }
+
+    private void writeEntry(CachedResult result) {
+        Path file = entryFile(result.key());
+        Path temp = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(temp))) {
+                out.writeObject(result);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NotSerializableException e) {
+            log.debug("Keeping result in memory only, {} values cannot be written to disk", e.getMessage());
+        } catch (IOException e) {
+            log.warn("Could not write cached result to {}: {}", file, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.debug("Could not delete {}: {}", temp, e.getMessage());
+            }
+        }
+    }
+
+    private void pruneExpiredFiles() {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        long expired = System.currentTimeMillis() - ttlMillis;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < expired) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Could not prune cached results in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private Path entryFile(String key) {
+        return directory.resolve(hash(key) + ENTRY_SUFFIX);
+    }
+
+    private Path markerFile(String table) {
+        return directory.resolve("invalidated").resolve(hash(namespace + "\n" + table));
+    }
+
+    private String key(String normalizedSql, List<Object> params) {
+        StringBuilder key = new StringBuilder(namespace).append('\n').append(normalizedSql);
+        for (Object param : params) {
+            key.append('\n');
+            if (param == null) {
+                key.append("null");
+            } else {
+                key.append(param.getClass().getName()).append(':')
+                    .append(param instanceof byte[] bytes ? HexFormat.of().formatHex(bytes) : param.toString());
+            }
+        }
+        return key.toString();
+    }
+
+    private static String hash(String text) {
+        try {
+            return HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Collapses whitespace and removes comments outside quoted text, so that statements that
+     * differ only in layout share an entry.
+     */
+    static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            char next = i + 1 < sql.length() ? sql.charAt(i + 1) : 0;
+            if (c == '-' && next == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? sql.length() : end;
+                space = true;
+            } else if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? sql.length() : end + 1;
+                space = true;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && !out.isEmpty()) {
+                    out.append(' ');
+                }
+                space = false;
+                if (c == '\'' || c == '"') {
+                    int end = closingQuote(sql, i);
+                    out.append(sql, i, end);
+                    i = end - 1;
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+        int length = out.length();
+        while (length > 0 && out.charAt(length - 1) == ';') {
+            length--;
+        }
+        return out.substring(0, length).stripTrailing();
+    }
+
+    private static int closingQuote(String sql, int start) {
+        char quote = sql.charAt(start);
+        for (int i = start + 1; i < sql.length(); i++) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i++;
+                } else {
+                    return i + 1;
+                }
+            }
+        }
+        return sql.length();
+    }
+
+    private static Set<String> readTables(String shape) {
+        Set<String> tables = new HashSet<>();
+        Matcher matcher = READ_TABLES.matcher(shape);
+        while (matcher.find()) {
+            for (String item : matcher.group(1).split(",")) {
+                tables.add(tableName(item.trim().split("\\s+")[0]));
+            }
+        }
+        return tables;
+    }
+
+    private static Set<String> writtenTables(String shape) {
+        if (WRITES_NOTHING.matcher(shape).find()) {
+            return Set.of();
+        }
+        Matcher matcher = WRITTEN_TABLE.matcher(shape);
+        if (!matcher.find()) {
+            return Set.of(ALL_TABLES);
+        }
+        // Joined tables too, since an UPDATE ... FROM may name its target by an alias
+        Set<String> tables = readTables(shape);
+        tables.add(tableName(matcher.group(1)));
+        return tables;
+    }
+
+    private static String tableName(String identifier) {
+        String name = identifier.substring(identifier.lastIndexOf('.') + 1);
+        return name.replaceAll("[\"\\[\\]]", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * What the cache needs to know about a statement.
+     *
+     * @param normalized the normalized statement
+     * @param readOnly whether the statement is a cacheable query
+     * @param tables the tables a query reads or the other statements write
+     */
+    private record Analysis(String normalized, boolean readOnly, Set<String> tables) {
+
+        static Analysis of(String sql) {
+            String normalized = normalize(sql);
+            // Literals cannot name tables; blank them so they cannot be mistaken for keywords either
+            String shape = normalized.replaceAll("'(?:[^']|'')*'", "''").toUpperCase(Locale.ROOT);
+            if (READ_ONLY.matcher(shape).find() && !QUERY_WRITES.matcher(shape).find()) {
+                boolean cacheable = !NOT_CACHEABLE.matcher(shape).find();
+                return new Analysis(normalized, true, cacheable ? readTables(shape) : Set.of());
+            }
+            return new Analysis(normalized, false, writtenTables(shape));
+        }
+    }
+
+    private record Query(String key, Set<String> tables, long startedAt) {
+    }
+
+    /**
+     * A cached result. Values are kept as the driver's {@code getObject} returned them.
+     */
+    private record CachedResult(String key, RowSetMetaDataImpl metaData, List<Object[]> rows, Set<String> tables,
+            long createdAt) implements Serializable {
+
+        ResultSet open() throws SQLException {
+            CachedRowSet rowSet = ROW_SETS.createCachedRowSet();
+            rowSet.populate(rowsOf(metaData, rows));
+            rowSet.beforeFirst();
+            return rowSet;
+        }
+    }
+
+    /**
+     * Presents stored rows as the minimal result set that {@link CachedRowSet#populate} reads.
+     */
+    private static ResultSet rowsOf(ResultSetMetaData metaData, List<Object[]> rows) {
+        int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getMetaData" -> metaData;
+                case "next" -> ++row[0] < rows.size();
+                case "getObject" -> rows.get(row[0])[(Integer) args[0] - 1];
+                case "close" -> null;
+                default -> throw new SQLFeatureNotSupportedException(method.getName());
+            });
+    }
+
+    private static RowSetMetaDataImpl copyMetaData(ResultSetMetaData metaData) throws SQLException {
+        CachedRowSet empty = ROW_SETS.createCachedRowSet();
+        empty.populate(rowsOf(metaData, List.of()));
+        return (RowSetMetaDataImpl) empty.getMetaData();
+    }
+
+    /**
+     * Copies the rows of a live result set as they are read, and stores them once the result
+     * set is read to the end and closed. Results over the row limit, and results holding
+     * LOBs or other values that only live as long as the connection, are not stored.
+     */
+    private final class Recording implements InvocationHandler {
+        private final Query query;
+        private final ResultSet rs;
+        private final RowSetMetaDataImpl metaData;
+        private List<Object[]> rows = new ArrayList<>();
+        private boolean complete;
+
+        Recording(Query query, ResultSet rs) throws SQLException {
+            this.query = query;
+            this.rs = rs;
+            this.metaData = copyMetaData(rs.getMetaData());
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(rs, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (method.getName().equals("next") && method.getParameterCount() == 0) {
+                if ((Boolean) result) {
+                    copyRow();
+                } else {
+                    complete = true;
+                }
+            } else if (method.getName().equals("close") && complete && rows != null) {
+                store(query, metaData, rows);
+                rows = null;
+            }
+            return result;
+        }
+
+        private void copyRow() throws SQLException {
+            if (rows == null) {
+                return;
+            }
+            if (rows.size() == maxRows) {
+                rows = null;
+                return;
+            }
+            Object[] row = new Object[metaData.getColumnCount()];
+            for (int i = 0; i < row.length; i++) {
+                Object value = rs.getObject(i + 1);
+                if (value instanceof Blob || value instanceof Clob || value instanceof java.sql.Array
+                        || value instanceof Struct || value instanceof Ref || value instanceof SQLXML
+                        || value instanceof InputStream || value instanceof Reader) {
+                    rows = null;
+                    return;
+                }
+                row[i] = value;
+            }
+            rows.add(row);
+        }
+    }
+
+    /**
+     * The cache as seen by one connection. A session belongs to one thread.
+     */
+    public static final class Session {
+        /** A session of a disabled cache, which caches nothing. */
+        public static final Session DISABLED = new Session(null);
+
+        private final ResultCache cache;
+        private final Set<String> written = new HashSet<>();
+        private String lastSql;
+        private Analysis lastAnalysis;
+
+        private Session(ResultCache cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * Reports a statement about to run on the session's connection. A statement that
+         * writes tables invalidates their cached results, and the session stops using the
+         * cache for them, since its uncommitted changes must stay visible to it alone.
+         *
+         * @param sql the statement
+         */
+        public void executing(String sql) {
+            if (cache == null) {
+                return;
+            }
+            Analysis analysis = analyze(sql);
+            if (!analysis.readOnly()) {
+                written.addAll(analysis.tables());
+                cache.invalidateTables(analysis.tables(), false);
+            }
+        }
+
+        /**
+         * Reports that the transaction on the session's connection committed or rolled back. The
+         * tables it wrote are invalidated again, since other connections may have cached them while
+         * the changes were not yet visible to them, and the session uses the cache for them again.
+         */
+        public void transactionEnded() {
+            if (cache == null || written.isEmpty()) {
+                return;
+            }
+            // the last write a transaction commits must reach other processes, however recent the one before
+            cache.invalidateTables(written, true);
+            written.clear();
+        }
+
+        /**
+         * Looks up a query.
+         *
+         * @param sql the query
+         * @param params the bind values
+         * @return the lookup; {@link Lookup#isCacheable} tells whether the query can be cached at all
+         */
+        public Lookup lookup(String sql, List<Object> params) {
+            if (cache == null) {
+                return Lookup.NONE;
+            }
+            Analysis analysis = analyze(sql);
+            if (!analysis.readOnly() || analysis.tables().isEmpty() || written.contains(ALL_TABLES)
+                    || !Collections.disjoint(written, analysis.tables())) {
+                return Lookup.NONE;
+            }
+            Query query = new Query(cache.key(analysis.normalized(), params), analysis.tables(),
+                System.currentTimeMillis());
+            return new Lookup(cache, query, cache.lookup(query));
+        }
+
+        private Analysis analyze(String sql) {
+            // A batch or a prepared statement repeats the same text
+            if (!sql.equals(lastSql)) {
+                lastAnalysis = Analysis.of(sql);
+                lastSql = sql;
+            }
+            return lastAnalysis;
+        }
+    }
+
+    /**
+     * The outcome of looking up one query.
+     */
+    public static final class Lookup {
+        static final Lookup NONE = new Lookup(null, null, null);
+
+        private final ResultCache cache;
+        private final Query query;
+        private final CachedResult hit;
+
+        private Lookup(ResultCache cache, Query query, CachedResult hit) {
+            this.cache = cache;
+            this.query = query;
+            this.hit = hit;
+        }
+
+        public boolean isCacheable() {
+            return query != null;
+        }
+
+        /**
+         * Gets the cached result.
+         *
+         * @return a new result set over the cached rows, or {@code null} on a miss
+         * @throws SQLException if the result set cannot be created
+         */
+        public ResultSet result() throws SQLException {
+            return hit != null ? hit.open() : null;
+        }
+
+        /**
+         * Records the result of a query that missed. The result is stored once it has been
+         * read to the end and closed.
+         *
+         * @param rs the live result set of the query
+         * @return the result set to read instead, or {@code rs} itself if the query is not cached
+         * @throws SQLException if the result set's metadata cannot be read
+         */
+        public ResultSet record(ResultSet rs) throws SQLException {
+            if (query == null || hit != null) {
+                return rs;
+            }
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, cache.new Recording(query, rs));
+        }
+    }
+}
@@ -1,30 +1,38 @@
 package com.example.shelldemo.cli;
 
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.Duration;
 import java.util.*;
 
 /**
  * A unified database operation class that provides a simple interface for database operations
  * across different database types. This class handles connection management and provides
  * common database operations.
+ * Connections come from a bounded pool sized by the {@link ConnectionConfig}, so one instance
+ * can serve several threads at once.
  */
 public class UnifiedDatabaseOperation implements AutoCloseable {
     private final String dbType;
     private final ConnectionConfig config;
     private final String url;
     private final Properties connectionProperties;
-    private Connection connection;
+    private final ConnectionPool pool;
+    private final ResultCache resultCache;
 
     private UnifiedDatabaseOperation(String dbType, ConnectionConfig config) {
         this.dbType = dbType.trim().toLowerCase();
         this.config = Objects.requireNonNull(config, "Connection config cannot be null");
-        this.connectionProperties = new Properties();
-        this.connectionProperties.setProperty("user", config.getUsername());
-        this.connectionProperties.setProperty("password", config.getPassword());
-        this.url = String.format(getUrlFormat(this.dbType), 
-            config.getHost(), 
-            config.getPort(), 
-            config.getDatabase());
+        this.connectionProperties = credentials(config);
+        this.url = buildUrl(this.dbType, config);
+        this.pool = new ConnectionPool(() -> DriverManager.getConnection(url, connectionProperties), config);
+        this.resultCache = config.getResultCacheTtlMillis() > 0
+            ? new ResultCache(this.dbType + " " + url + " " + config.getUsername(),
+                Duration.ofMillis(config.getResultCacheTtlMillis()), config.getResultCacheMaxEntries(),
+                config.getResultCacheMaxRows(),
+                config.getResultCacheDirectory() != null ? Path.of(config.getResultCacheDirectory()) : null)
+            : null;
     }
 
     /**
@@ -42,6 +50,33 @@ public class UnifiedDatabaseOperation implements AutoCloseable {
         return new UnifiedDatabaseOperation(dbType, config);
     }
 
+    /**
+     * Opens a connection that is not pooled, for short-lived work against many databases
+     * where keeping a pool per database would cost more than it saves.
+     *
+     * @param dbType the database type (oracle, postgresql, mysql, sqlserver)
+     * @param config the connection configuration
+     * @return a new database connection, to be closed by the caller
+     * @throws SQLException if the connection cannot be opened
+     */
+    public static Connection connect(String dbType, ConnectionConfig config) throws SQLException {
+        if (dbType == null || dbType.trim().isEmpty()) {
+            throw new SQLException("Database type cannot be null or empty");
+        }
+        return DriverManager.getConnection(buildUrl(dbType.trim().toLowerCase(), config), credentials(config));
+    }
+
+    private static String buildUrl(String dbType, ConnectionConfig config) {
+        return String.format(getUrlFormat(dbType), config.getHost(), config.getPort(), config.getDatabase());
+    }
+
+    private static Properties credentials(ConnectionConfig config) {
+        Properties properties = new Properties();
+        properties.setProperty("user", config.getUsername());
+        properties.setProperty("password", config.getPassword());
+        return properties;
+    }
+
     private static String getUrlFormat(String dbType) {
         return switch (dbType) {
             case "oracle" -> "jdbc:oracle:thin:@//%s:%d/freepdb1?SERVICE_NAME=freepdb1";
@@ -53,21 +88,20 @@ public class UnifiedDatabaseOperation implements AutoCloseable {
     }
 
     /**
-     * Gets a connection to the database. If a connection already exists, it is returned.
-     * Otherwise, a new connection is created.
+     * Borrows a connection from the pool, waiting for one to be returned if all are in use.
+     * Closing the returned connection gives it back to the pool.
      *
      * @return a database connection
-     * @throws SQLException if a database access error occurs
+     * @throws SQLException if a database access error occurs or no connection became available in time
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(url, connectionProperties);
-        }
-        return connection;
+        return pool.borrow();
     }
 
     /**
-     * Executes a query and returns the results as a list of maps.
+     * Executes a query and returns the results as a list of maps. Every row is held in memory;
+     * use {@link #forEachRow} or {@link #openCursor} for results of unbounded size.
+     * With the result cache enabled, read-only queries are answered from it when they can be.
      *
      * @param sql the SQL query to execute
      * @param params the query parameters
@@ -75,24 +109,75 @@ public class UnifiedDatabaseOperation implements AutoCloseable {
      * @throws SQLException if a database access error occurs
      */
     public List<Map<String, Object>> executeQuery(String sql, Object... params) throws SQLException {
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        ResultCache.Lookup lookup = newCacheSession().lookup(sql, Arrays.asList(params));
+        if (!lookup.isCacheable()) {
+            forEachRow(sql, row -> results.add(row.toMap()), params);
+            return results;
+        }
+
+        ResultSet cached = lookup.result();
+        if (cached != null) {
+            try (cached) {
+                readRows(cached, results);
+            }
+            return results;
+        }
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             for (int i = 0; i < params.length; i++) {
                 stmt.setObject(i + 1, params[i]);
             }
-            try (ResultSet rs = stmt.executeQuery()) {
-                List<Map<String, Object>> results = new ArrayList<>();
-                ResultSetMetaData metaData = rs.getMetaData();
-                int columnCount = metaData.getColumnCount();
-                
-                while (rs.next()) {
-                    Map<String, Object> row = new HashMap<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        row.put(metaData.getColumnName(i), rs.getObject(i));
-                    }
-                    results.add(row);
-                }
-                return results;
+            config.getFetchSizePolicy().applyTo(stmt);
+            try (ResultSet rs = lookup.record(stmt.executeQuery())) {
+                readRows(rs, results);
+            }
+        }
+        return results;
+    }
+
+    private static void readRows(ResultSet rs, List<Map<String, Object>> results) throws SQLException {
+        ResultRow row = new ResultRow(rs);
+        while (rs.next()) {
+            results.add(row.toMap());
+        }
+    }
+
+    /**
+     * Executes a query and hands each row to a callback as it is read, without keeping rows in memory.
+     * The row passed to the callback is the same object for every row and is only valid during the call.
+     *
+     * @param sql the SQL query to execute
+     * @param handler called once per row
+     * @param params the query parameters
+     * @return the number of rows read
+     * @throws SQLException if a database access error occurs or the handler fails
+     */
+    public long forEachRow(String sql, RowHandler handler, Object... params) throws SQLException {
+        try (QueryCursor cursor = openCursor(sql, params)) {
+            while (cursor.next()) {
+                handler.handle(cursor.row());
             }
+            return cursor.getRowCount();
+        }
+    }
+
+    /**
+     * Executes a query and returns a cursor over its rows. The cursor holds a pooled connection
+     * until it is closed, and reads rows from the database in fetch-size batches as it advances.
+     *
+     * @param sql the SQL query to execute
+     * @param params the query parameters
+     * @return the cursor, positioned before the first row
+     * @throws SQLException if a database access error occurs
+     */
+    public QueryCursor openCursor(String sql, Object... params) throws SQLException {
+        Connection conn = getConnection();
+        try {
+            return new QueryCursor(conn, sql, params, config.getFetchSizePolicy(), dbType);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
         }
     }
 
@@ -105,10 +190,14 @@ public class UnifiedDatabaseOperation implements AutoCloseable {
      * @throws SQLException if a database access error occurs
      */
     public int executeUpdate(String sql, Object... params) throws SQLException {
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             for (int i = 0; i < params.length; i++) {
                 stmt.setObject(i + 1, params[i]);
             }
+            if (resultCache != null) {
+                resultCache.invalidate(sql);
+            }
             return stmt.executeUpdate();
         }
     }
@@ -122,10 +211,14 @@ public class UnifiedDatabaseOperation implements AutoCloseable {
      * @throws SQLException if a database access error occurs
      */
     public Object callStoredProcedure(String procedureName, Object... params) throws SQLException {
-        try (CallableStatement stmt = getConnection().prepareCall(procedureName)) {
+        try (Connection conn = getConnection();
+             CallableStatement stmt = conn.prepareCall(procedureName)) {
             for (int i = 0; i < params.length; i++) {
                 stmt.setObject(i + 1, params[i]);
             }
+            if (resultCache != null) {
+                resultCache.invalidateAll();
+            }
             stmt.execute();
             return stmt.getObject(1);
         }
@@ -140,21 +233,58 @@ public class UnifiedDatabaseOperation implements AutoCloseable {
      * @throws SQLException if a database access error occurs
      */
     public <T> T executeTransaction(ConnectionCallback<T> callback) throws SQLException {
-        Connection conn = getConnection();
-        boolean originalAutoCommit = conn.getAutoCommit();
-        try {
-            conn.setAutoCommit(false);
-            T result = callback.execute(conn);
-            conn.commit();
-            return result;
-        } catch (SQLException e) {
-            conn.rollback();
-            throw e;
-        } finally {
-            conn.setAutoCommit(originalAutoCommit);
+        return executeTransaction(ResultCache.Session.DISABLED, callback);
+    }
+
+    /**
+     * Executes a transaction whose statements are reported to a result cache session, and tells
+     * the session when the transaction has committed or rolled back.
+     *
+     * @param cache the session the callback reports its statements to
+     * @param callback the transaction callback
+     * @param <T> the return type
+     * @return the result of the transaction
+     * @throws SQLException if a database access error occurs
+     */
+    public <T> T executeTransaction(ResultCache.Session cache, ConnectionCallback<T> callback) throws SQLException {
+        try (Connection conn = getConnection()) {
+            boolean originalAutoCommit = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+                T result = callback.execute(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                cache.transactionEnded();
+                conn.setAutoCommit(originalAutoCommit);
+            }
         }
     }
 
+    /**
+     * Gets the result cache.
+     *
+     * @return the cache, or {@code null} when the connection configuration gives it no time to live
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Starts a result cache session for statements run on a connection of the caller's own, such
+     * as one from {@link #getConnection} or {@link #executeTransaction}. Every statement run on it
+     * has to be reported to {@link ResultCache.Session#executing}, and every commit and rollback
+     * to {@link ResultCache.Session#transactionEnded}.
+     *
+     * @return the session, {@link ResultCache.Session#DISABLED} when there is no result cache
+     */
+    public ResultCache.Session newCacheSession() {
+        return resultCache != null ? resultCache.newSession() : ResultCache.Session.DISABLED;
+    }
+
     /**
      * Gets the database type.
      *
@@ -175,8 +305,296 @@ public class UnifiedDatabaseOperation implements AutoCloseable {
 
     @Override
     public void close() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+        pool.close();
+    }
+
+    /**
+     * Receives the rows of a query one at a time.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * Processes one row.
+         *
+         * @param row the current row, only valid until this method returns
+         * @throws SQLException if reading the row fails
+         */
+        void handle(ResultRow row) throws SQLException;
+    }
+
+    /**
+     * A forward-only cursor over the rows of a query. On PostgreSQL the cursor runs in a
+     * transaction of its own, because the driver reads the whole result at once in auto-commit
+     * mode; on MySQL it streams rows unless a fetch size is configured.
+     */
+    public static final class QueryCursor implements AutoCloseable {
+        private static final int STREAMING_FETCH_SIZE = 1000;
+
+        private final Connection conn;
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private final FetchSizePolicy.Tuner tuner;
+        private final ResultRow row;
+        private final boolean restoreAutoCommit;
+        private long rowCount;
+        private boolean closed;
+
+        private QueryCursor(Connection conn, String sql, Object[] params, FetchSizePolicy fetchSizePolicy, String dbType)
+                throws SQLException {
+            this.conn = conn;
+            this.restoreAutoCommit = dbType.equals("postgresql") && conn.getAutoCommit();
+            if (restoreAutoCommit) {
+                conn.setAutoCommit(false);
+            }
+            try {
+                this.stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            } catch (SQLException | RuntimeException e) {
+                endTransaction(e);
+                throw e;
+            }
+            try {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                fetchSizePolicy.applyTo(stmt);
+                if (fetchSizePolicy.getInitialFetchSize() == 0) {
+                    stmt.setFetchSize(dbType.equals("mysql") ? Integer.MIN_VALUE : STREAMING_FETCH_SIZE);
+                }
+                this.rs = stmt.executeQuery();
+                this.tuner = fetchSizePolicy.tune(rs);
+                this.row = new ResultRow(rs);
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    stmt.close();
+                } catch (SQLException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                endTransaction(e);
+                throw e;
+            }
+        }
+
+        /**
+         * Rolls back the cursor's own transaction after a failure and gives the connection its
+         * auto-commit mode back.
+         */
+        private void endTransaction(Exception failure) {
+            if (!restoreAutoCommit) {
+                return;
+            }
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                failure.addSuppressed(e);
+            }
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                failure.addSuppressed(e);
+            }
+        }
+
+        /**
+         * Moves to the next row.
+         *
+         * @return {@code false} once every row has been read
+         * @throws SQLException if reading fails
+         */
+        public boolean next() throws SQLException {
+            if (closed || !tuner.next()) {
+                return false;
+            }
+            rowCount++;
+            return true;
+        }
+
+        /**
+         * Gets the view of the current row. The same object is returned for every row.
+         *
+         * @return the current row
+         */
+        public ResultRow row() {
+            return row;
+        }
+
+        /**
+         * Gets the number of rows read so far.
+         *
+         * @return the row count
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (conn; stmt; rs) {
+                if (restoreAutoCommit) {
+                    try {
+                        conn.commit();
+                    } catch (SQLException | RuntimeException e) {
+                        endTransaction(e);
+                        throw e;
+                    }
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * A view of the current row of a result set. Column labels are resolved to indexes once per
+     * query, and the typed accessors read straight from the result set, so reading a row does
+     * not allocate beyond what the values themselves need.
+     */
+    public static final class ResultRow {
+        private final ResultSet rs;
+        private final String[] columnNames;
+        private final Map<String, Integer> columnIndexes;
+
+        private ResultRow(ResultSet rs) throws SQLException {
+            this.rs = rs;
+            ResultSetMetaData metaData = rs.getMetaData();
+            this.columnNames = new String[metaData.getColumnCount()];
+            this.columnIndexes = new HashMap<>(columnNames.length * 2);
+            for (int i = 1; i <= columnNames.length; i++) {
+                columnNames[i - 1] = metaData.getColumnName(i);
+                columnIndexes.putIfAbsent(metaData.getColumnLabel(i).toUpperCase(Locale.ROOT), i);
+            }
+        }
+
+        /**
+         * Gets the number of columns.
+         *
+         * @return the column count
+         */
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        /**
+         * Gets the name of a column.
+         *
+         * @param column the 1-based column index
+         * @return the column name
+         */
+        public String getColumnName(int column) {
+            return columnNames[column - 1];
+        }
+
+        /**
+         * Finds a column by its label, ignoring case.
+         *
+         * @param label the column label
+         * @return the 1-based column index
+         * @throws SQLException if the result has no such column
+         */
+        public int findColumn(String label) throws SQLException {
+            Integer index = columnIndexes.get(label.toUpperCase(Locale.ROOT));
+            if (index == null) {
+                throw new SQLException("No column " + label + " in the result");
+            }
+            return index;
+        }
+
+        public Object getObject(int column) throws SQLException {
+            return rs.getObject(column);
+        }
+
+        public Object getObject(String label) throws SQLException {
+            return rs.getObject(findColumn(label));
+        }
+
+        public String getString(int column) throws SQLException {
+            return rs.getString(column);
+        }
+
+        public String getString(String label) throws SQLException {
+            return rs.getString(findColumn(label));
+        }
+
+        public long getLong(int column) throws SQLException {
+            return rs.getLong(column);
+        }
+
+        public long getLong(String label) throws SQLException {
+            return rs.getLong(findColumn(label));
+        }
+
+        public int getInt(int column) throws SQLException {
+            return rs.getInt(column);
+        }
+
+        public int getInt(String label) throws SQLException {
+            return rs.getInt(findColumn(label));
+        }
+
+        public double getDouble(int column) throws SQLException {
+            return rs.getDouble(column);
+        }
+
+        public double getDouble(String label) throws SQLException {
+            return rs.getDouble(findColumn(label));
+        }
+
+        public boolean getBoolean(int column) throws SQLException {
+            return rs.getBoolean(column);
+        }
+
+        public boolean getBoolean(String label) throws SQLException {
+            return rs.getBoolean(findColumn(label));
+        }
+
+        public BigDecimal getBigDecimal(int column) throws SQLException {
+            return rs.getBigDecimal(column);
+        }
+
+        public BigDecimal getBigDecimal(String label) throws SQLException {
+            return rs.getBigDecimal(findColumn(label));
+        }
+
+        public Timestamp getTimestamp(int column) throws SQLException {
+            return rs.getTimestamp(column);
+        }
+
+        public Timestamp getTimestamp(String label) throws SQLException {
+            return rs.getTimestamp(findColumn(label));
+        }
+
+        public byte[] getBytes(int column) throws SQLException {
+            return rs.getBytes(column);
+        }
+
+        public byte[] getBytes(String label) throws SQLException {
+            return rs.getBytes(findColumn(label));
+        }
+
+        /**
+         * Reports whether the last value read by a primitive accessor was SQL NULL.
+         *
+         * @return {@code true} if the value was NULL
+         * @throws SQLException if the result set is closed
+         */
+        public boolean wasNull() throws SQLException {
+            return rs.wasNull();
+        }
+
+        /**
+         * Copies the current row into a map keyed by column name.
+         *
+         * @return a new map of the row's values
+         * @throws SQLException if reading fails
+         */
+        public Map<String, Object> toMap() throws SQLException {
+            Map<String, Object> values = new HashMap<>(columnNames.length * 2);
+            for (int i = 1; i <= columnNames.length; i++) {
+                values.put(columnNames[i - 1], rs.getObject(i));
+            }
+            return values;
         }
     }
 
@@ -1,6 +1,8 @@
 package com.example.shelldemo.monitoring;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.TimeUnit;
@@ -8,7 +10,12 @@ import java.util.concurrent.TimeUnit;
 public class CommandMetricsCollector implements MetricCollector {
     private static final Logger log = LoggerFactory.getLogger(CommandMetricsCollector.class);
     private static final String COLLECTOR_NAME = "command";
+    private static final int EXECUTION_TIME = 0;
+    private static final int EXECUTION_COUNT = 1;
+    private static final int ERROR_COUNT = 2;
     private final MeterRegistry registry;
+    private final MetricIds ids = new MetricIds(COLLECTOR_NAME,
+        "command.execution.time", "command.execution.count", "command.error.count");
 
     public CommandMetricsCollector(MeterRegistry registry) {
         this.registry = registry;
@@ -20,22 +27,26 @@ public class CommandMetricsCollector implements MetricCollector {
     }
 
     @Override
-    public void collect(MetricEvent.Builder builder) {
+    public void collect(MetricSampleStore samples) {
         try {
-            builder.collector(COLLECTOR_NAME)
-                   .name("command.execution.time")
-                   .value(registry.get("command.execution.time").timer().totalTime(TimeUnit.MILLISECONDS));
-            
-            builder.collector(COLLECTOR_NAME)
-                   .name("command.execution.count")
-                   .value(registry.get("command.execution.count").counter().count());
-                   
-            builder.collector(COLLECTOR_NAME)
-                   .name("command.error.count")
-                   .value(registry.get("command.error.count").counter().count());
+            long now = MetricSampleStore.epochNanos();
+            Timer executionTime = registry.find("command.execution.time").timer();
+            if (executionTime != null) {
+                ids.add(samples, EXECUTION_TIME, now, executionTime.totalTime(TimeUnit.MILLISECONDS));
+            }
+
+            Counter executionCount = registry.find("command.execution.count").counter();
+            if (executionCount != null) {
+                ids.add(samples, EXECUTION_COUNT, now, executionCount.count());
+            }
+
+            Counter errorCount = registry.find("command.error.count").counter();
+            if (errorCount != null) {
+                ids.add(samples, ERROR_COUNT, now, errorCount.count());
+            }
         } catch (Exception e) {
             log.error("Failed to collect command metrics: {}", e.getMessage());
             // Don't throw, just log as this is a monitoring operation
         }
     }
-} 
\ No newline at end of file
+}
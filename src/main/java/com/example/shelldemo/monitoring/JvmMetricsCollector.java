@@ -1,6 +1,7 @@
 package com.example.shelldemo.monitoring;
 
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.lang.management.ManagementFactory;
@@ -10,9 +11,13 @@ import java.util.concurrent.TimeUnit;
 
 public class JvmMetricsCollector implements MetricCollector {
     private static final Logger log = LoggerFactory.getLogger(JvmMetricsCollector.class);
+    private static final int MEMORY_USED = 0;
+    private static final int THREADS_LIVE = 1;
+    private static final int GC_TIME = 2;
     private final MeterRegistry registry;
     private final MemoryMXBean memoryBean;
     private final ThreadMXBean threadBean;
+    private final MetricIds ids = new MetricIds("jvm", "jvm.memory.used", "jvm.threads.live", "jvm.gc.time");
 
     public JvmMetricsCollector(MeterRegistry registry) {
         this.registry = registry;
@@ -26,22 +31,19 @@ public class JvmMetricsCollector implements MetricCollector {
     }
 
     @Override
-    public void collect(MetricEvent.Builder builder) {
+    public void collect(MetricSampleStore samples) {
         try {
-            builder.collector("jvm")
-                   .name("jvm.memory.used")
-                   .value(memoryBean.getHeapMemoryUsage().getUsed());
-            
-            builder.collector("jvm")
-                   .name("jvm.threads.live")
-                   .value(threadBean.getThreadCount());
-            
-            builder.collector("jvm")
-                   .name("jvm.gc.time")
-                   .value(registry.get("jvm.gc.time").timer().totalTime(TimeUnit.MILLISECONDS));
+            long now = MetricSampleStore.epochNanos();
+            ids.add(samples, MEMORY_USED, now, memoryBean.getHeapMemoryUsage().getUsed());
+            ids.add(samples, THREADS_LIVE, now, threadBean.getThreadCount());
+
+            Timer gcTime = registry.find("jvm.gc.time").timer();
+            if (gcTime != null) {
+                ids.add(samples, GC_TIME, now, gcTime.totalTime(TimeUnit.MILLISECONDS));
+            }
         } catch (Exception e) {
             log.error("Failed to collect JVM metrics: {}", e.getMessage());
             // Don't throw, just log as this is a monitoring operation
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.example.shelldemo.monitoring;
+
+/**
+ * A collector that reports one sample per collection through a {@link MetricEvent.Builder}.
+ * The sample is copied into the {@link MetricSampleStore} the {@link MetricsManager} collects into.
+ */
+public interface LegacyMetricCollector extends MetricCollector {
+    /**
+     * Collects metrics and adds them to the provided builder.
+     * @param builder the metric event builder
+     */
+    void collect(MetricEvent.Builder builder);
+
+    @Override
+    default void collect(MetricSampleStore samples) {
+        MetricEvent.Builder builder = new MetricEvent.Builder().collector(getName());
+        collect(builder);
+        MetricEvent event = builder.build();
+        if (event.getName() == null) {
+            return;
+        }
+        MetricSymbols symbols = samples.symbols();
+        long nanos = event.getTimestamp().getEpochSecond() * 1_000_000_000L + event.getTimestamp().getNano();
+        samples.add(symbols.name(event.getCollector() != null ? event.getCollector() : getName()),
+            symbols.name(event.getName()), symbols.tags(event.getTags()), nanos, event.getValue());
+    }
+}
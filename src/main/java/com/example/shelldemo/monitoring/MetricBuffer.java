@@ -1,58 +1,155 @@
 package com.example.shelldemo.monitoring;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 /**
  * A thread-safe buffer for storing metric events.
- * This buffer is optimized for concurrent access and provides efficient draining of events.
+ * <p>
+ * Events are kept in a preallocated ring of slots, so adding an event allocates nothing. Any number
+ * of threads may add events; one thread drains them. Each slot carries a sequence number that tells
+ * producers and the consumer whose turn it is, so neither side takes a lock. The buffer never holds
+ * more than {@link #getMaxSize()} events; what happens to an event that does not fit is decided by
+ * the {@link OverflowPolicy}.
  */
 public class MetricBuffer {
     private static final int DEFAULT_MAX_SIZE = 10000;
-    
-    private final ConcurrentLinkedQueue<MetricEvent> queue = new ConcurrentLinkedQueue<>();
-    private final AtomicInteger size = new AtomicInteger(0);
+    private static final long BLOCK_PARK_NANOS = 100_000;
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * What {@link #add} does when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Removes the oldest event to make space. */
+        DROP_OLDEST,
+        /** Discards the event being added. */
+        DROP_NEWEST,
+        /** Waits until the consumer has drained space. */
+        BLOCK
+    }
+
+    private final MetricEvent[] events;
+    private final long[] sequences;
+    private final int mask;
     private final int maxSize;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
 
     /**
-     * Creates a new MetricBuffer with the default maximum size.
+     * Creates a new MetricBuffer with the default maximum size that drops the oldest events when full.
      */
     public MetricBuffer() {
         this(DEFAULT_MAX_SIZE);
     }
 
     /**
-     * Creates a new MetricBuffer with the specified maximum size.
+     * Creates a new MetricBuffer with the specified maximum size that drops the oldest events when full.
      *
      * @param maxSize the maximum number of events to buffer
      * @throws IllegalArgumentException if maxSize is less than 1
      */
     public MetricBuffer(int maxSize) {
-        if (maxSize < 1) {
-            throw new IllegalArgumentException("maxSize must be at least 1");
+        this(maxSize, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Creates a new MetricBuffer with the specified maximum size and overflow policy.
+     *
+     * @param maxSize the maximum number of events to buffer
+     * @param overflowPolicy what to do with events that do not fit
+     * @throws IllegalArgumentException if maxSize is less than 1 or greater than 2^30
+     */
+    public MetricBuffer(int maxSize, OverflowPolicy overflowPolicy) {
+        if (maxSize < 1 || maxSize > 1 << 30) {
+            throw new IllegalArgumentException("maxSize must be between 1 and 2^30");
+        }
+        if (overflowPolicy == null) {
+            throw new NullPointerException("overflowPolicy cannot be null");
         }
+        int capacity = maxSize == 1 ? 1 : Integer.highestOneBit(maxSize - 1) << 1;
+        this.events = new MetricEvent[capacity];
+        this.sequences = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            sequences[i] = i;
+        }
+        this.mask = capacity - 1;
         this.maxSize = maxSize;
+        this.overflowPolicy = overflowPolicy;
     }
 
     /**
      * Adds a metric event to the buffer.
-     * If the buffer is full, the oldest event is removed to make space.
+     * If the buffer is full, the overflow policy decides whether the oldest event is removed to make
+     * space, the event is discarded, or the caller waits for space.
      *
      * @param event the metric event to add
+     * @return true if the event was added, false if it was discarded
      * @throws NullPointerException if event is null
      */
-    public void add(MetricEvent event) {
+    public boolean add(MetricEvent event) {
         if (event == null) {
             throw new NullPointerException("event cannot be null");
         }
-        
-        queue.offer(event);
-        if (size.incrementAndGet() > maxSize) {
-            queue.poll(); // Remove oldest event
-            size.decrementAndGet();
+
+        while (!offer(event)) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST -> {
+                    if (poll() != null) {
+                        dropped.incrementAndGet();
+                    } else {
+                        // the oldest slot is claimed by a producer that has not filled it yet
+                        Thread.onSpinWait();
+                    }
+                }
+                case DROP_NEWEST -> {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                case BLOCK -> {
+                    if (Thread.currentThread().isInterrupted()) {
+                        dropped.incrementAndGet();
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                }
+            }
         }
+        return true;
+    }
+
+    /**
+     * Moves up to {@code maxEvents} events, oldest first, to a sink without allocating.
+     *
+     * @param sink receives the events
+     * @param maxEvents the most events to move
+     * @return the number of events moved
+     */
+    public int drainTo(Consumer<? super MetricEvent> sink, int maxEvents) {
+        int drained = 0;
+        MetricEvent event;
+        while (drained < maxEvents && (event = poll()) != null) {
+            sink.accept(event);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Moves every buffered event, oldest first, to a sink without allocating.
+     *
+     * @param sink receives the events
+     * @return the number of events moved
+     */
+    public int drainTo(Consumer<? super MetricEvent> sink) {
+        return drainTo(sink, Integer.MAX_VALUE);
     }
 
     /**
@@ -62,22 +159,25 @@ public class MetricBuffer {
      * @return a list containing all drained events
      */
     public List<MetricEvent> drain() {
-        List<MetricEvent> events = new ArrayList<>();
-        MetricEvent event;
-        while ((event = queue.poll()) != null) {
-            events.add(event);
-            size.decrementAndGet();
-        }
-        return events;
+        List<MetricEvent> drained = new ArrayList<>(size());
+        drainTo(drained::add);
+        return drained;
     }
 
     /**
-     * Returns the current number of events in the buffer.
+     * Returns the current number of events in the buffer, including events whose producer has
+     * claimed a slot but not yet filled it.
      *
      * @return the current size of the buffer
      */
     public int size() {
-        return size.get();
+        while (true) {
+            long consumed = head.get();
+            long produced = tail.get();
+            if (head.get() == consumed) {
+                return (int) Math.max(0, Math.min(maxSize, produced - consumed));
+            }
+        }
     }
 
     /**
@@ -89,12 +189,70 @@ public class MetricBuffer {
         return maxSize;
     }
 
+    /**
+     * Returns the overflow policy of this buffer.
+     *
+     * @return what happens to events that do not fit
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Returns the number of events discarded or evicted because the buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
     /**
      * Checks if the buffer is empty.
      *
      * @return true if the buffer contains no events
      */
     public boolean isEmpty() {
-        return size.get() == 0;
+        return size() == 0;
+    }
+
+    private boolean offer(MetricEvent event) {
+        while (true) {
+            long position = tail.get();
+            if (position - head.get() >= maxSize) {
+                return false;
+            }
+            int index = (int) position & mask;
+            long sequence = (long) SEQUENCES.getAcquire(sequences, index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events[index] = event;
+                    SEQUENCES.setRelease(sequences, index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // the slot still holds an event the consumer has claimed but not yet read
+                return false;
+            }
+        }
+    }
+
+    private MetricEvent poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long sequence = (long) SEQUENCES.getAcquire(sequences, index);
+            if (sequence == position + 1) {
+                // producers evicting under DROP_OLDEST compete with the consumer for the head
+                if (head.compareAndSet(position, position + 1)) {
+                    MetricEvent event = events[index];
+                    events[index] = null;
+                    SEQUENCES.setRelease(sequences, index, position + mask + 1);
+                    return event;
+                }
+            } else if (sequence < position + 1) {
+                return null;
+            }
+        }
     }
-} 
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.example.shelldemo.monitoring;
 
 /**
  * Interface for collecting metrics.
+ * Collectors written against the single-sample builder implement {@link LegacyMetricCollector} instead.
  */
 public interface MetricCollector {
     /**
@@ -11,8 +12,11 @@ public interface MetricCollector {
     String getName();
 
     /**
-     * Collects metrics and adds them to the provided builder.
-     * @param builder the metric event builder
+     * Collects metrics, writing every sample into the provided store. The store is reused between
+     * collections, so a collector that looks up its symbol ids once, from the store's
+     * {@link MetricSampleStore#symbols() symbols}, adds its samples without allocating.
+     *
+     * @param samples the store to add samples to
      */
-    void collect(MetricEvent.Builder builder);
-} 
\ No newline at end of file
+    void collect(MetricSampleStore samples);
+}
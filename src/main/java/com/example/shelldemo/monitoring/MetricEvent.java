@@ -29,14 +29,23 @@ public class MetricEvent {
         private String collector;
         private String name;
         private double value;
-        private Map<String, String> tags = new HashMap<>();
-        private Instant timestamp = Instant.now();
+        private Map<String, String> tags;
+        private Instant timestamp;
 
         public Builder collector(String collector) { this.collector = collector; return this; }
         public Builder name(String name) { this.name = name; return this; }
         public Builder value(double value) { this.value = value; return this; }
-        public Builder tag(String key, String value) { tags.put(key, value); return this; }
+        public Builder tag(String key, String value) {
+            if (tags == null) {
+                tags = new HashMap<>();
+            }
+            tags.put(key, value);
+            return this;
+        }
         public Builder timestamp(Instant timestamp) { this.timestamp = timestamp; return this; }
-        public MetricEvent build() { return new MetricEvent(collector, name, value, tags, timestamp); }
+        public MetricEvent build() {
+            return new MetricEvent(collector, name, value, tags != null ? tags : Map.of(),
+                timestamp != null ? timestamp : Instant.now());
+        }
     }
 } 
\ No newline at end of file
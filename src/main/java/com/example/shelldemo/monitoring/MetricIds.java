@@ -0,0 +1,62 @@
+package com.example.shelldemo.monitoring;
+
+/**
+ * The symbol ids of a collector and its metric names, looked up once and reused for every
+ * collection as long as the collector is handed stores with the same symbols.
+ */
+final class MetricIds {
+    private final String collector;
+    private final String[] names;
+    private volatile Resolved resolved;
+
+    /**
+     * @param collector the collector name
+     * @param names the metric names, addressed by their position in {@link #add}
+     */
+    MetricIds(String collector, String... names) {
+        this.collector = collector;
+        this.names = names.clone();
+    }
+
+    /**
+     * Adds an untagged sample of one of the metrics.
+     *
+     * @param samples the store to add to
+     * @param metric the position of the metric name
+     * @param epochNanos when the sample was taken
+     * @param value the sampled value
+     */
+    void add(MetricSampleStore samples, int metric, long epochNanos, double value) {
+        add(samples, metric, MetricSymbols.NO_TAGS, epochNanos, value);
+    }
+
+    /**
+     * Adds a tagged sample of one of the metrics.
+     *
+     * @param samples the store to add to
+     * @param metric the position of the metric name
+     * @param tags the tag set id, from the store's symbols
+     * @param epochNanos when the sample was taken
+     * @param value the sampled value
+     */
+    void add(MetricSampleStore samples, int metric, int tags, long epochNanos, double value) {
+        Resolved ids = resolve(samples.symbols());
+        samples.add(ids.collector(), ids.names()[metric], tags, epochNanos, value);
+    }
+
+    private Resolved resolve(MetricSymbols symbols) {
+        Resolved ids = resolved;
+        if (ids == null || ids.symbols() != symbols) {
+            int[] nameIds = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                nameIds[i] = symbols.name(names[i]);
+            }
+            ids = new Resolved(symbols, symbols.name(collector), nameIds);
+            resolved = ids;
+        }
+        return ids;
+    }
+
+    private record Resolved(MetricSymbols symbols, int collector, int[] names) {
+    }
+}
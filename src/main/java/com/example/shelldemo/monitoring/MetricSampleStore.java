@@ -0,0 +1,174 @@
+package com.example.shelldemo.monitoring;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Holds metric samples column by column in primitive arrays: the collector, metric name and tag set
+ * as ids from {@link MetricSymbols}, the time as nanoseconds since the epoch, and the value. Adding a
+ * sample allocates nothing once the store has grown to its working size, so a store can be cleared
+ * and filled again on every collection.
+ * <p>
+ * A store is not thread-safe; each thread that collects fills its own.
+ */
+public final class MetricSampleStore {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final MetricSymbols symbols;
+    private int[] collectorIds;
+    private int[] nameIds;
+    private int[] tagIds;
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+
+    /**
+     * Creates a store for the {@link MetricSymbols#shared() shared} symbols.
+     */
+    public MetricSampleStore() {
+        this(MetricSymbols.shared(), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param symbols resolves the ids of the samples
+     * @param initialCapacity the samples the store holds before it grows
+     * @throws IllegalArgumentException if initialCapacity is less than 1
+     */
+    public MetricSampleStore(MetricSymbols symbols, int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity must be at least 1");
+        }
+        this.symbols = symbols;
+        this.collectorIds = new int[initialCapacity];
+        this.nameIds = new int[initialCapacity];
+        this.tagIds = new int[initialCapacity];
+        this.timestamps = new long[initialCapacity];
+        this.values = new double[initialCapacity];
+    }
+
+    /**
+     * Returns the current time as nanoseconds since the epoch, without allocating. The clock has the
+     * millisecond precision of {@link System#currentTimeMillis()}.
+     *
+     * @return the time for a sample taken now
+     */
+    public static long epochNanos() {
+        return System.currentTimeMillis() * 1_000_000L;
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param collector the collector id
+     * @param name the metric name id
+     * @param tags the tag set id, or {@link MetricSymbols#NO_TAGS}
+     * @param epochNanos when the sample was taken
+     * @param value the sampled value
+     */
+    public void add(int collector, int name, int tags, long epochNanos, double value) {
+        if (size == values.length) {
+            grow(size + 1);
+        }
+        collectorIds[size] = collector;
+        nameIds[size] = name;
+        tagIds[size] = tags;
+        timestamps[size] = epochNanos;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Copies every sample of another store to the end of this one. The ids of a store with other
+     * symbols are translated to this store's symbols.
+     *
+     * @param samples the samples to copy
+     */
+    public void addAll(MetricSampleStore samples) {
+        if (samples.symbols != symbols) {
+            MetricSymbols other = samples.symbols;
+            for (int i = 0; i < samples.size; i++) {
+                add(symbols.name(other.nameOf(samples.collectorIds[i])), symbols.name(other.nameOf(samples.nameIds[i])),
+                    symbols.tags(other.tagsOf(samples.tagIds[i])), samples.timestamps[i], samples.values[i]);
+            }
+            return;
+        }
+        if (size + samples.size > values.length) {
+            grow(size + samples.size);
+        }
+        System.arraycopy(samples.collectorIds, 0, collectorIds, size, samples.size);
+        System.arraycopy(samples.nameIds, 0, nameIds, size, samples.size);
+        System.arraycopy(samples.tagIds, 0, tagIds, size, samples.size);
+        System.arraycopy(samples.timestamps, 0, timestamps, size, samples.size);
+        System.arraycopy(samples.values, 0, values, size, samples.size);
+        size += samples.size;
+    }
+
+    /**
+     * Removes every sample, keeping the arrays for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public MetricSymbols symbols() {
+        return symbols;
+    }
+
+    public int collector(int index) {
+        return collectorIds[checkIndex(index)];
+    }
+
+    public int name(int index) {
+        return nameIds[checkIndex(index)];
+    }
+
+    public int tags(int index) {
+        return tagIds[checkIndex(index)];
+    }
+
+    public long timestamp(int index) {
+        return timestamps[checkIndex(index)];
+    }
+
+    public double value(int index) {
+        return values[checkIndex(index)];
+    }
+
+    /**
+     * Turns a sample into a {@link MetricEvent}, for consumers that work with events.
+     *
+     * @param index the sample index
+     * @return the event
+     */
+    public MetricEvent toEvent(int index) {
+        checkIndex(index);
+        long nanos = timestamps[index];
+        return new MetricEvent(symbols.nameOf(collectorIds[index]), symbols.nameOf(nameIds[index]), values[index],
+            symbols.tagsOf(tagIds[index]), Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                Math.floorMod(nanos, 1_000_000_000L)));
+    }
+
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(values.length * 2, minCapacity);
+        collectorIds = Arrays.copyOf(collectorIds, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+        tagIds = Arrays.copyOf(tagIds, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
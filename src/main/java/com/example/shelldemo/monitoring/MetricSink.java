@@ -0,0 +1,16 @@
+package com.example.shelldemo.monitoring;
+
+/**
+ * Receives the samples of every collection the {@link MetricsManager} runs.
+ */
+@FunctionalInterface
+public interface MetricSink {
+    /**
+     * Takes the samples of one collection. The store is cleared and refilled by the next
+     * collection once this returns, so a sink copies the samples it keeps, for instance with
+     * {@link MetricSampleStore#addAll}.
+     *
+     * @param samples the samples, including the collection's own lag and duration metrics
+     */
+    void accept(MetricSampleStore samples);
+}
@@ -0,0 +1,120 @@
+package com.example.shelldemo.monitoring;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the collector names, metric names and tag sets of metric samples as small int ids, so a
+ * sample can be stored as primitives. A collector looks its ids up once, when it is created, and
+ * then emits samples without touching a string or a map. Ids are never reused or forgotten.
+ * <p>
+ * This class is thread-safe; looking up a known symbol takes no lock.
+ */
+public final class MetricSymbols {
+    /** The id of the empty tag set. */
+    public static final int NO_TAGS = 0;
+
+    private static final MetricSymbols SHARED = new MetricSymbols();
+
+    private final Table<String> names = new Table<>(new String[16]);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Table<Map<String, String>> tagSets = new Table<>((Map<String, String>[]) new Map[16]);
+
+    public MetricSymbols() {
+        tagSets.intern(Map.of());
+    }
+
+    /**
+     * Returns the symbols shared by the collectors and consumers of this process.
+     *
+     * @return the shared symbols
+     */
+    public static MetricSymbols shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the id of a collector or metric name, assigning one the first time it is seen.
+     *
+     * @param name the name
+     * @return the id
+     * @throws NullPointerException if name is null
+     */
+    public int name(String name) {
+        return names.intern(Objects.requireNonNull(name, "name cannot be null"));
+    }
+
+    /**
+     * Gets the id of a tag set, assigning one the first time it is seen.
+     *
+     * @param tags the tags; the map is copied
+     * @return the id, {@link #NO_TAGS} for an empty map
+     */
+    public int tags(Map<String, String> tags) {
+        return tags.isEmpty() ? NO_TAGS : tagSets.intern(Map.copyOf(tags));
+    }
+
+    /**
+     * Gets the name with an id.
+     *
+     * @param id the id from {@link #name}
+     * @return the name
+     * @throws IllegalArgumentException if no name has this id
+     */
+    public String nameOf(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Gets the tag set with an id.
+     *
+     * @param id the id from {@link #tags}
+     * @return the tags, unmodifiable
+     * @throws IllegalArgumentException if no tag set has this id
+     */
+    public Map<String, String> tagsOf(int id) {
+        return tagSets.get(id);
+    }
+
+    private static final class Table<T> {
+        private final Map<T, Integer> ids = new ConcurrentHashMap<>();
+        private volatile T[] values;
+        private int count;
+
+        Table(T[] values) {
+            this.values = values;
+        }
+
+        int intern(T value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            synchronized (this) {
+                id = ids.get(value);
+                if (id != null) {
+                    return id;
+                }
+                T[] current = values;
+                if (count == current.length) {
+                    current = Arrays.copyOf(current, count * 2);
+                }
+                current[count] = value;
+                // publish the array before the id, so whoever finds the id can resolve it
+                values = current;
+                ids.put(value, count);
+                return count++;
+            }
+        }
+
+        T get(int id) {
+            T[] current = values;
+            if (id < 0 || id >= current.length || current[id] == null) {
+                throw new IllegalArgumentException("Unknown symbol id: " + id);
+            }
+            return current[id];
+        }
+    }
+}
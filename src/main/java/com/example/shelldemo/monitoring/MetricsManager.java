@@ -5,84 +5,286 @@ import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Runs metric collectors, each on its own interval. A collection runs on a virtual thread, so a
+ * slow collector never holds up the others. A collection that overruns its timeout is abandoned, and
+ * a collector that fails or times out several times in a row is left out for a while (its circuit
+ * breaker opens) before it is tried again.
+ * <p>
+ * Besides a collector's own samples, every collection reports how late it started
+ * ({@code metrics.collection.lag}), how long it took ({@code metrics.collection.duration}), and how
+ * many collections so far timed out or were skipped because the previous one was still running,
+ * tagged with the collector name.
+ */
 public class MetricsManager {
     private static final Logger log = LoggerFactory.getLogger(MetricsManager.class);
+    private static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(1);
+    private static final int FAILURES_TO_OPEN = 3;
+    private static final Duration MIN_OPEN_DURATION = Duration.ofSeconds(30);
+    private static final int LAG = 0;
+    private static final int DURATION = 1;
+    private static final int TIMEOUTS = 2;
+    private static final int SKIPPED = 3;
+
     private final MeterRegistry registry;
-    private final List<MetricCollector> collectors;
+    private final List<ScheduledCollector> collectors;
     private final ScheduledExecutorService scheduler;
-    private boolean isRunning;
+    private final ExecutorService workers;
+    private final MetricSink sink;
+    private final MetricIds selfIds = new MetricIds("metrics", "metrics.collection.lag",
+        "metrics.collection.duration", "metrics.collection.timeouts", "metrics.collection.skipped");
+    private volatile boolean isRunning;
 
     public MetricsManager(MeterRegistry registry) {
+        this(registry, null);
+    }
+
+    /**
+     * Creates a manager that hands the samples of every collection to a sink, for instance a
+     * {@link MetricsPersistence} that writes them. The samples are handed over as they are stored,
+     * without turning each into an object.
+     *
+     * @param registry the registry the default collectors read
+     * @param sink where collected samples go, or {@code null} to only log them
+     */
+    public MetricsManager(MeterRegistry registry, MetricSink sink) {
         this.registry = registry;
-        this.collectors = new ArrayList<>();
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.sink = sink;
+        this.collectors = new CopyOnWriteArrayList<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("metrics-collector-", 1).factory());
         this.isRunning = false;
     }
 
-    public void start() {
+    public synchronized void start() {
         if (isRunning) {
             return;
         }
 
         // Add default collectors
-        collectors.add(new SystemMetricsCollector(registry));
-        collectors.add(new CommandMetricsCollector(registry));
-        collectors.add(new JvmMetricsCollector(registry));
+        addCollector(new SystemMetricsCollector(registry));
+        addCollector(new CommandMetricsCollector(registry));
+        addCollector(new JvmMetricsCollector(registry));
 
         // Schedule metric collection
-        scheduler.scheduleAtFixedRate(this::collectMetrics, 0, 1, TimeUnit.SECONDS);
         isRunning = true;
+        collectors.forEach(this::schedule);
         log.info("Metrics collection started");
     }
 
-    public void stop() {
+    public synchronized void stop() {
         if (!isRunning) {
             return;
         }
 
-        scheduler.shutdown();
+        isRunning = false;
+        scheduler.shutdownNow();
+        workers.shutdown();
         try {
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
             }
         } catch (InterruptedException e) {
-            scheduler.shutdownNow();
+            workers.shutdownNow();
             Thread.currentThread().interrupt();
         }
-        isRunning = false;
         log.info("Metrics collection stopped");
     }
 
-    private void collectMetrics() {
+    private void schedule(ScheduledCollector collector) {
+        long intervalNanos = collector.interval.toNanos();
+        collector.nextDue = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> dispatch(collector), 0, intervalNanos,
+            TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts a collection on a worker when the collector is due, unless the previous collection is
+     * still running or the collector's circuit breaker is open. Runs on the scheduler thread.
+     */
+    private void dispatch(ScheduledCollector collector) {
+        long scheduledAt = collector.nextDue;
+        collector.nextDue += collector.interval.toNanos();
+        if (!collector.running.compareAndSet(false, true)) {
+            collector.skipped++;
+            log.debug("Skipping collection of {}: the previous one is still running", collector.name());
+            return;
+        }
+        if (!collector.breakerAllows(System.nanoTime())) {
+            collector.running.set(false);
+            return;
+        }
+        Attempt attempt = new Attempt(collector, collector.store, scheduledAt);
+        Future<?> run = workers.submit(() -> collect(attempt));
+        scheduler.schedule(() -> timeOut(attempt, run), collector.timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void collect(Attempt attempt) {
+        ScheduledCollector collector = attempt.collector;
+        long start = System.nanoTime();
+        MetricSampleStore samples = attempt.samples;
+        samples.clear();
         try {
-            for (MetricCollector collector : collectors) {
-                MetricEvent.Builder builder = new MetricEvent.Builder();
-                collector.collect(builder);
-                MetricEvent event = builder.build();
-                processEvent(event);
+            collector.collector.collect(samples);
+            if (attempt.settled.compareAndSet(false, true)) {
+                long now = MetricSampleStore.epochNanos();
+                long end = System.nanoTime();
+                int tags = collector.tags;
+                selfIds.add(samples, LAG, tags, now, (start - attempt.scheduledAt) / 1_000_000.0);
+                selfIds.add(samples, DURATION, tags, now, (end - start) / 1_000_000.0);
+                selfIds.add(samples, TIMEOUTS, tags, now, collector.timeouts);
+                selfIds.add(samples, SKIPPED, tags, now, collector.skipped);
+                collector.succeeded();
+                processSamples(samples);
+                collector.running.set(false);
+            }
+        } catch (Exception | LinkageError e) {
+            if (attempt.settled.compareAndSet(false, true)) {
+                log.error("Error collecting metrics from {}", collector.name(), e);
+                collector.failed(System.nanoTime());
+                collector.running.set(false);
             }
-        } catch (Exception e) {
-            log.error("Error collecting metrics", e);
         }
     }
 
-    private void processEvent(MetricEvent event) {
-        // Process the metric event (e.g., store in database, send to monitoring system)
-        log.debug("Processing metric event: {}", event);
+    private void timeOut(Attempt attempt, Future<?> run) {
+        if (!attempt.settled.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledCollector collector = attempt.collector;
+        run.cancel(true);
+        collector.timeouts++;
+        log.warn("Collection of {} timed out after {} ms", collector.name(), collector.timeout.toMillis());
+        // the abandoned collection may still be writing to its store
+        collector.store = new MetricSampleStore();
+        collector.failed(System.nanoTime());
+        collector.running.set(false);
     }
 
+    private void processSamples(MetricSampleStore collected) {
+        if (sink != null) {
+            sink.accept(collected);
+        }
+        if (log.isDebugEnabled()) {
+            MetricSymbols symbols = collected.symbols();
+            for (int i = 0; i < collected.size(); i++) {
+                log.debug("Processing metric sample: {} {} = {}", symbols.nameOf(collected.collector(i)),
+                    symbols.nameOf(collected.name(i)), collected.value(i));
+            }
+        }
+    }
+
+    /**
+     * Adds a collector that runs every second and times out after a second.
+     *
+     * @param collector the collector
+     */
     public void addCollector(MetricCollector collector) {
-        collectors.add(collector);
+        addCollector(collector, DEFAULT_INTERVAL, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Adds a collector with its own schedule. A collector added while metrics collection is
+     * running starts right away.
+     *
+     * @param collector the collector
+     * @param interval how often the collector runs
+     * @param timeout how long a collection may take before it is abandoned
+     * @throws IllegalArgumentException if interval or timeout is not positive
+     */
+    public synchronized void addCollector(MetricCollector collector, Duration interval, Duration timeout) {
+        if (interval.isNegative() || interval.isZero() || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("interval and timeout must be positive");
+        }
+        ScheduledCollector scheduled = new ScheduledCollector(collector, interval, timeout);
+        collectors.add(scheduled);
+        if (isRunning) {
+            schedule(scheduled);
+        }
     }
 
     public void loadCustomCollectors() {
         // Load custom collectors from configuration or classpath
         // This is a placeholder for actual implementation
     }
-}
\ No newline at end of file
+
+    /**
+     * A collector with its schedule and circuit breaker. The scheduling fields are only touched by
+     * the scheduler thread and by the one collection that holds {@code running}.
+     */
+    private static final class ScheduledCollector {
+        private final MetricCollector collector;
+        private final Duration interval;
+        private final Duration timeout;
+        private final long openNanos;
+        private final int tags;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile MetricSampleStore store = new MetricSampleStore();
+        private volatile long timeouts;
+        private volatile long skipped;
+        private volatile int consecutiveFailures;
+        private volatile long openUntil;
+        private long nextDue;
+
+        ScheduledCollector(MetricCollector collector, Duration interval, Duration timeout) {
+            this.collector = collector;
+            this.interval = interval;
+            this.timeout = timeout;
+            this.openNanos = Math.max(MIN_OPEN_DURATION.toNanos(), interval.toNanos() * 10);
+            this.tags = MetricSymbols.shared().tags(Map.of("collector", collector.getName()));
+        }
+
+        String name() {
+            return collector.getName();
+        }
+
+        /**
+         * Tells whether the breaker lets a collection run. Once it has been open long enough, one
+         * collection is let through to try the collector again.
+         */
+        boolean breakerAllows(long now) {
+            return consecutiveFailures < FAILURES_TO_OPEN || now - openUntil >= 0;
+        }
+
+        void succeeded() {
+            if (consecutiveFailures >= FAILURES_TO_OPEN) {
+                log.info("Collector {} recovered, closing its circuit breaker", name());
+            }
+            consecutiveFailures = 0;
+        }
+
+        void failed(long now) {
+            consecutiveFailures++;
+            if (consecutiveFailures >= FAILURES_TO_OPEN) {
+                openUntil = now + openNanos;
+                log.warn("Collector {} failed {} times in a row, pausing it for {} s", name(),
+                    consecutiveFailures, TimeUnit.NANOSECONDS.toSeconds(openNanos));
+            }
+        }
+    }
+
+    /**
+     * One collection; whichever of the collection and its timeout settles it first decides the outcome.
+     */
+    private record Attempt(ScheduledCollector collector, MetricSampleStore samples, long scheduledAt,
+            AtomicBoolean settled) {
+        Attempt(ScheduledCollector collector, MetricSampleStore samples, long scheduledAt) {
+            this(collector, samples, scheduledAt, new AtomicBoolean());
+        }
+    }
+}
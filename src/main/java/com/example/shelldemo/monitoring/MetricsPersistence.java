@@ -2,30 +2,501 @@ package com.example.shelldemo.monitoring;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
-public class MetricsPersistence {
+/**
+ * Writes metric samples to the {@code metrics} table behind the backs of the threads that report
+ * them. A {@link MetricsManager} hands over the samples of each collection as primitives through
+ * {@link #accept}; single events can be queued with {@link #saveMetric}. A writer thread takes what
+ * has been reported, inserts it in batches with one reused prepared statement and commits once per
+ * batch. When the event buffer is full because the database cannot keep up, {@link #saveMetric}
+ * waits for space; samples that do not fit are dropped.
+ * <p>
+ * The {@code name} column holds the metric name followed by its tags, as in
+ * {@code metrics.collection.lag{collector=jvm}}, so samples that differ only in their tags stay apart.
+ * <p>
+ * A batch that cannot be written because the database is unreachable or busy is spilled to a file
+ * in the spill directory, if there is one, and written again, oldest first, once the database accepts
+ * writes; until then new batches are spilled too, without trying the database more often than every
+ * few seconds. After a connection failure the connection is closed and a new one is opened for the
+ * next attempt. A batch or spill file the database rejects for its data is kept as a {@code .failed}
+ * file instead, so it cannot hold up the batches after it. Any other failure of a batch is logged
+ * and the batch dropped, so the writer keeps draining the buffer that producers may be waiting on.
+ */
+public final class MetricsPersistence implements MetricSink, AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(MetricsPersistence.class);
-    private final Connection connection;
+    private static final String INSERT_SQL = "INSERT INTO metrics (name, value, timestamp) VALUES (?, ?, ?)";
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+    private static final String SPILL_SUFFIX = ".spill";
+    private static final String FAILED_SUFFIX = ".failed";
+
+    private final ConnectionSource connections;
+    private final MetricBuffer buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Path spillDirectory;
+    private final Thread writer;
+    private final MetricSymbols symbols = MetricSymbols.shared();
+    private final int unknownCollector = symbols.name("");
+    private final Object pendingLock = new Object();
+    private final MetricSampleStore replay = new MetricSampleStore();
+    private final Consumer<MetricEvent> addEvent = this::addEvent;
+    private MetricSampleStore pending = new MetricSampleStore();
+    private volatile int pendingSize;
+    private long droppedSamples;
+    private MetricSampleStore batch = new MetricSampleStore();
+    private String[][] qualifiedNames = new String[16][];
+    private long spillSequence;
+    private Connection connection;
+    private PreparedStatement insert;
+    private long retryDelayNanos;
+    private long retryAt;
+    private long dropped;
+    private volatile boolean closed;
 
-    public MetricsPersistence(Connection connection) {
-        this.connection = connection;
+    public MetricsPersistence(ConnectionSource connections) {
+        this(connections, new MetricBuffer(10000, MetricBuffer.OverflowPolicy.BLOCK), DEFAULT_BATCH_SIZE,
+            DEFAULT_FLUSH_INTERVAL, null);
+    }
+
+    /**
+     * Creates a persister and starts its writer thread.
+     *
+     * @param connections opens the connection the metrics are written on, again after it failed,
+     *     for instance {@code dataSource::getConnection}; the connection is switched to manual commit
+     * @param buffer the queue of events to write; {@link MetricBuffer.OverflowPolicy#BLOCK} makes
+     *     producers wait for the database instead of losing events. Its size also bounds the
+     *     samples waiting to be written.
+     * @param batchSize the most samples inserted per batch
+     * @param flushInterval the longest a sample waits for its batch to fill up
+     * @param spillDirectory where batches that could not be written are kept, or {@code null} to drop them
+     * @throws IllegalArgumentException if batchSize is less than 1 or flushInterval is not positive
+     */
+    public MetricsPersistence(ConnectionSource connections, MetricBuffer buffer, int batchSize,
+            Duration flushInterval, Path spillDirectory) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("flushInterval must be positive");
+        }
+        this.connections = connections;
+        this.buffer = buffer;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.spillDirectory = spillDirectory;
+        this.retryAt = System.nanoTime();
+        this.writer = new Thread(this::writeLoop, "metrics-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
     }
 
+    /**
+     * Queues a metric event for writing, waiting while the buffer is full if it blocks on overflow.
+     *
+     * @param event the event
+     */
     public void saveMetric(MetricEvent event) {
-        String sql = "INSERT INTO metrics (name, value, timestamp) VALUES (?, ?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, event.getName());
-            stmt.setDouble(2, event.getValue());
-            stmt.setTimestamp(3, Timestamp.from(Instant.now()));
-            stmt.executeUpdate();
-            log.debug("Saved metric: {}", event);
+        if (closed) {
+            throw new IllegalStateException("MetricsPersistence is closed");
+        }
+        buffer.add(event);
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Queues the samples of one collection for writing. The samples are copied, so the store can be
+     * reused as soon as this returns. When as many samples as the buffer holds are already waiting,
+     * the collection is dropped.
+     *
+     * @param samples the samples
+     */
+    @Override
+    public void accept(MetricSampleStore samples) {
+        if (closed) {
+            throw new IllegalStateException("MetricsPersistence is closed");
+        }
+        int queued;
+        synchronized (pendingLock) {
+            if (pending.size() + samples.size() > buffer.getMaxSize()) {
+                droppedSamples += samples.size();
+                return;
+            }
+            pending.addAll(samples);
+            queued = pending.size();
+            pendingSize = queued;
+        }
+        if (queued >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Gets the buffer the writer drains, for producers that add events to it directly.
+     *
+     * @return the buffer
+     */
+    public MetricBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Stops accepting events, writes what is queued and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("Metrics writer did not finish within 30 s; {} samples were not written",
+                buffer.size() + pendingSize);
+        }
+    }
+
+    private void writeLoop() {
+        long lastFlush = System.nanoTime();
+        while (!closed || queued() > 0) {
+            long waited = System.nanoTime() - lastFlush;
+            if (!closed && queued() < batchSize && waited < flushIntervalNanos) {
+                LockSupport.parkNanos(this, flushIntervalNanos - waited);
+                continue;
+            }
+            int from = 0;
+            try {
+                takeQueued();
+                for (; from < batch.size(); from += batchSize) {
+                    writeOrSpill(batch, from, Math.min(batch.size(), from + batchSize));
+                }
+            } catch (RuntimeException e) {
+                // the writer is the only thread draining the buffer, so it must outlive a bad batch
+                dropped += batch.size() - from;
+                log.error("Metrics writer failed, dropping {} samples", batch.size() - from, e);
+            }
+            lastFlush = System.nanoTime();
+        }
+        closeConnection();
+        synchronized (pendingLock) {
+            dropped += droppedSamples;
+        }
+        if (dropped > 0) {
+            log.warn("Dropped {} metric samples that could not be written", dropped);
+        }
+    }
+
+    private int queued() {
+        return buffer.size() + pendingSize;
+    }
+
+    /**
+     * Moves the queued samples and events into the batch, swapping the sample stores so reporting
+     * threads fill the emptied one meanwhile.
+     */
+    private void takeQueued() {
+        batch.clear();
+        synchronized (pendingLock) {
+            MetricSampleStore taken = pending;
+            pending = batch;
+            batch = taken;
+            pendingSize = 0;
+        }
+        buffer.drainTo(addEvent, buffer.getMaxSize());
+    }
+
+    private void addEvent(MetricEvent event) {
+        Instant timestamp = event.getTimestamp() != null ? event.getTimestamp() : Instant.now();
+        batch.add(event.getCollector() != null ? symbols.name(event.getCollector()) : unknownCollector,
+            symbols.name(event.getName()),
+            event.getTags() == null || event.getTags().isEmpty() ? MetricSymbols.NO_TAGS : symbols.tags(event.getTags()),
+            timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano(), event.getValue());
+    }
+
+    private void writeOrSpill(MetricSampleStore samples, int from, int to) {
+        if (System.nanoTime() - retryAt >= 0) {
+            try {
+                replaySpilled();
+                write(samples, from, to);
+                retryDelayNanos = 0;
+                return;
+            } catch (SQLException e) {
+                if (!isRetryable(e)) {
+                    log.error("The database rejected {} metrics, keeping them apart: {}", to - from, e.getMessage());
+                    spill(samples, from, to, FAILED_SUFFIX);
+                    return;
+                }
+                retryDelayNanos = Math.min(MAX_RETRY_DELAY.toNanos(),
+                    Math.max(TimeUnit.SECONDS.toNanos(1), retryDelayNanos * 2));
+                retryAt = System.nanoTime() + retryDelayNanos;
+                log.error("Failed to save {} metrics, retrying in {} s: {}", to - from,
+                    TimeUnit.NANOSECONDS.toSeconds(retryDelayNanos), e.getMessage());
+            }
+        }
+        spill(samples, from, to, SPILL_SUFFIX);
+    }
+
+    /**
+     * Tells whether a failure may go away by itself: the connection broke or the database was
+     * unreachable, busy or timed out. Anything else, such as a constraint violation or a value
+     * that does not fit its column, fails again on every attempt with the same data.
+     */
+    static boolean isRetryable(SQLException e) {
+        return isConnectionFailure(e) || e instanceof SQLTransientException
+            || e.getSQLState() != null && e.getSQLState().startsWith("40");
+    }
+
+    /**
+     * Tells whether a failure left the connection unusable, so a new one has to be opened.
+     */
+    static boolean isConnectionFailure(SQLException e) {
+        return e instanceof SQLNonTransientConnectionException || e instanceof SQLRecoverableException
+            || e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    /**
+     * Inserts samples in JDBC batches of at most {@code batchSize} and commits them together, so a
+     * spill file is either written completely or not at all.
+     */
+    private void write(MetricSampleStore samples, int from, int to) throws SQLException {
+        if (connection == null) {
+            open();
+        }
+        try {
+            if (insert == null) {
+                insert = connection.prepareStatement(INSERT_SQL);
+            }
+            int batched = 0;
+            for (int i = from; i < to; i++) {
+                insert.setString(1, qualifiedName(samples.name(i), samples.tags(i)));
+                insert.setDouble(2, samples.value(i));
+                insert.setTimestamp(3, timestamp(samples.timestamp(i)));
+                insert.addBatch();
+                if (++batched == batchSize) {
+                    insert.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                insert.executeBatch();
+            }
+            connection.commit();
+            log.debug("Saved {} metrics", to - from);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            // prepare again on the next attempt, the statement may belong to a broken session
+            closeStatement();
+            if (e instanceof SQLException sqlException && isConnectionFailure(sqlException)) {
+                closeConnection();
+            }
+            throw e;
+        }
+    }
+
+    private void open() throws SQLException {
+        try {
+            connection = connections.open();
+            connection.setAutoCommit(false);
         } catch (SQLException e) {
-            log.error("Failed to save metric: {}", event, e);
+            closeConnection();
+            // however the driver reports it, a connection that cannot be opened is worth retrying
+            throw isConnectionFailure(e) ? e
+                : new SQLNonTransientConnectionException("Cannot open the metrics connection: " + e.getMessage(),
+                    "08001", e);
         }
     }
-} 
\ No newline at end of file
+
+    private static Timestamp timestamp(long epochNanos) {
+        Timestamp timestamp = new Timestamp(Math.floorDiv(epochNanos, 1_000_000_000L) * 1000);
+        timestamp.setNanos((int) Math.floorMod(epochNanos, 1_000_000_000L));
+        return timestamp;
+    }
+
+    /**
+     * Gets the name a sample is stored under: the metric name, followed by its tags sorted by key.
+     * The names are built once per metric and tag set.
+     */
+    private String qualifiedName(int name, int tags) {
+        if (tags == MetricSymbols.NO_TAGS) {
+            return symbols.nameOf(name);
+        }
+        if (tags >= qualifiedNames.length) {
+            qualifiedNames = Arrays.copyOf(qualifiedNames, Math.max(tags + 1, qualifiedNames.length * 2));
+        }
+        String[] names = qualifiedNames[tags];
+        if (names == null || name >= names.length) {
+            names = names == null ? new String[Math.max(16, name + 1)]
+                : Arrays.copyOf(names, Math.max(name + 1, names.length * 2));
+            qualifiedNames[tags] = names;
+        }
+        if (names[name] == null) {
+            StringBuilder qualified = new StringBuilder(symbols.nameOf(name)).append('{');
+            for (Map.Entry<String, String> tag : new TreeMap<>(symbols.tagsOf(tags)).entrySet()) {
+                if (qualified.charAt(qualified.length() - 1) != '{') {
+                    qualified.append(',');
+                }
+                qualified.append(tag.getKey()).append('=').append(tag.getValue());
+            }
+            names[name] = qualified.append('}').toString();
+        }
+        return names[name];
+    }
+
+    private void spill(MetricSampleStore samples, int from, int to, String suffix) {
+        if (spillDirectory == null) {
+            dropped += to - from;
+            return;
+        }
+        Path file = spillDirectory.resolve(String.format("metrics-%d-%06d%s", System.currentTimeMillis(),
+            ++spillSequence, suffix));
+        try {
+            Files.createDirectories(spillDirectory);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (int i = from; i < to; i++) {
+                    long nanos = samples.timestamp(i);
+                    out.write(Math.floorDiv(nanos, 1_000_000_000L) + "\t" + Math.floorMod(nanos, 1_000_000_000L)
+                        + "\t" + samples.value(i) + "\t" + qualifiedName(samples.name(i), samples.tags(i)));
+                    out.newLine();
+                }
+            }
+            Files.move(temp, file);
+            log.debug("Spilled {} metrics to {}", to - from, file);
+        } catch (IOException e) {
+            dropped += to - from;
+            log.error("Failed to spill {} metrics to {}: {}", to - from, spillDirectory, e.getMessage());
+        }
+    }
+
+    private void replaySpilled() throws SQLException {
+        if (spillDirectory == null || !Files.isDirectory(spillDirectory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(spillDirectory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SPILL_SUFFIX)).sorted().toList();
+        } catch (IOException e) {
+            log.warn("Cannot list spilled metrics in {}: {}", spillDirectory, e.getMessage());
+            return;
+        }
+        for (Path file : files) {
+            try {
+                readSpilled(file);
+            } catch (IOException | RuntimeException e) {
+                log.error("Spill file {} is unreadable: {}", file, e.getMessage());
+                quarantine(file);
+                continue;
+            }
+            try {
+                write(replay, 0, replay.size());
+            } catch (SQLException e) {
+                if (isRetryable(e)) {
+                    throw e;
+                }
+                log.error("The database rejected the spilled metrics in {}: {}", file, e.getMessage());
+                quarantine(file);
+                continue;
+            }
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                // written twice rather than lost if the file comes back on the next replay
+                log.error("Wrote spilled metrics from {} but could not delete it: {}", file, e.getMessage());
+            }
+            log.info("Wrote {} spilled metrics from {}", replay.size(), file);
+        }
+    }
+
+    /**
+     * Renames a spill file that can never be written to {@code .failed}, so later replays skip it.
+     */
+    private void quarantine(Path file) {
+        String name = file.getFileName().toString();
+        Path failed = file.resolveSibling(name.substring(0, name.length() - SPILL_SUFFIX.length()) + FAILED_SUFFIX);
+        try {
+            Files.move(file, failed);
+            log.warn("Moved {} to {}", file, failed);
+        } catch (IOException e) {
+            log.error("Could not move {} aside: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a spill file into the replay store. The names in the file already carry their tags.
+     */
+    private void readSpilled(Path file) throws IOException {
+        replay.clear();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] fields = line.split("\t", 4);
+                replay.add(unknownCollector, symbols.name(fields[3]), MetricSymbols.NO_TAGS,
+                    Long.parseLong(fields[0]) * 1_000_000_000L + Long.parseLong(fields[1]),
+                    Double.parseDouble(fields[2]));
+            }
+        }
+    }
+
+    private void closeStatement() {
+        if (insert != null) {
+            try {
+                insert.close();
+            } catch (SQLException e) {
+                log.debug("Failed to close metrics statement: {}", e.getMessage());
+            }
+            insert = null;
+        }
+    }
+
+    private void closeConnection() {
+        closeStatement();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("Failed to close metrics connection: {}", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+
+    /**
+     * Opens connections for the persister.
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.shelldemo.monitoring;
 
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,7 +8,9 @@ import org.slf4j.LoggerFactory;
 public class SystemMetricsCollector implements MetricCollector {
     private static final Logger log = LoggerFactory.getLogger(SystemMetricsCollector.class);
     private static final String COLLECTOR_NAME = "system";
+    private static final String[] GAUGES = {"system.cpu.usage", "system.memory.used", "system.disk.usage"};
     private final MeterRegistry registry;
+    private final MetricIds ids = new MetricIds(COLLECTOR_NAME, GAUGES);
 
     public SystemMetricsCollector(MeterRegistry registry) {
         this.registry = registry;
@@ -19,21 +22,17 @@ public class SystemMetricsCollector implements MetricCollector {
     }
 
     @Override
-    public void collect(MetricEvent.Builder builder) {
+    public void collect(MetricSampleStore samples) {
         try {
-            builder.collector(COLLECTOR_NAME)
-                   .name("system.cpu.usage")
-                   .value(registry.get("system.cpu.usage").gauge().value());
-            
-            builder.collector(COLLECTOR_NAME)
-                   .name("system.memory.used")
-                   .value(registry.get("system.memory.used").gauge().value());
-            
-            builder.collector(COLLECTOR_NAME)
-                   .name("system.disk.usage")
-                   .value(registry.get("system.disk.usage").gauge().value());
+            long now = MetricSampleStore.epochNanos();
+            for (int i = 0; i < GAUGES.length; i++) {
+                Gauge gauge = registry.find(GAUGES[i]).gauge();
+                if (gauge != null) {
+                    ids.add(samples, i, now, gauge.value());
+                }
+            }
         } catch (Exception e) {
             log.error("Failed to collect system metrics for collector {}: {}", COLLECTOR_NAME, e.getMessage(), e);
         }
     }
-} 
\ No newline at end of file
+}
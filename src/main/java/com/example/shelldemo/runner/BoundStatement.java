@@ -0,0 +1,30 @@
+package com.example.shelldemo.runner;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A script statement ready for execution: either the raw statement text, or a normalized
+ * SQL shape with {@code ?} placeholders plus the literal values that were lifted out of it.
+ *
+ * @param text the statement as it appeared in the script, used for logging and error reporting
+ * @param sql the SQL sent to the database
+ * @param parameters the bind values for the placeholders in {@code sql}, empty for raw statements
+ */
+record BoundStatement(String text, String sql, List<Object> parameters) {
+
+    static BoundStatement raw(String sql) {
+        return new BoundStatement(sql, sql, List.of());
+    }
+
+    boolean isParameterized() {
+        return !parameters.isEmpty();
+    }
+
+    void bindTo(PreparedStatement stmt) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            stmt.setObject(i + 1, parameters.get(i));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.shelldemo.runner;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calls a stored procedure once per row of a CSV parameter file without paying a round trip per
+ * row. The header names the parameters, as {@code name} or {@code name:type}, and every following
+ * row holds the values of one call; an empty field is NULL.
+ * <p>
+ * When every parameter of the procedure is a collection, as with Oracle VARRAY or nested table
+ * parameters and PostgreSQL array parameters, a whole chunk of rows is bound as one array per
+ * parameter and sent in a single call. Otherwise the calls are sent as JDBC batches. Either way
+ * the calls are committed every {@code commitEvery} rows, so a failure only rolls back the rows
+ * since the last commit.
+ */
+class BulkProcedureCaller {
+    private static final Logger log = LoggerFactory.getLogger(BulkProcedureCaller.class);
+
+    private final Connection connection;
+    private final int batchSize;
+    private final int commitEvery;
+
+    /**
+     * @param connection the connection to call on
+     * @param batchSize the rows sent per round trip
+     * @param commitEvery the rows per transaction, rounded up to whole batches
+     */
+    BulkProcedureCaller(Connection connection, int batchSize, int commitEvery) {
+        if (batchSize < 1 || commitEvery < 1) {
+            throw new IllegalArgumentException("batchSize and commitEvery must be at least 1");
+        }
+        this.connection = connection;
+        this.batchSize = batchSize;
+        this.commitEvery = commitEvery;
+    }
+
+    /**
+     * Calls a procedure for every row of a parameter file.
+     *
+     * @param name the procedure name, optionally qualified
+     * @param paramFile the CSV parameter file
+     * @return the number of rows called
+     * @throws SQLException if a call fails; the rows of earlier transactions stay committed
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file does not fit the procedure
+     */
+    long call(String name, Path paramFile) throws SQLException, IOException {
+        try (CsvRecordReader reader = CsvRecordReader.open(paramFile)) {
+            String[] header = reader.next();
+            if (header == null) {
+                throw new IOException("Parameter file is empty: " + paramFile);
+            }
+            List<RunnerDatabase.ProcedureParam> fields = parseHeader(header);
+            ProcedureSignature signature = ProcedureSignature.describe(connection, name, false, fields.size());
+            if (signature == null) {
+                log.debug("No parameter metadata for {}, using the types of the parameter file header", name);
+                signature = declaredSignature(name, fields);
+            }
+            int[] fieldIndexes = fieldIndexes(signature, fields);
+            boolean arrays = !signature.parameters().isEmpty()
+                && signature.parameters().stream().allMatch(parameter -> parameter.sqlType() == Types.ARRAY);
+
+            boolean originalAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (CallableStatement stmt = connection.prepareCall(signature.callString())) {
+                return callRows(reader, stmt, signature, fieldIndexes, arrays, header.length);
+            } catch (SQLException | IOException | RuntimeException e) {
+                // restoring auto-commit below would otherwise commit the rows since the last commit
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(originalAutoCommit);
+            }
+        }
+    }
+
+    private long callRows(CsvRecordReader reader, CallableStatement stmt, ProcedureSignature signature,
+            int[] fieldIndexes, boolean arrays, int fieldCount) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        long committed = 0;
+        long roundTrips = 0;
+        List<String[]> chunk = new ArrayList<>(batchSize);
+        for (String[] row = reader.next(); row != null; row = reader.next()) {
+            if (row.length != fieldCount) {
+                throw new IllegalArgumentException("Line " + reader.getLineNumber() + " has " + row.length
+                    + " fields but the header has " + fieldCount);
+            }
+            chunk.add(row);
+            if (chunk.size() == batchSize) {
+                roundTrips += send(stmt, signature, fieldIndexes, arrays, chunk, rows);
+                rows += chunk.size();
+                chunk.clear();
+                if (rows - committed >= commitEvery) {
+                    connection.commit();
+                    committed = rows;
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            roundTrips += send(stmt, signature, fieldIndexes, arrays, chunk, rows);
+            rows += chunk.size();
+        }
+        connection.commit();
+        log.info("Called {} for {} rows in {} round trips ({} ms)", signature.name(), rows, roundTrips,
+            (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    private int send(CallableStatement stmt, ProcedureSignature signature, int[] fieldIndexes, boolean arrays,
+            List<String[]> chunk, long firstRow) throws SQLException {
+        try {
+            if (arrays) {
+                bindArrays(stmt, signature, fieldIndexes, chunk);
+                stmt.execute();
+            } else {
+                bindBatch(stmt, signature, fieldIndexes, chunk, firstRow);
+                stmt.executeBatch();
+            }
+            return 1;
+        } catch (SQLException e) {
+            throw new SQLException("Calling " + signature.name() + " for rows " + (firstRow + 1) + " to "
+                + (firstRow + chunk.size()) + " failed: " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+        }
+    }
+
+    private static void bindBatch(CallableStatement stmt, ProcedureSignature signature, int[] fieldIndexes,
+            List<String[]> chunk, long firstRow) throws SQLException {
+        List<ProcedureSignature.Parameter> parameters = signature.parameters();
+        for (int r = 0; r < chunk.size(); r++) {
+            String[] row = chunk.get(r);
+            for (int p = 0; p < parameters.size(); p++) {
+                String value = row[fieldIndexes[p]];
+                try {
+                    SqlValueBinder.bind(stmt, p + 1, value, parameters.get(p).sqlType());
+                } catch (IllegalArgumentException e) {
+                    throw new SQLException("Invalid value '" + value + "' for parameter "
+                        + parameters.get(p).name() + " in row " + (firstRow + r + 1), e);
+                }
+            }
+            stmt.addBatch();
+        }
+    }
+
+    private void bindArrays(CallableStatement stmt, ProcedureSignature signature, int[] fieldIndexes,
+            List<String[]> chunk) throws SQLException {
+        List<ProcedureSignature.Parameter> parameters = signature.parameters();
+        for (int p = 0; p < parameters.size(); p++) {
+            Object[] values = new Object[chunk.size()];
+            for (int r = 0; r < chunk.size(); r++) {
+                String value = chunk.get(r)[fieldIndexes[p]];
+                values[r] = value.isEmpty() ? null : value;
+            }
+            stmt.setArray(p + 1, createArray(parameters.get(p).typeName(), values));
+        }
+    }
+
+    /**
+     * Creates a collection value. Oracle's driver does not implement {@link Connection#createArrayOf}
+     * and needs the collection type itself, which it only accepts through its own connection interface.
+     */
+    private Array createArray(String typeName, Object[] values) throws SQLException {
+        Object physical = DialectBulkPath.driverConnection(connection, "oracle.jdbc.OracleConnection");
+        Class<?> oracleConnection;
+        try {
+            oracleConnection = Class.forName("oracle.jdbc.OracleConnection", false, physical.getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            oracleConnection = null;
+        }
+        if (oracleConnection != null && oracleConnection.isInstance(physical)) {
+            try {
+                Method create = oracleConnection.getMethod("createOracleArray", String.class, Object.class);
+                return (Array) create.invoke(physical, typeName, values);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException sqlException) {
+                    throw sqlException;
+                }
+                throw new SQLException("Could not create array of " + typeName, e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new SQLException("Could not create array of " + typeName, e);
+            }
+        }
+        // PostgreSQL reports array types as their element type with a leading underscore
+        String elementType = typeName != null && typeName.startsWith("_") ? typeName.substring(1) : typeName;
+        return connection.createArrayOf(elementType, values);
+    }
+
+    private static List<RunnerDatabase.ProcedureParam> parseHeader(String[] header) {
+        List<RunnerDatabase.ProcedureParam> fields = new ArrayList<>();
+        for (String field : header) {
+            String[] parts = field.trim().split(":", 2);
+            if (parts[0].isEmpty()) {
+                throw new IllegalArgumentException("Empty parameter name in the parameter file header");
+            }
+            fields.add(new RunnerDatabase.ProcedureParam(parts[0], parts.length == 2 ? parts[1] : "VARCHAR", null));
+        }
+        return fields;
+    }
+
+    private static ProcedureSignature declaredSignature(String name, List<RunnerDatabase.ProcedureParam> fields) {
+        List<ProcedureSignature.Parameter> parameters = new ArrayList<>();
+        for (RunnerDatabase.ProcedureParam field : fields) {
+            parameters.add(new ProcedureSignature.Parameter(field.getName(), ProcedureSignature.Mode.IN,
+                StoredProcedureCaller.sqlTypeOf(field.getType()), field.getType()));
+        }
+        return new ProcedureSignature(name, false, parameters, null);
+    }
+
+    private static int[] fieldIndexes(ProcedureSignature signature, List<RunnerDatabase.ProcedureParam> fields) {
+        List<RunnerDatabase.ProcedureParam> ordered = StoredProcedureCaller.matchParameters(signature, fields);
+        List<ProcedureSignature.Parameter> parameters = signature.parameters();
+        int[] indexes = new int[parameters.size()];
+        for (int p = 0; p < parameters.size(); p++) {
+            ProcedureSignature.Parameter parameter = parameters.get(p);
+            String parameterName = parameter.name() != null ? parameter.name() : "#" + (p + 1);
+            if (parameter.mode().isOutput()) {
+                throw new IllegalArgumentException("Parameter " + parameterName + " of " + signature.name()
+                    + " is an output parameter, which batched calls cannot return");
+            }
+            if (ordered.get(p) == null) {
+                throw new IllegalArgumentException("The parameter file has no field for parameter " + parameterName
+                    + " of " + signature.name());
+            }
+            indexes[p] = fields.indexOf(ordered.get(p));
+        }
+        return indexes;
+    }
+}
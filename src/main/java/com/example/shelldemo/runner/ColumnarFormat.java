@@ -0,0 +1,101 @@
+package com.example.shelldemo.runner;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.Types;
+
+/**
+ * Constants and encoding helpers shared by {@link ColumnarResultWriter} and {@link ColumnarReader}.
+ * <p>
+ * File layout:
+ * <pre>
+ * header   int magic "SCOL", byte version, varint column count,
+ *          per column: UTF name, byte {@link ColumnType} ordinal
+ * block*   varint row count (&gt; 0), varint payload length, varint compressed length, deflated payload
+ * trailer  varint 0, long total row count
+ * </pre>
+ * A block payload holds each column in turn: a null bitmap with one bit per row, followed by the
+ * non-null values. Integers and timestamps are delta-encoded zigzag varints, strings are either dictionary
+ * encoded within the block or written as plain length-prefixed UTF-8.
+ */
+final class ColumnarFormat {
+    static final int MAGIC = 0x53434F4C;
+    static final int VERSION = 1;
+    static final int DEFAULT_BLOCK_ROWS = 8192;
+
+    static final byte PLAIN_STRINGS = 0;
+    static final byte DICTIONARY_STRINGS = 1;
+
+    private ColumnarFormat() {
+    }
+
+    /**
+     * The storage type of a column.
+     */
+    enum ColumnType {
+        BOOLEAN, LONG, DOUBLE, DECIMAL, STRING, TIMESTAMP, BYTES;
+
+        /**
+         * Picks the storage type for a JDBC column.
+         *
+         * @param sqlType the {@link Types} constant
+         * @param precision the declared precision
+         * @param scale the declared scale
+         * @return the storage type
+         */
+        static ColumnType forJdbcType(int sqlType, int precision, int scale) {
+            return switch (sqlType) {
+                case Types.BIT, Types.BOOLEAN -> BOOLEAN;
+                case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> LONG;
+                case Types.REAL, Types.FLOAT, Types.DOUBLE -> DOUBLE;
+                // Oracle reports NUMBER without precision as precision 0, scale -127
+                case Types.NUMERIC, Types.DECIMAL -> scale == 0 && precision > 0 && precision <= 18 ? LONG : DECIMAL;
+                case Types.DATE, Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> TIMESTAMP;
+                case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> BYTES;
+                default -> STRING;
+            };
+        }
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        writeUnsignedVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long encoded = readUnsignedVarLong(in);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    static void writeUnsignedVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readUnsignedVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static void writeLength(DataOutput out, int length) throws IOException {
+        writeUnsignedVarLong(out, length);
+    }
+
+    static int readLength(DataInput in) throws IOException {
+        long length = readUnsignedVarLong(in);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length: " + length);
+        }
+        return (int) length;
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.shelldemo.runner;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.example.shelldemo.runner.ColumnarFormat.ColumnType;
+
+/**
+ * Reads files written by {@link ColumnarResultWriter} one row at a time. Blocks are decompressed
+ * and decoded as a whole, and values are exposed through typed accessors so numeric columns are
+ * never turned into strings.
+ */
+class ColumnarReader implements Closeable {
+    private final DataInputStream in;
+    private final String[] names;
+    private final ColumnType[] types;
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[0];
+    private byte[] payload = new byte[0];
+    private boolean[][] nulls = new boolean[0][];
+    private long[][] longs;
+    private double[][] doubles;
+    private Object[][] objects;
+    private int rowsInBlock;
+    private int row = -1;
+    private long rowsRead;
+    private boolean finished;
+
+    /**
+     * Opens a columnar file and reads its header.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be read or is not a columnar export
+     */
+    ColumnarReader(Path file) throws IOException {
+        this(new BufferedInputStream(Files.newInputStream(file)));
+    }
+
+    ColumnarReader(InputStream input) throws IOException {
+        this.in = new DataInputStream(input);
+        if (in.readInt() != ColumnarFormat.MAGIC) {
+            in.close();
+            throw new IOException("Not a columnar export file");
+        }
+        int version = in.readUnsignedByte();
+        if (version != ColumnarFormat.VERSION) {
+            in.close();
+            throw new IOException("Unsupported columnar format version: " + version);
+        }
+        int columnCount = ColumnarFormat.readLength(in);
+        names = new String[columnCount];
+        types = new ColumnType[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            names[c] = in.readUTF();
+            types[c] = ColumnType.values()[in.readUnsignedByte()];
+        }
+        longs = new long[columnCount][];
+        doubles = new double[columnCount][];
+        objects = new Object[columnCount][];
+    }
+
+    String[] getColumnNames() {
+        return names.clone();
+    }
+
+    ColumnType[] getColumnTypes() {
+        return types.clone();
+    }
+
+    /**
+     * Moves to the next row, reading the next block when the current one is exhausted.
+     *
+     * @return {@code true} if a row is available
+     * @throws IOException if the file is truncated or corrupt
+     */
+    boolean next() throws IOException {
+        if (++row < rowsInBlock) {
+            return true;
+        }
+        if (finished || !readBlock()) {
+            finished = true;
+            return false;
+        }
+        row = 0;
+        return true;
+    }
+
+    boolean isNull(int column) {
+        return nulls[column - 1][row];
+    }
+
+    boolean getBoolean(int column) {
+        return longs[column - 1][row] != 0;
+    }
+
+    long getLong(int column) {
+        return longs[column - 1][row];
+    }
+
+    double getDouble(int column) {
+        return doubles[column - 1][row];
+    }
+
+    BigDecimal getBigDecimal(int column) {
+        return switch (types[column - 1]) {
+            case DECIMAL -> (BigDecimal) objects[column - 1][row];
+            case LONG -> isNull(column) ? null : BigDecimal.valueOf(getLong(column));
+            case DOUBLE -> isNull(column) ? null : BigDecimal.valueOf(getDouble(column));
+            default -> throw new IllegalStateException("Column " + column + " is " + types[column - 1]);
+        };
+    }
+
+    String getString(int column) {
+        Object value = getObject(column);
+        return value == null ? null : value.toString();
+    }
+
+    byte[] getBytes(int column) {
+        return (byte[]) objects[column - 1][row];
+    }
+
+    Timestamp getTimestamp(int column) {
+        if (isNull(column)) {
+            return null;
+        }
+        long micros = longs[column - 1][row];
+        Timestamp timestamp = new Timestamp(Math.floorDiv(micros, 1_000_000) * 1000);
+        timestamp.setNanos(Math.floorMod(micros, 1_000_000) * 1000);
+        return timestamp;
+    }
+
+    /**
+     * Returns the value of a column boxed in its natural Java type.
+     *
+     * @param column the 1-based column index
+     * @return the value, or {@code null}
+     */
+    Object getObject(int column) {
+        if (isNull(column)) {
+            return null;
+        }
+        return switch (types[column - 1]) {
+            case BOOLEAN -> getBoolean(column);
+            case LONG -> getLong(column);
+            case DOUBLE -> getDouble(column);
+            case TIMESTAMP -> getTimestamp(column);
+            default -> objects[column - 1][row];
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    private boolean readBlock() throws IOException {
+        int blockRows = ColumnarFormat.readLength(in);
+        if (blockRows == 0) {
+            long expected = in.readLong();
+            if (expected != rowsRead) {
+                throw new IOException("Row count mismatch: trailer says " + expected + ", read " + rowsRead);
+            }
+            return false;
+        }
+        int payloadLength = ColumnarFormat.readLength(in);
+        int compressedLength = ColumnarFormat.readLength(in);
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+        if (payload.length < payloadLength) {
+            payload = new byte[payloadLength];
+        }
+        in.readFully(compressed, 0, compressedLength);
+
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int inflated = inflater.inflate(payload, 0, payloadLength);
+            if (inflated != payloadLength || !inflater.finished()) {
+                throw new IOException("Corrupt block: expected " + payloadLength + " bytes, got " + inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block", e);
+        }
+
+        ensureCapacity(blockRows);
+        DataInputStream block = new DataInputStream(new ByteArrayInputStream(payload, 0, payloadLength));
+        for (int c = 0; c < types.length; c++) {
+            readColumn(block, c, blockRows);
+        }
+        rowsInBlock = blockRows;
+        rowsRead += blockRows;
+        return true;
+    }
+
+    private void ensureCapacity(int blockRows) {
+        if (types.length == 0 || (nulls.length == types.length && nulls[0].length >= blockRows)) {
+            return;
+        }
+        nulls = new boolean[types.length][blockRows];
+        for (int c = 0; c < types.length; c++) {
+            switch (types[c]) {
+                case BOOLEAN, LONG, TIMESTAMP -> longs[c] = new long[blockRows];
+                case DOUBLE -> doubles[c] = new double[blockRows];
+                default -> objects[c] = new Object[blockRows];
+            }
+        }
+    }
+
+    private void readColumn(DataInputStream block, int c, int blockRows) throws IOException {
+        boolean[] columnNulls = nulls[c];
+        byte[] bitmap = new byte[(blockRows + 7) / 8];
+        block.readFully(bitmap);
+        for (int r = 0; r < blockRows; r++) {
+            columnNulls[r] = (bitmap[r >> 3] & (1 << (r & 7))) != 0;
+        }
+
+        switch (types[c]) {
+            case BOOLEAN -> {
+                for (int r = 0; r < blockRows; r++) {
+                    longs[c][r] = columnNulls[r] ? 0 : block.readByte();
+                }
+            }
+            case LONG, TIMESTAMP -> {
+                long previous = 0;
+                for (int r = 0; r < blockRows; r++) {
+                    if (columnNulls[r]) {
+                        longs[c][r] = 0;
+                        continue;
+                    }
+                    previous += ColumnarFormat.readVarLong(block);
+                    longs[c][r] = previous;
+                }
+            }
+            case DOUBLE -> {
+                for (int r = 0; r < blockRows; r++) {
+                    doubles[c][r] = columnNulls[r] ? 0 : block.readDouble();
+                }
+            }
+            case DECIMAL -> {
+                for (int r = 0; r < blockRows; r++) {
+                    if (columnNulls[r]) {
+                        objects[c][r] = null;
+                        continue;
+                    }
+                    int scale = (int) ColumnarFormat.readVarLong(block);
+                    objects[c][r] = new BigDecimal(new BigInteger(readBytes(block)), scale);
+                }
+            }
+            case STRING -> readStrings(block, c, blockRows);
+            case BYTES -> {
+                for (int r = 0; r < blockRows; r++) {
+                    objects[c][r] = columnNulls[r] ? null : readBytes(block);
+                }
+            }
+        }
+    }
+
+    private void readStrings(DataInputStream block, int c, int blockRows) throws IOException {
+        boolean[] columnNulls = nulls[c];
+        byte encoding = block.readByte();
+        if (encoding == ColumnarFormat.PLAIN_STRINGS) {
+            for (int r = 0; r < blockRows; r++) {
+                objects[c][r] = columnNulls[r] ? null : new String(readBytes(block), StandardCharsets.UTF_8);
+            }
+            return;
+        }
+        if (encoding != ColumnarFormat.DICTIONARY_STRINGS) {
+            throw new IOException("Unknown string encoding: " + encoding);
+        }
+        String[] dictionary = new String[ColumnarFormat.readLength(block)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = new String(readBytes(block), StandardCharsets.UTF_8);
+        }
+        for (int r = 0; r < blockRows; r++) {
+            objects[c][r] = columnNulls[r] ? null : dictionary[ColumnarFormat.readLength(block)];
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream block) throws IOException {
+        byte[] bytes = new byte[ColumnarFormat.readLength(block)];
+        block.readFully(bytes);
+        return bytes;
+    }
+}
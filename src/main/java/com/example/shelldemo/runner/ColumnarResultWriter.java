@@ -0,0 +1,285 @@
+package com.example.shelldemo.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import com.example.shelldemo.cli.FetchSizePolicy;
+import com.example.shelldemo.runner.ColumnarFormat.ColumnType;
+
+/**
+ * Writes query results in the compact columnar binary format described in {@link ColumnarFormat}.
+ * Values are read with the typed JDBC getters instead of {@code getString}, buffered one block of
+ * rows at a time, and each block is compressed before it is written.
+ */
+class ColumnarResultWriter implements Closeable {
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+
+    private final DataOutputStream out;
+    private final ColumnType[] types;
+    private final int blockRows;
+    private final boolean[][] nulls;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final Object[][] objects;
+    private final BlockBuffer payload = new BlockBuffer();
+    private final DataOutputStream payloadOut = new DataOutputStream(payload);
+    private final BlockBuffer compressed = new BlockBuffer();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] deflateChunk = new byte[64 * 1024];
+    private int rowsInBlock;
+    private long totalRows;
+
+    ColumnarResultWriter(OutputStream out, String[] names, ColumnType[] types, int blockRows) throws IOException {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("Column names and types differ in length");
+        }
+        this.out = new DataOutputStream(out);
+        this.types = types.clone();
+        this.blockRows = blockRows;
+        this.nulls = new boolean[types.length][blockRows];
+        this.longs = new long[types.length][];
+        this.doubles = new double[types.length][];
+        this.objects = new Object[types.length][];
+        for (int c = 0; c < types.length; c++) {
+            switch (types[c]) {
+                case BOOLEAN, LONG, TIMESTAMP -> longs[c] = new long[blockRows];
+                case DOUBLE -> doubles[c] = new double[blockRows];
+                default -> objects[c] = new Object[blockRows];
+            }
+        }
+
+        this.out.writeInt(ColumnarFormat.MAGIC);
+        this.out.writeByte(ColumnarFormat.VERSION);
+        ColumnarFormat.writeLength(this.out, types.length);
+        for (int c = 0; c < types.length; c++) {
+            this.out.writeUTF(names[c]);
+            this.out.writeByte(types[c].ordinal());
+        }
+    }
+
+    /**
+     * Writes a result set to a file, replacing any existing content.
+     *
+     * @param rs the result set, positioned before the first row
+     * @param file the output file
+     * @param tuner the fetch size tuner to read the rows through
+     * @return the number of rows written
+     * @throws SQLException if reading the result set fails
+     * @throws IOException if writing the file fails
+     */
+    static long export(ResultSet rs, Path file, FetchSizePolicy.Tuner tuner) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = new String[columnCount];
+        ColumnType[] types = new ColumnType[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            names[i - 1] = metaData.getColumnName(i);
+            types[i - 1] = ColumnType.forJdbcType(metaData.getColumnType(i), metaData.getPrecision(i), metaData.getScale(i));
+        }
+
+        try (ColumnarResultWriter writer = new ColumnarResultWriter(
+                new BufferedOutputStream(Files.newOutputStream(file), OUTPUT_BUFFER_SIZE),
+                names, types, ColumnarFormat.DEFAULT_BLOCK_ROWS)) {
+            while (tuner.next()) {
+                writer.addRow(rs);
+            }
+            return writer.totalRows + writer.rowsInBlock;
+        }
+    }
+
+    /**
+     * Buffers the current row of a result set, writing out a block when it is full.
+     *
+     * @param rs the result set positioned on a row
+     * @throws SQLException if a value cannot be read
+     * @throws IOException if writing a block fails
+     */
+    void addRow(ResultSet rs) throws SQLException, IOException {
+        int row = rowsInBlock;
+        for (int c = 0; c < types.length; c++) {
+            int column = c + 1;
+            switch (types[c]) {
+                case BOOLEAN -> longs[c][row] = rs.getBoolean(column) ? 1 : 0;
+                case LONG -> longs[c][row] = rs.getLong(column);
+                case DOUBLE -> doubles[c][row] = rs.getDouble(column);
+                case DECIMAL -> objects[c][row] = rs.getBigDecimal(column);
+                case STRING -> objects[c][row] = rs.getString(column);
+                case BYTES -> objects[c][row] = rs.getBytes(column);
+                case TIMESTAMP -> {
+                    Timestamp timestamp = rs.getTimestamp(column);
+                    if (timestamp != null) {
+                        longs[c][row] = Math.floorDiv(timestamp.getTime(), 1000) * 1_000_000
+                            + timestamp.getNanos() / 1000;
+                    }
+                }
+            }
+            nulls[c][row] = rs.wasNull();
+        }
+        if (++rowsInBlock == blockRows) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsInBlock > 0) {
+                writeBlock();
+            }
+            ColumnarFormat.writeLength(out, 0);
+            out.writeLong(totalRows);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        payload.reset();
+        for (int c = 0; c < types.length; c++) {
+            writeColumn(c);
+        }
+        payloadOut.flush();
+
+        compressed.reset();
+        deflater.reset();
+        deflater.setInput(payload.buffer(), 0, payload.size());
+        deflater.finish();
+        while (!deflater.finished()) {
+            int length = deflater.deflate(deflateChunk);
+            compressed.write(deflateChunk, 0, length);
+        }
+
+        ColumnarFormat.writeLength(out, rowsInBlock);
+        ColumnarFormat.writeLength(out, payload.size());
+        ColumnarFormat.writeLength(out, compressed.size());
+        out.write(compressed.buffer(), 0, compressed.size());
+
+        totalRows += rowsInBlock;
+        rowsInBlock = 0;
+    }
+
+    private void writeColumn(int c) throws IOException {
+        boolean[] columnNulls = nulls[c];
+        byte[] bitmap = new byte[(rowsInBlock + 7) / 8];
+        for (int row = 0; row < rowsInBlock; row++) {
+            if (columnNulls[row]) {
+                bitmap[row >> 3] |= (byte) (1 << (row & 7));
+            }
+        }
+        payloadOut.write(bitmap);
+
+        switch (types[c]) {
+            case BOOLEAN -> {
+                for (int row = 0; row < rowsInBlock; row++) {
+                    if (!columnNulls[row]) payloadOut.writeByte((int) longs[c][row]);
+                }
+            }
+            case LONG, TIMESTAMP -> {
+                // Deltas keep sequential keys and timestamps down to one or two bytes
+                long previous = 0;
+                for (int row = 0; row < rowsInBlock; row++) {
+                    if (columnNulls[row]) continue;
+                    ColumnarFormat.writeVarLong(payloadOut, longs[c][row] - previous);
+                    previous = longs[c][row];
+                }
+            }
+            case DOUBLE -> {
+                for (int row = 0; row < rowsInBlock; row++) {
+                    if (!columnNulls[row]) payloadOut.writeDouble(doubles[c][row]);
+                }
+            }
+            case DECIMAL -> {
+                for (int row = 0; row < rowsInBlock; row++) {
+                    if (columnNulls[row]) continue;
+                    BigDecimal value = (BigDecimal) objects[c][row];
+                    ColumnarFormat.writeVarLong(payloadOut, value.scale());
+                    writeBytes(value.unscaledValue().toByteArray());
+                }
+            }
+            case STRING -> writeStrings(c);
+            case BYTES -> {
+                for (int row = 0; row < rowsInBlock; row++) {
+                    if (!columnNulls[row]) writeBytes((byte[]) objects[c][row]);
+                }
+            }
+        }
+        clearObjects(c);
+    }
+
+    private void writeStrings(int c) throws IOException {
+        boolean[] columnNulls = nulls[c];
+        Object[] values = objects[c];
+        int nonNull = 0;
+        for (int row = 0; row < rowsInBlock; row++) {
+            if (!columnNulls[row]) nonNull++;
+        }
+
+        // Dictionary encoding only pays off when values repeat
+        int maxDictionarySize = nonNull / 2;
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (int row = 0; row < rowsInBlock && dictionary.size() <= maxDictionarySize; row++) {
+            if (!columnNulls[row]) dictionary.putIfAbsent((String) values[row], dictionary.size());
+        }
+
+        if (dictionary.size() > maxDictionarySize) {
+            payloadOut.writeByte(ColumnarFormat.PLAIN_STRINGS);
+            for (int row = 0; row < rowsInBlock; row++) {
+                if (!columnNulls[row]) writeBytes(((String) values[row]).getBytes(StandardCharsets.UTF_8));
+            }
+            return;
+        }
+
+        payloadOut.writeByte(ColumnarFormat.DICTIONARY_STRINGS);
+        ColumnarFormat.writeLength(payloadOut, dictionary.size());
+        String[] entries = new String[dictionary.size()];
+        dictionary.forEach((value, index) -> entries[index] = value);
+        for (String entry : entries) {
+            writeBytes(entry.getBytes(StandardCharsets.UTF_8));
+        }
+        for (int row = 0; row < rowsInBlock; row++) {
+            if (!columnNulls[row]) ColumnarFormat.writeLength(payloadOut, dictionary.get((String) values[row]));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ColumnarFormat.writeLength(payloadOut, bytes.length);
+        payloadOut.write(bytes);
+    }
+
+    private void clearObjects(int c) {
+        if (objects[c] != null) {
+            Arrays.fill(objects[c], 0, rowsInBlock, null);
+        }
+    }
+
+    /**
+     * A byte buffer whose backing array can be read without copying.
+     */
+    private static final class BlockBuffer extends ByteArrayOutputStream {
+        private BlockBuffer() {
+            super(64 * 1024);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.shelldemo.runner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import com.example.shelldemo.cli.FetchSizePolicy;
+
+/**
+ * Streams a result set to CSV in a single forward pass.
+ * Rows are written as they are fetched, so memory use does not depend on the size of the result;
+ * fields are escaped straight into the output without building intermediate strings.
+ */
+class CsvResultWriter {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Writer out;
+
+    CsvResultWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a result set to a file, replacing any existing content.
+     *
+     * @param rs the result set, positioned before the first row
+     * @param file the output file
+     * @param tuner the fetch size tuner to read the rows through
+     * @return the number of data rows written
+     * @throws SQLException if reading the result set fails
+     * @throws IOException if writing the file fails
+     */
+    static long export(ResultSet rs, Path file, FetchSizePolicy.Tuner tuner) throws SQLException, IOException {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            return new CsvResultWriter(writer).write(rs, tuner);
+        }
+    }
+
+    /**
+     * Writes the header and all remaining rows of a result set.
+     *
+     * @param rs the result set, positioned before the first row
+     * @param tuner the fetch size tuner to read the rows through
+     * @return the number of data rows written
+     * @throws SQLException if reading the result set fails
+     * @throws IOException if writing fails
+     */
+    long write(ResultSet rs, FetchSizePolicy.Tuner tuner) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) out.write(',');
+            writeField(metaData.getColumnName(i));
+        }
+        out.write('\n');
+
+        long rows = 0;
+        while (tuner.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) out.write(',');
+                writeField(rs.getString(i));
+            }
+            out.write('\n');
+            rows++;
+        }
+        out.flush();
+        return rows;
+    }
+
+    /**
+     * Writes one record, such as a header or a row that was already read from a result set.
+     *
+     * @param fields the field values, {@code null} for NULL
+     * @throws IOException if writing fails
+     */
+    void writeRecord(String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) out.write(',');
+            writeField(fields[i]);
+        }
+        out.write('\n');
+    }
+
+    private void writeField(String field) throws IOException {
+        if (field == null || field.isEmpty()) {
+            return;
+        }
+        if (!needsQuoting(field)) {
+            out.write(field);
+            return;
+        }
+
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < field.length(); i++) {
+            if (field.charAt(i) == '"') {
+                out.write(field, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(field, start, field.length() - start);
+        out.write('"');
+    }
+
+    private static boolean needsQuoting(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
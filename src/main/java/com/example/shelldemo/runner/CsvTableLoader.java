@@ -0,0 +1,398 @@
+package com.example.shelldemo.runner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a CSV file into a table. One thread parses the file into chunks of rows, and a number of
+ * writers, each on its own connection, insert the chunks through the dialect's bulk path, such as
+ * COPY or batched prepared statements, and commit once per chunk.
+ * <p>
+ * Committed chunks are recorded in a checkpoint file, so a failed load can be resumed without
+ * inserting rows twice. A chunk that was committed just before a crash but not yet recorded is
+ * the one exception and is inserted again on resume.
+ */
+class CsvTableLoader {
+    private static final Logger log = LoggerFactory.getLogger(CsvTableLoader.class);
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$#]*(\\.[A-Za-z_][A-Za-z0-9_$#]*)?");
+    private static final Chunk END = new Chunk(-1, -1, List.of());
+
+    private final ParallelTableExporter.ConnectionSource connections;
+    private final DialectBulkPath bulkPath;
+
+    CsvTableLoader(ParallelTableExporter.ConnectionSource connections) {
+        this(connections, DialectBulkPath.jdbc());
+    }
+
+    /**
+     * @param connections the source of writer connections
+     * @param bulkPath how the writers insert their chunks
+     */
+    CsvTableLoader(ParallelTableExporter.ConnectionSource connections, DialectBulkPath bulkPath) {
+        this.connections = connections;
+        this.bulkPath = bulkPath;
+    }
+
+    /**
+     * Loads a CSV file.
+     *
+     * @param request what to load and how
+     * @return the number of rows inserted by this run
+     * @throws SQLException if a chunk cannot be inserted
+     * @throws IOException if the file or the checkpoint cannot be read or written
+     * @throws InterruptedException if interrupted while waiting for the writers
+     */
+    long load(LoadRequest request) throws SQLException, IOException, InterruptedException {
+        requireIdentifier(request.table());
+        LoadCheckpoint checkpoint = request.resume()
+            ? LoadCheckpoint.read(request.checkpoint(), request)
+            : new LoadCheckpoint(request.checkpoint(), request);
+
+        try (CsvRecordReader reader = CsvRecordReader.open(request.input())) {
+            String[] header = reader.next();
+            if (header == null) {
+                throw new IOException("CSV file is empty: " + request.input());
+            }
+            ColumnMapping mapping = ColumnMapping.resolve(header, request.columns());
+            int[] sqlTypes;
+            try (Connection conn = connections.get()) {
+                sqlTypes = describeColumns(conn, request.table(), mapping.columns());
+            }
+            DialectBulkPath.LoadTarget target = new DialectBulkPath.LoadTarget(request.table(), mapping.columns(),
+                sqlTypes, request.batchSize());
+
+            if (checkpoint.committedChunks() > 0) {
+                log.info("Resuming load of {} after {} committed rows", request.table(),
+                    checkpoint.committedChunks() * request.commitEvery());
+            }
+            log.info("Loading {} into {} with {} writers using {}", request.input(), request.table(),
+                request.parallelism(), bulkPath.name());
+
+            long rows = run(reader, mapping, target, request, checkpoint);
+            checkpoint.delete();
+            log.info("Loaded {} rows into {}", rows, request.table());
+            return rows;
+        }
+    }
+
+    private long run(CsvRecordReader reader, ColumnMapping mapping, DialectBulkPath.LoadTarget target,
+            LoadRequest request, LoadCheckpoint checkpoint) throws SQLException, IOException, InterruptedException {
+        // Lets every writer have one chunk waiting while it inserts another, which bounds memory use
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(request.parallelism());
+        ExecutorService executor = Executors.newFixedThreadPool(request.parallelism());
+        try {
+            List<Future<Long>> writers = new ArrayList<>();
+            for (int i = 0; i < request.parallelism(); i++) {
+                writers.add(executor.submit(() -> writeChunks(queue, target, checkpoint)));
+            }
+
+            long chunkIndex = 0;
+            long firstRow = 0;
+            List<String[]> rows = new ArrayList<>(request.commitEvery());
+            String[] record;
+            while ((record = reader.next()) != null) {
+                rows.add(mapping.select(record, reader.getLineNumber()));
+                if (rows.size() == request.commitEvery()) {
+                    submit(queue, writers, checkpoint, new Chunk(chunkIndex++, firstRow, rows));
+                    firstRow += rows.size();
+                    rows = new ArrayList<>(request.commitEvery());
+                }
+            }
+            if (!rows.isEmpty()) {
+                submit(queue, writers, checkpoint, new Chunk(chunkIndex, firstRow, rows));
+            }
+            for (int i = 0; i < request.parallelism(); i++) {
+                offer(queue, writers, END);
+            }
+
+            long loaded = 0;
+            for (Future<Long> writer : writers) {
+                loaded += awaitWriter(writer);
+            }
+            return loaded;
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void submit(BlockingQueue<Chunk> queue, List<Future<Long>> writers, LoadCheckpoint checkpoint,
+            Chunk chunk) throws SQLException, IOException, InterruptedException {
+        if (checkpoint.isCommitted(chunk.index())) {
+            return;
+        }
+        offer(queue, writers, chunk);
+    }
+
+    private static void offer(BlockingQueue<Chunk> queue, List<Future<Long>> writers, Chunk chunk)
+            throws SQLException, IOException, InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            // Writers only stop early when they fail; surface the failure instead of waiting forever
+            for (Future<Long> writer : writers) {
+                if (writer.isDone()) {
+                    awaitWriter(writer);
+                }
+            }
+        }
+    }
+
+    private long writeChunks(BlockingQueue<Chunk> queue, DialectBulkPath.LoadTarget target, LoadCheckpoint checkpoint)
+            throws SQLException, IOException, InterruptedException {
+        long loaded = 0;
+        try (Connection conn = connections.get()) {
+            boolean originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (Chunk chunk = queue.take(); chunk != END; chunk = queue.take()) {
+                    long start = System.nanoTime();
+                    try {
+                        bulkPath.load(conn, target, chunk.rows(), chunk.firstRow());
+                        conn.commit();
+                    } catch (SQLException e) {
+                        throw new SQLException("Loading rows " + (chunk.firstRow() + 1) + " to "
+                            + (chunk.firstRow() + chunk.rows().size()) + " failed: " + e.getMessage(),
+                            e.getSQLState(), e.getErrorCode(), e);
+                    }
+                    checkpoint.markCommitted(chunk.index());
+                    loaded += chunk.rows().size();
+                    log.debug("Committed rows {} to {} in {} ms", chunk.firstRow() + 1,
+                        chunk.firstRow() + chunk.rows().size(), (System.nanoTime() - start) / 1_000_000);
+                }
+            } catch (Exception | Error e) {
+                // restoring auto-commit below would otherwise commit the rows of the failed chunk
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(originalAutoCommit);
+            }
+        }
+        return loaded;
+    }
+
+    private static int[] describeColumns(Connection conn, String table, List<String> columns) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT " + String.join(", ", columns) + " FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int[] sqlTypes = new int[columns.size()];
+            for (int i = 0; i < sqlTypes.length; i++) {
+                sqlTypes[i] = metaData.getColumnType(i + 1);
+            }
+            return sqlTypes;
+        }
+    }
+
+    private static long awaitWriter(Future<Long> future) throws SQLException, IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) throw sqlException;
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            if (e.getCause() instanceof InterruptedException interruptedException) throw interruptedException;
+            throw new IllegalStateException("Load writer failed unexpectedly", e.getCause());
+        }
+    }
+
+    private static void requireIdentifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid table or column name: " + name);
+        }
+    }
+
+    /**
+     * Returns the default checkpoint file of a CSV file.
+     *
+     * @param input the CSV file
+     * @return the checkpoint file next to it
+     */
+    static Path checkpointFile(Path input) {
+        return input.resolveSibling(input.getFileName() + ".load-checkpoint");
+    }
+
+    /**
+     * What to load and how.
+     *
+     * @param input the CSV file, with a header line
+     * @param table the target table, optionally schema-qualified
+     * @param columns the CSV fields to load as {@code field} or {@code field=column}, or empty to load
+     *                every field into the column of the same name
+     * @param batchSize the number of rows per JDBC batch
+     * @param commitEvery the number of rows per transaction
+     * @param parallelism the number of writer connections
+     * @param checkpoint the file recording committed chunks
+     * @param resume whether to skip the chunks recorded in the checkpoint
+     */
+    record LoadRequest(Path input, String table, List<String> columns, int batchSize, int commitEvery,
+                       int parallelism, Path checkpoint, boolean resume) {
+        LoadRequest {
+            if (batchSize < 1 || commitEvery < 1 || parallelism < 1) {
+                throw new IllegalArgumentException("batch size, commit interval and parallelism must be at least 1");
+            }
+            columns = List.copyOf(columns);
+        }
+    }
+
+    /**
+     * Rows that are inserted and committed together.
+     *
+     * @param index the position of the chunk in the file
+     * @param firstRow the number of data rows before the chunk
+     * @param rows the mapped field values
+     */
+    private record Chunk(long index, long firstRow, List<String[]> rows) {
+    }
+
+    /**
+     * Which CSV fields go into which columns.
+     */
+    record ColumnMapping(int[] fieldIndexes, List<String> columns) {
+
+        static ColumnMapping resolve(String[] header, List<String> columnSpecs) {
+            Map<String, Integer> fields = new HashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                fields.putIfAbsent(header[i].trim().toUpperCase(Locale.ROOT), i);
+            }
+
+            List<String> specs = columnSpecs.isEmpty()
+                ? Arrays.stream(header).map(String::trim).collect(Collectors.toList())
+                : columnSpecs;
+            int[] fieldIndexes = new int[specs.size()];
+            List<String> columns = new ArrayList<>();
+            for (int i = 0; i < specs.size(); i++) {
+                String[] parts = specs.get(i).split("=", 2);
+                String field = parts[0].trim();
+                String column = parts.length > 1 ? parts[1].trim() : field;
+                Integer index = fields.get(field.toUpperCase(Locale.ROOT));
+                if (index == null) {
+                    throw new IllegalArgumentException("CSV header has no field named " + field);
+                }
+                requireIdentifier(column);
+                fieldIndexes[i] = index;
+                columns.add(column);
+            }
+            return new ColumnMapping(fieldIndexes, List.copyOf(columns));
+        }
+
+        String[] select(String[] record, long lineNumber) throws IOException {
+            String[] values = new String[fieldIndexes.length];
+            for (int i = 0; i < fieldIndexes.length; i++) {
+                if (fieldIndexes[i] >= record.length) {
+                    throw new IOException("Line " + lineNumber + " has " + record.length + " fields, expected at least "
+                        + (fieldIndexes[i] + 1));
+                }
+                values[i] = record[fieldIndexes[i]];
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Tracks which chunks are committed: every chunk below a watermark, plus the chunks above it
+     * that parallel writers finished early.
+     */
+    static final class LoadCheckpoint {
+        private final Path file;
+        private final String table;
+        private final int commitEvery;
+        private final TreeSet<Long> committedAhead = new TreeSet<>();
+        private long committedChunks;
+
+        LoadCheckpoint(Path file, LoadRequest request) {
+            this.file = file;
+            this.table = request.table();
+            this.commitEvery = request.commitEvery();
+        }
+
+        static LoadCheckpoint read(Path file, LoadRequest request) throws IOException {
+            LoadCheckpoint checkpoint = new LoadCheckpoint(file, request);
+            if (!Files.exists(file)) {
+                log.info("No checkpoint at {}, loading from the start", file);
+                return checkpoint;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            if (!request.table().equalsIgnoreCase(properties.getProperty("table"))
+                    || request.commitEvery() != Integer.parseInt(properties.getProperty("commitEvery", "0"))) {
+                throw new IllegalArgumentException("Checkpoint " + file + " was written for table "
+                    + properties.getProperty("table") + " with a commit interval of "
+                    + properties.getProperty("commitEvery") + " rows; resume with the same settings");
+            }
+            checkpoint.committedChunks = Long.parseLong(properties.getProperty("committedChunks", "0"));
+            for (String chunk : properties.getProperty("committedAhead", "").split(",")) {
+                if (!chunk.isBlank()) {
+                    checkpoint.committedAhead.add(Long.parseLong(chunk.trim()));
+                }
+            }
+            return checkpoint;
+        }
+
+        synchronized long committedChunks() {
+            return committedChunks;
+        }
+
+        synchronized boolean isCommitted(long chunk) {
+            return chunk < committedChunks || committedAhead.contains(chunk);
+        }
+
+        synchronized void markCommitted(long chunk) throws IOException {
+            committedAhead.add(chunk);
+            while (committedAhead.remove(committedChunks)) {
+                committedChunks++;
+            }
+            save();
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+
+        private void save() throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("table", table);
+            properties.setProperty("commitEvery", Integer.toString(commitEvery));
+            properties.setProperty("committedChunks", Long.toString(committedChunks));
+            properties.setProperty("committedAhead",
+                committedAhead.stream().map(String::valueOf).collect(Collectors.joining(",")));
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "CSV load checkpoint");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.shelldemo.runner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the index and constraint builds of a script on pooled connections while the script goes on
+ * with its other statements. Tables, sequences, procedures and data are still created in script
+ * order on the script's own connection.
+ * <p>
+ * Builds on the same table run one after another in script order, so a primary key still finds the
+ * index created for it and two builds never wait on each other's table locks. A foreign key also
+ * waits for the builds on the table it references. Before a statement of the script runs, the
+ * builds on every table or index it names are waited for.
+ */
+class DdlBuildScheduler implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DdlBuildScheduler.class);
+
+    private static final String NAME = "((?:\"[^\"]+\"|\\[[^\\]]+\\]|[\\w$#]+)(?:\\.(?:\"[^\"]+\"|\\[[^\\]]+\\]|[\\w$#]+))*)";
+    private static final Pattern LEADING_COMMENTS = Pattern.compile("^(?:\\s*(?:--[^\\n]*(?:\\n|$)|/\\*.*?\\*/))*\\s*",
+        Pattern.DOTALL);
+    private static final Pattern CREATE_INDEX = Pattern.compile("^CREATE\\s+(?:UNIQUE\\s+)?(?:BITMAP\\s+)?"
+        + "(?:(?:NON)?CLUSTERED\\s+)?INDEX\\s+(?:CONCURRENTLY\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?" + NAME
+        + "\\s+ON\\s+(?:ONLY\\s+)?" + NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern ADD_CONSTRAINT = Pattern.compile("^ALTER\\s+TABLE\\s+(?:ONLY\\s+)?(?:IF\\s+EXISTS\\s+)?"
+        + NAME + "\\s+ADD\\s*\\(?\\s*(?:CONSTRAINT|PRIMARY\\s+KEY|UNIQUE|FOREIGN\\s+KEY|CHECK)\\b",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONSTRAINT_NAME = Pattern.compile("\\bCONSTRAINT\\s+" + NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern REFERENCES = Pattern.compile("\\bREFERENCES\\s+" + NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern IDENTIFIER = Pattern.compile("\"([^\"]+)\"|\\[([^\\]]+)\\]|([\\w$#]+)");
+
+    private final ParallelTableExporter.ConnectionSource connections;
+    private final boolean stopOnError;
+    private final ExecutorService executor;
+    private final Map<String, CompletableFuture<Void>> tails = new HashMap<>();
+    private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+    private final AtomicReference<SQLException> failure = new AtomicReference<>();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final long start = System.nanoTime();
+    private int submitted;
+
+    /**
+     * @param connections borrows the connections the builds run on; each is closed after its build
+     * @param parallelism the most builds running at the same time
+     * @param stopOnError whether a failed build stops the script
+     */
+    DdlBuildScheduler(ParallelTableExporter.ConnectionSource connections, int parallelism, boolean stopOnError) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.connections = connections;
+        this.stopOnError = stopOnError;
+        this.executor = Executors.newFixedThreadPool(parallelism, new BuildThreadFactory());
+    }
+
+    /**
+     * Tells whether a statement builds an index or adds a constraint to an existing table.
+     *
+     * @param sql the statement text
+     * @return the build, or {@code null} if the statement has to run in script order
+     */
+    static Build classify(String sql) {
+        String statement = LEADING_COMMENTS.matcher(sql).replaceFirst("");
+        Matcher index = CREATE_INDEX.matcher(statement);
+        if (index.find()) {
+            return new Build(key(index.group(2)), Set.copyOf(List.of(key(index.group(2)), key(index.group(1)))));
+        }
+        Matcher constraint = ADD_CONSTRAINT.matcher(statement);
+        if (!constraint.find()) {
+            return null;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(key(constraint.group(1)));
+        for (Matcher name = CONSTRAINT_NAME.matcher(statement); name.find(); ) {
+            keys.add(key(name.group(1)));
+        }
+        for (Matcher referenced = REFERENCES.matcher(statement); referenced.find(); ) {
+            keys.add(key(referenced.group(1)));
+        }
+        return new Build(key(constraint.group(1)), Set.copyOf(keys));
+    }
+
+    /**
+     * Queues a build. It starts once the earlier builds on the same tables are done.
+     *
+     * @param statement the build statement
+     * @param build what the statement builds, from {@link #classify}
+     * @throws SQLException if an earlier build failed with stop-on-error
+     */
+    void submit(BoundStatement statement, Build build) throws SQLException {
+        checkFailure();
+        CompletableFuture<?>[] predecessors = build.keys().stream()
+            .map(tails::get)
+            .filter(Objects::nonNull)
+            .toArray(CompletableFuture[]::new);
+        // a failed predecessor has already been reported, so the build runs anyway
+        CompletableFuture<Void> future = CompletableFuture.allOf(predecessors)
+            .handle((ignored, e) -> null)
+            .thenRunAsync(() -> run(statement), executor);
+        for (String key : build.keys()) {
+            tails.put(key, future);
+        }
+        pending.add(future);
+        submitted++;
+        pending.removeIf(CompletableFuture::isDone);
+        tails.values().removeIf(CompletableFuture::isDone);
+    }
+
+    /**
+     * Waits for the builds on the tables and indexes a statement names, before it runs in script order.
+     *
+     * @param sql the statement text
+     * @throws SQLException if a build failed with stop-on-error, or the wait was interrupted
+     */
+    void awaitTables(String sql) throws SQLException {
+        if (!tails.isEmpty()) {
+            for (Matcher identifier = IDENTIFIER.matcher(sql); identifier.find(); ) {
+                String name = identifier.group(1) != null ? identifier.group(1)
+                    : identifier.group(2) != null ? identifier.group(2) : identifier.group(3);
+                CompletableFuture<Void> tail = tails.remove(name.toLowerCase(Locale.ROOT));
+                if (tail != null) {
+                    await(tail);
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Waits for every build, at the end of the script.
+     *
+     * @throws SQLException if a build failed with stop-on-error, or the wait was interrupted
+     */
+    void awaitAll() throws SQLException {
+        for (CompletableFuture<Void> build : pending) {
+            await(build);
+        }
+        pending.clear();
+        tails.clear();
+        checkFailure();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        if (failed.get() > 0) {
+            log.warn("{} of {} index and constraint builds failed", failed.get(), submitted);
+        } else if (submitted > 0) {
+            log.info("Ran {} index and constraint builds alongside the script in {} ms", submitted, elapsed);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void run(BoundStatement statement) {
+        if (stopOnError && failure.get() != null) {
+            return;
+        }
+        long buildStart = System.nanoTime();
+        try (Connection conn = connections.get()) {
+            conn.setAutoCommit(true);
+            if (statement.isParameterized()) {
+                try (PreparedStatement stmt = conn.prepareStatement(statement.sql())) {
+                    statement.bindTo(stmt);
+                    stmt.execute();
+                }
+            } else {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(statement.sql());
+                }
+            }
+            log.debug("Built in {} ms: {}", (System.nanoTime() - buildStart) / 1_000_000, statement.text());
+        } catch (SQLException e) {
+            failed.incrementAndGet();
+            failure.compareAndSet(null, e);
+            log.error("Build failed: {} [statement: {}]", e.getMessage(), statement.text());
+        }
+    }
+
+    private static void await(CompletableFuture<Void> build) throws SQLException {
+        try {
+            build.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for index and constraint builds", e);
+        } catch (ExecutionException e) {
+            // run() catches the SQLException of a build, so only an unexpected failure ends up here
+            throw new SQLException("Index or constraint build failed unexpectedly", e.getCause());
+        }
+    }
+
+    private void checkFailure() throws SQLException {
+        SQLException e = failure.get();
+        if (stopOnError && e != null) {
+            throw new SQLException("Index or constraint build failed: " + e.getMessage(), e.getSQLState(),
+                e.getErrorCode(), e);
+        }
+    }
+
+    private static String key(String name) {
+        String last = name.substring(name.lastIndexOf('.') + 1);
+        if (last.startsWith("\"") || last.startsWith("[")) {
+            last = last.substring(1, last.length() - 1);
+        }
+        return last.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * An index or constraint build.
+     *
+     * @param table the table the build is on
+     * @param keys the table, any table it references, and the index or constraint names; builds
+     *     sharing a key run one after another
+     */
+    record Build(String table, Set<String> keys) {
+    }
+
+    private static final class BuildThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ddl-builder-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
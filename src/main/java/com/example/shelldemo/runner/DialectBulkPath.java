@@ -0,0 +1,461 @@
+package com.example.shelldemo.runner;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.shelldemo.cli.FetchSizePolicy;
+
+/**
+ * Moves rows into and out of tables the fastest way a dialect's driver offers: PostgreSQL
+ * {@code COPY} through the driver's CopyManager, MySQL {@code LOAD DATA LOCAL INFILE} from a
+ * stream, SQL Server bulk copy for batched inserts, and Oracle array DML, direct-path when a
+ * single writer owns the table.
+ * <p>
+ * The driver APIs are called by reflection, so no vendor driver is needed to build or run the
+ * tool. When a driver lacks the API, or the server refuses it, the path falls back to batched
+ * JDBC for the rest of the run. This base class is that portable path.
+ */
+class DialectBulkPath {
+    private static final Logger log = LoggerFactory.getLogger(DialectBulkPath.class);
+    private static final int EXPORT_BUFFER_SIZE = 1 << 20;
+    private static final Object UNAVAILABLE = new Object();
+
+    private final AtomicBoolean nativeUnavailable = new AtomicBoolean();
+
+    /**
+     * Returns the bulk path for a database type.
+     *
+     * @param dbType the database type (oracle, postgresql, mysql, sqlserver)
+     * @param exclusiveWriter whether a load is the only session writing to its table
+     * @return the dialect's path, or batched JDBC for unknown types
+     */
+    static DialectBulkPath forDialect(String dbType, boolean exclusiveWriter) {
+        return switch (dbType.trim().toLowerCase(Locale.ROOT)) {
+            case "postgresql" -> new PostgresCopy();
+            case "mysql" -> new MysqlLoadData();
+            case "sqlserver" -> new SqlServerBulkCopy();
+            case "oracle" -> new OracleArrayInsert(exclusiveWriter);
+            default -> new DialectBulkPath();
+        };
+    }
+
+    /**
+     * Returns the portable batched JDBC path.
+     */
+    static DialectBulkPath jdbc() {
+        return new DialectBulkPath();
+    }
+
+    /**
+     * Gets a name for log messages.
+     */
+    String name() {
+        return "batched JDBC";
+    }
+
+    /**
+     * Inserts rows within the caller's transaction.
+     *
+     * @param conn the connection, with auto-commit off
+     * @param target the table and columns to insert into
+     * @param rows the rows, one text value per column, empty for NULL
+     * @param firstRow the number of rows before these in the input, for error messages
+     * @throws SQLException if the rows cannot be inserted
+     */
+    void load(Connection conn, LoadTarget target, List<String[]> rows, long firstRow) throws SQLException {
+        int batchSize = batchSize(target, rows.size());
+        try (PreparedStatement stmt = conn.prepareStatement(insertSql(target))) {
+            int pending = 0;
+            for (int r = 0; r < rows.size(); r++) {
+                String[] row = rows.get(r);
+                for (int c = 0; c < row.length; c++) {
+                    try {
+                        // CsvResultWriter writes NULL as an empty field, which binds as NULL
+                        SqlValueBinder.bind(stmt, c + 1, row[c], target.sqlTypes()[c]);
+                    } catch (IllegalArgumentException e) {
+                        throw new SQLException("Invalid value '" + row[c] + "' in field " + (c + 1) + " of row "
+                            + (firstRow + r + 1), e);
+                    }
+                }
+                stmt.addBatch();
+                if (++pending == batchSize) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Gets the rows sent per JDBC batch when loading one chunk.
+     *
+     * @param target the load target
+     * @param chunkRows the rows of the chunk
+     * @return the batch size
+     */
+    int batchSize(LoadTarget target, int chunkRows) {
+        return target.batchSize();
+    }
+
+    /**
+     * Builds the parameterized INSERT used by the batched path.
+     */
+    String insertSql(LoadTarget target) {
+        return "INSERT INTO " + target.table() + " (" + String.join(", ", target.columns()) + ") VALUES ("
+            + String.join(", ", Collections.nCopies(target.columns().size(), "?")) + ")";
+    }
+
+    /**
+     * Writes the result of a query to a CSV file with a header line.
+     *
+     * @param conn the connection
+     * @param query a {@code SELECT} whose placeholders take {@code parameters}
+     * @param parameters the values of the placeholders
+     * @param file the output file, replaced if it exists
+     * @param fetchSizePolicy the fetch size policy for the query
+     * @return the number of data rows written
+     * @throws SQLException if the query fails
+     * @throws IOException if the file cannot be written
+     */
+    long export(Connection conn, String query, List<Object> parameters, Path file, FetchSizePolicy fetchSizePolicy)
+            throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            fetchSizePolicy.applyTo(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return CsvResultWriter.export(rs, file, fetchSizePolicy.tune(rs));
+            }
+        }
+    }
+
+    /**
+     * Reports whether an earlier call found the native API missing or refused.
+     */
+    boolean fellBack() {
+        return nativeUnavailable.get();
+    }
+
+    /**
+     * Records that the native API cannot be used, logging the reason the first time.
+     */
+    void fallBack(String reason) {
+        if (nativeUnavailable.compareAndSet(false, true)) {
+            log.warn("{} is not available ({}), using batched JDBC instead", name(), reason);
+        }
+    }
+
+    /**
+     * Renders rows as CSV for a server-side loader. Every value is quoted, so an unquoted
+     * {@code nullToken} can only mean NULL.
+     */
+    static String toCsv(List<String[]> rows, String nullToken) {
+        StringBuilder csv = new StringBuilder(rows.size() * 64);
+        for (String[] row : rows) {
+            for (int c = 0; c < row.length; c++) {
+                if (c > 0) csv.append(',');
+                String value = row[c];
+                if (value == null || value.isEmpty()) {
+                    csv.append(nullToken);
+                    continue;
+                }
+                csv.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char ch = value.charAt(i);
+                    if (ch == '"') csv.append('"');
+                    csv.append(ch);
+                }
+                csv.append('"');
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Returns the driver's own connection behind a connection, which may be a pooled one that only
+     * unwraps to the driver's interface.
+     *
+     * @param conn the connection
+     * @param driverInterface the name of the driver's connection interface
+     * @return the driver's connection, or the connection itself if it does not wrap one
+     * @throws SQLException if the connection cannot be unwrapped
+     */
+    static Object driverConnection(Connection conn, String driverInterface) throws SQLException {
+        Class<?> type;
+        try {
+            type = Class.forName(driverInterface);
+        } catch (ClassNotFoundException e) {
+            return conn;
+        }
+        return conn.isWrapperFor(type) ? conn.unwrap(type) : conn;
+    }
+
+    /**
+     * Calls a driver method by reflection.
+     *
+     * @return the method's result, or {@link #UNAVAILABLE} if the object has no such public method
+     * @throws SQLException if the method throws
+     */
+    static Object invoke(Object target, String name, Class<?>[] parameterTypes, Object... args) throws SQLException {
+        Method method = findMethod(target.getClass(), name, parameterTypes);
+        if (method == null) {
+            return UNAVAILABLE;
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            return UNAVAILABLE;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException(name + " failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    static boolean isUnavailable(Object result) {
+        return result == UNAVAILABLE;
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>[] parameterTypes) {
+        // Driver classes are often not public, the interfaces they implement are
+        if (Modifier.isPublic(type.getModifiers())) {
+            try {
+                return type.getMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                // Not declared here, look at the interfaces
+            }
+        }
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Class<?> iface : current.getInterfaces()) {
+                Method method = findMethod(iface, name, parameterTypes);
+                if (method != null) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * What a load writes to.
+     *
+     * @param table the table name
+     * @param columns the column names, in field order
+     * @param sqlTypes the {@link java.sql.Types} constant of each column
+     * @param batchSize the rows per JDBC batch on the batched path
+     */
+    record LoadTarget(String table, List<String> columns, int[] sqlTypes, int batchSize) {
+        LoadTarget {
+            columns = List.copyOf(columns);
+        }
+    }
+
+    /**
+     * PostgreSQL {@code COPY ... FROM STDIN} and {@code COPY (query) TO STDOUT}.
+     */
+    static final class PostgresCopy extends DialectBulkPath {
+        @Override
+        String name() {
+            return "PostgreSQL COPY";
+        }
+
+        @Override
+        void load(Connection conn, LoadTarget target, List<String[]> rows, long firstRow) throws SQLException {
+            Object copyManager = fellBack() ? UNAVAILABLE : copyManager(conn);
+            if (isUnavailable(copyManager)) {
+                super.load(conn, target, rows, firstRow);
+                return;
+            }
+            String copy = "COPY " + target.table() + " (" + String.join(", ", target.columns())
+                + ") FROM STDIN WITH (FORMAT csv)";
+            Object copied = invoke(copyManager, "copyIn", new Class<?>[] {String.class, Reader.class}, copy,
+                new StringReader(toCsv(rows, "")));
+            if (isUnavailable(copied)) {
+                fallBack("the driver has no copyIn(String, Reader)");
+                super.load(conn, target, rows, firstRow);
+            }
+        }
+
+        @Override
+        long export(Connection conn, String query, List<Object> parameters, Path file,
+                FetchSizePolicy fetchSizePolicy) throws SQLException, IOException {
+            // COPY takes no bind parameters, so only numeric chunk bounds can be inlined safely
+            boolean inlinable = parameters.stream().allMatch(parameter -> parameter instanceof Number);
+            Object copyManager = fellBack() || !inlinable ? UNAVAILABLE : copyManager(conn);
+            if (isUnavailable(copyManager)) {
+                return super.export(conn, query, parameters, file, fetchSizePolicy);
+            }
+            String copy = "COPY (" + inline(query, parameters) + ") TO STDOUT WITH (FORMAT csv, HEADER)";
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE)) {
+                Object copied = invoke(copyManager, "copyOut", new Class<?>[] {String.class, Writer.class}, copy, writer);
+                if (!isUnavailable(copied)) {
+                    return (Long) copied;
+                }
+            }
+            fallBack("the driver has no copyOut(String, Writer)");
+            return super.export(conn, query, parameters, file, fetchSizePolicy);
+        }
+
+        private Object copyManager(Connection conn) throws SQLException {
+            Object copyManager = invoke(driverConnection(conn, "org.postgresql.PGConnection"), "getCopyAPI", new Class<?>[0]);
+            if (isUnavailable(copyManager)) {
+                fallBack("the connection is not a PostgreSQL driver connection");
+            }
+            return copyManager;
+        }
+
+        private static String inline(String query, List<Object> parameters) {
+            StringBuilder inlined = new StringBuilder(query.length() + 16 * parameters.size());
+            int next = 0;
+            for (int i = 0; i < query.length(); i++) {
+                char ch = query.charAt(i);
+                if (ch == '?' && next < parameters.size()) {
+                    inlined.append(parameters.get(next++));
+                } else {
+                    inlined.append(ch);
+                }
+            }
+            return inlined.toString();
+        }
+    }
+
+    /**
+     * MySQL {@code LOAD DATA LOCAL INFILE} fed from a stream instead of a file. Needs
+     * {@code allowLoadLocalInfile=true} on the client and {@code local_infile=ON} on the server.
+     */
+    static final class MysqlLoadData extends DialectBulkPath {
+        // ER_NOT_ALLOWED_COMMAND, ER_CLIENT_LOCAL_FILES_DISABLED, CR_LOAD_DATA_LOCAL_INFILE_REJECTED
+        private static final List<Integer> DISABLED_ERRORS = List.of(1148, 3948, 2068);
+
+        @Override
+        String name() {
+            return "MySQL LOAD DATA LOCAL INFILE";
+        }
+
+        @Override
+        void load(Connection conn, LoadTarget target, List<String[]> rows, long firstRow) throws SQLException {
+            if (fellBack()) {
+                super.load(conn, target, rows, firstRow);
+                return;
+            }
+            String loadData = "LOAD DATA LOCAL INFILE 'stream.csv' INTO TABLE " + target.table()
+                + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' ENCLOSED BY '\"' ESCAPED BY ''"
+                + " LINES TERMINATED BY '\\n' (" + String.join(", ", target.columns()) + ")";
+            try (Statement stmt = conn.createStatement()) {
+                InputStream in = new ByteArrayInputStream(toCsv(rows, "NULL").getBytes(StandardCharsets.UTF_8));
+                if (isUnavailable(invoke(stmt, "setLocalInfileInputStream", new Class<?>[] {InputStream.class}, in))) {
+                    fallBack("the statement is not a MySQL driver statement");
+                    super.load(conn, target, rows, firstRow);
+                    return;
+                }
+                int loaded = stmt.executeUpdate(loadData);
+                // LOCAL turns duplicate keys and bad values into warnings, so count what arrived
+                if (loaded != rows.size()) {
+                    throw new SQLException("LOAD DATA stored " + loaded + " of " + rows.size() + " rows of rows "
+                        + (firstRow + 1) + " to " + (firstRow + rows.size()) + "; see SHOW WARNINGS");
+                }
+            } catch (SQLException e) {
+                if (!DISABLED_ERRORS.contains(e.getErrorCode())
+                        && (e.getMessage() == null || !e.getMessage().contains("local data is disabled"))) {
+                    throw e;
+                }
+                // Nothing was stored, the statement was refused before reading the stream
+                fallBack(e.getMessage());
+                super.load(conn, target, rows, firstRow);
+            }
+        }
+    }
+
+    /**
+     * SQL Server bulk copy, used by the driver for batched inserts once
+     * {@code useBulkCopyForBatchInsert} is switched on for the connection.
+     */
+    static final class SqlServerBulkCopy extends DialectBulkPath {
+        @Override
+        String name() {
+            return "SQL Server bulk copy";
+        }
+
+        @Override
+        void load(Connection conn, LoadTarget target, List<String[]> rows, long firstRow) throws SQLException {
+            Object physical = driverConnection(conn, "com.microsoft.sqlserver.jdbc.ISQLServerConnection");
+            Object previous = fellBack() ? UNAVAILABLE
+                : invoke(physical, "getUseBulkCopyForBatchInsert", new Class<?>[0]);
+            if (isUnavailable(previous)) {
+                fallBack("the connection is not a SQL Server driver connection");
+                super.load(conn, target, rows, firstRow);
+                return;
+            }
+            invoke(physical, "setUseBulkCopyForBatchInsert", new Class<?>[] {boolean.class}, true);
+            try {
+                super.load(conn, target, rows, firstRow);
+            } finally {
+                invoke(physical, "setUseBulkCopyForBatchInsert", new Class<?>[] {boolean.class}, previous);
+            }
+        }
+    }
+
+    /**
+     * Oracle array DML: the driver sends a JDBC batch as one array bind. With a single writer
+     * the insert also uses direct-path, which writes above the high water mark and locks the
+     * table, so concurrent writers would only queue behind each other.
+     */
+    static final class OracleArrayInsert extends DialectBulkPath {
+        private final boolean directPath;
+
+        OracleArrayInsert(boolean directPath) {
+            this.directPath = directPath;
+        }
+
+        @Override
+        String name() {
+            return directPath ? "Oracle direct-path array insert" : "Oracle array insert";
+        }
+
+        @Override
+        String insertSql(LoadTarget target) {
+            String insert = super.insertSql(target);
+            return directPath ? insert.replaceFirst("INSERT ", "INSERT /*+ APPEND_VALUES */ ") : insert;
+        }
+
+        /**
+         * A transaction may insert into a table only once in direct-path mode (ORA-12838), so the
+         * whole chunk goes in one array bind before it is committed.
+         */
+        @Override
+        int batchSize(LoadTarget target, int chunkRows) {
+            return directPath ? Math.max(1, chunkRows) : target.batchSize();
+        }
+    }
+}
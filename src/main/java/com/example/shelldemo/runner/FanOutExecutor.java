@@ -0,0 +1,253 @@
+package com.example.shelldemo.runner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the same unit of work against many connection targets, one virtual thread per target.
+ * A semaphore caps how many targets are worked on at once, and a target that exceeds its timeout
+ * has its connection aborted and its thread interrupted. Every target gets a result, so one slow
+ * or failing tenant never hides the outcome of the others.
+ */
+class FanOutExecutor {
+    private static final Logger log = LoggerFactory.getLogger(FanOutExecutor.class);
+    private static final Set<String> TARGET_KEYS = Set.of("host", "port", "database", "username", "password", "schema");
+
+    private final int maxConcurrency;
+    private final Duration timeout;
+
+    /**
+     * @param maxConcurrency the maximum number of targets worked on at the same time
+     * @param timeout the time allowed per target, measured from when its work starts, or zero for no limit
+     */
+    FanOutExecutor(int maxConcurrency, Duration timeout) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs the work against every target and waits for all of them.
+     *
+     * @param targets the targets
+     * @param connector opens a connection to a target
+     * @param work what to run on each target's connection
+     * @return one result per target, in the order of the targets
+     * @throws InterruptedException if interrupted while waiting
+     */
+    List<TargetResult> execute(List<Target> targets, Connector connector, TargetWork work) throws InterruptedException {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fan-out-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<TargetResult>> futures = new ArrayList<>();
+            for (Target target : targets) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return run(target, connector, work, watchdog, executor);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<TargetResult> results = new ArrayList<>();
+            for (int i = 0; i < targets.size(); i++) {
+                results.add(await(targets.get(i), futures.get(i)));
+            }
+            return results;
+        } finally {
+            watchdog.shutdownNow();
+        }
+    }
+
+    private TargetResult run(Target target, Connector connector, TargetWork work, ScheduledExecutorService watchdog,
+            ExecutorService executor) {
+        long start = System.nanoTime();
+        AtomicReference<Connection> connection = new AtomicReference<>();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Thread worker = Thread.currentThread();
+        ScheduledFuture<?> deadline = timeout.isZero() ? null : watchdog.schedule(() -> {
+            timedOut.set(true);
+            Connection conn = connection.get();
+            if (conn != null) {
+                try {
+                    conn.abort(executor);
+                } catch (SQLException e) {
+                    log.debug("Could not abort connection to {}: {}", target.name(), e.getMessage());
+                }
+            }
+            worker.interrupt();
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        try (Connection conn = connector.connect(target)) {
+            connection.set(conn);
+            if (timedOut.get()) {
+                return result(target, Status.TIMED_OUT, start, "timed out while connecting");
+            }
+            int exitCode = work.run(conn);
+            return exitCode == 0
+                ? result(target, Status.SUCCEEDED, start, null)
+                : result(target, Status.FAILED, start, "exit code " + exitCode);
+        } catch (Exception e) {
+            if (timedOut.get()) {
+                return result(target, Status.TIMED_OUT, start, "timed out after " + timeout.toMillis() + " ms");
+            }
+            log.error("Target {} failed: {}", target.name(), e.getMessage());
+            return result(target, Status.FAILED, start, e.getMessage());
+        } finally {
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            // Clear an interrupt that raced with the end of the work
+            Thread.interrupted();
+        }
+    }
+
+    private static TargetResult result(Target target, Status status, long start, String message) {
+        return new TargetResult(target.name(), status, (System.nanoTime() - start) / 1_000_000, message);
+    }
+
+    private static TargetResult await(Target target, Future<TargetResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return new TargetResult(target.name(), Status.FAILED, 0, String.valueOf(e.getCause()));
+        }
+    }
+
+    /**
+     * Logs a table with one line per target, followed by the totals per status.
+     *
+     * @param results the results to report
+     */
+    static void logSummary(List<TargetResult> results) {
+        int width = results.stream().mapToInt(result -> result.target().length()).max().orElse(6);
+        String format = "%-" + Math.max(width, 6) + "s  %-9s  %10s  %s";
+        log.info("{}", String.format(format, "Target", "Status", "Time (ms)", ""));
+        Map<Status, Integer> totals = new HashMap<>();
+        for (TargetResult result : results) {
+            log.info("{}", String.format(format, result.target(), result.status(), result.elapsedMillis(),
+                result.message() != null ? result.message() : ""));
+            totals.merge(result.status(), 1, Integer::sum);
+        }
+        log.info("{} targets: {} succeeded, {} failed, {} timed out", results.size(),
+            totals.getOrDefault(Status.SUCCEEDED, 0), totals.getOrDefault(Status.FAILED, 0),
+            totals.getOrDefault(Status.TIMED_OUT, 0));
+    }
+
+    /**
+     * Reads a targets file. Each line names a target followed by {@code key=value} settings that
+     * override the command line connection options: {@code host}, {@code port}, {@code database},
+     * {@code username}, {@code password} and {@code schema}. Blank lines and lines starting with
+     * {@code #} are ignored.
+     *
+     * @param file the targets file
+     * @return the targets in file order
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is malformed or a target name is repeated
+     */
+    static List<Target> loadTargets(Path file) throws IOException {
+        List<Target> targets = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] tokens = trimmed.split("\\s+");
+            Map<String, String> settings = new HashMap<>();
+            for (int i = 1; i < tokens.length; i++) {
+                String[] setting = tokens[i].split("=", 2);
+                if (setting.length != 2 || !TARGET_KEYS.contains(setting[0])) {
+                    throw new IllegalArgumentException("Invalid setting '" + tokens[i] + "' on line " + lineNumber
+                        + " of " + file + ". Expected one of " + TARGET_KEYS + " as key=value");
+                }
+                settings.put(setting[0], setting[1]);
+            }
+            if (!names.add(tokens[0])) {
+                throw new IllegalArgumentException("Duplicate target " + tokens[0] + " on line " + lineNumber);
+            }
+            targets.add(new Target(tokens[0], settings));
+        }
+        return targets;
+    }
+
+    /**
+     * Opens a connection to a target; the connection is closed when the target's work is done.
+     */
+    @FunctionalInterface
+    interface Connector {
+        Connection connect(Target target) throws SQLException;
+    }
+
+    /**
+     * The work run against each target.
+     */
+    @FunctionalInterface
+    interface TargetWork {
+        int run(Connection conn) throws Exception;
+    }
+
+    enum Status {
+        SUCCEEDED, FAILED, TIMED_OUT
+    }
+
+    /**
+     * A named connection target.
+     *
+     * @param name the name shown in the results
+     * @param settings the connection settings that differ from the command line options
+     */
+    record Target(String name, Map<String, String> settings) {
+        Target {
+            settings = Map.copyOf(settings);
+        }
+
+        String setting(String key, String defaultValue) {
+            return settings.getOrDefault(key, defaultValue);
+        }
+    }
+
+    /**
+     * The outcome of one target.
+     *
+     * @param target the target name
+     * @param status how the work ended
+     * @param elapsedMillis how long the target took, including connecting
+     * @param message the failure reason, or {@code null}
+     */
+    record TargetResult(String target, Status status, long elapsedMillis, String message) {
+    }
+}
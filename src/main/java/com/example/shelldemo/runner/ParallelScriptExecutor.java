@@ -0,0 +1,172 @@
+package com.example.shelldemo.runner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the scripts of a {@link ScriptPlan}, starting each script as soon as all of its dependencies
+ * have succeeded and running up to {@code parallelism} independent scripts at the same time.
+ * Scripts that depend on a failed script are skipped; with stop-on-error no further scripts are
+ * started after the first failure, while scripts already running are allowed to finish.
+ */
+class ParallelScriptExecutor {
+    private static final Logger log = LoggerFactory.getLogger(ParallelScriptExecutor.class);
+
+    private final int parallelism;
+    private final boolean stopOnError;
+
+    ParallelScriptExecutor(int parallelism, boolean stopOnError) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.stopOnError = stopOnError;
+    }
+
+    /**
+     * Runs all scripts of the plan.
+     *
+     * @param plan the scripts and their dependencies
+     * @param runner runs a single script
+     * @return the outcome of every script, in plan order
+     * @throws InterruptedException if interrupted while waiting for scripts to finish
+     */
+    List<ScriptResult> execute(ScriptPlan plan, ScriptRunner runner) throws InterruptedException {
+        Map<String, ScriptPlan.Script> scripts = new LinkedHashMap<>();
+        Map<String, Integer> pendingDependencies = new HashMap<>();
+        for (ScriptPlan.Script script : plan.getScripts()) {
+            scripts.put(script.name(), script);
+            pendingDependencies.put(script.name(), script.dependencies().size());
+        }
+        Map<String, List<String>> dependents = plan.getDependents();
+        Map<String, ScriptResult> results = new HashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, scripts.size())),
+            new ScriptThreadFactory());
+        try {
+            ExecutorCompletionService<ScriptResult> completion = new ExecutorCompletionService<>(executor);
+            int running = 0;
+            for (ScriptPlan.Script script : scripts.values()) {
+                if (script.dependencies().isEmpty()) {
+                    completion.submit(() -> run(script, runner));
+                    running++;
+                }
+            }
+
+            boolean halted = false;
+            while (running > 0) {
+                ScriptResult result = takeResult(completion);
+                running--;
+                results.put(result.name(), result);
+                if (result.status() != Status.SUCCEEDED) {
+                    halted |= stopOnError;
+                    continue;
+                }
+                for (String dependent : dependents.get(result.name())) {
+                    if (pendingDependencies.merge(dependent, -1, Integer::sum) == 0 && !halted) {
+                        ScriptPlan.Script next = scripts.get(dependent);
+                        completion.submit(() -> run(next, runner));
+                        running++;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<ScriptResult> ordered = new ArrayList<>();
+        for (String name : scripts.keySet()) {
+            ordered.add(results.getOrDefault(name, new ScriptResult(name, Status.SKIPPED, 0, null)));
+        }
+        return ordered;
+    }
+
+    /**
+     * Logs the per-script wall times and outcomes.
+     *
+     * @param results the script outcomes
+     */
+    static void logSummary(List<ScriptResult> results) {
+        int width = results.stream().mapToInt(result -> result.name().length()).max().orElse(6);
+        String format = "%-" + Math.max(width, 6) + "s  %-9s  %10s  %s";
+        log.info("{}", String.format(format, "Script", "Status", "Time (ms)", ""));
+        for (ScriptResult result : results) {
+            log.info("{}", String.format(format, result.name(), result.status(), result.elapsedMillis(),
+                result.error() != null ? result.error() : ""));
+        }
+    }
+
+    private ScriptResult run(ScriptPlan.Script script, ScriptRunner runner) {
+        log.info("Starting script {}", script.name());
+        long start = System.nanoTime();
+        try {
+            int exitCode = runner.run(script.file());
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            log.info("Finished script {} in {} ms", script.name(), elapsed);
+            return exitCode == 0
+                ? new ScriptResult(script.name(), Status.SUCCEEDED, elapsed, null)
+                : new ScriptResult(script.name(), Status.FAILED, elapsed, "exit code " + exitCode);
+        } catch (Exception e) {
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            log.error("Script {} failed after {} ms: {}", script.name(), elapsed, e.getMessage());
+            return new ScriptResult(script.name(), Status.FAILED, elapsed, e.getMessage());
+        }
+    }
+
+    private static ScriptResult takeResult(ExecutorCompletionService<ScriptResult> completion)
+            throws InterruptedException {
+        try {
+            return completion.take().get();
+        } catch (ExecutionException e) {
+            // run() catches every exception a script throws, so only an Error ends up here
+            throw new IllegalStateException("Script task failed unexpectedly", e.getCause());
+        }
+    }
+
+    /**
+     * Runs a single script and returns its exit code.
+     */
+    @FunctionalInterface
+    interface ScriptRunner {
+        int run(File script) throws Exception;
+    }
+
+    enum Status {
+        SUCCEEDED, FAILED, SKIPPED
+    }
+
+    /**
+     * The outcome of one script.
+     *
+     * @param name the script name
+     * @param status whether the script ran successfully, failed or was skipped
+     * @param elapsedMillis the wall time spent running the script
+     * @param error the failure message, or null
+     */
+    record ScriptResult(String name, Status status, long elapsedMillis, String error) {
+    }
+
+    private static final class ScriptThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "script-runner-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
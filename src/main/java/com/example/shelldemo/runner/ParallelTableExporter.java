@@ -0,0 +1,364 @@
+package com.example.shelldemo.runner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.shelldemo.cli.FetchSizePolicy;
+
+/**
+ * Exports one table to CSV by splitting it into chunks that are read in parallel, each on its
+ * own connection and into its own part file. The parts are then either kept or merged into one
+ * file, and the total number of exported rows is checked against {@code COUNT(*)}.
+ * <p>
+ * Tables can be split by ranges of a numeric key column, by Oracle ROWID ranges taken from the
+ * table's extents, or by hash buckets of any column.
+ */
+class ParallelTableExporter {
+    private static final Logger log = LoggerFactory.getLogger(ParallelTableExporter.class);
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$#]*(\\.[A-Za-z_][A-Za-z0-9_$#]*)?");
+
+    private final String dbType;
+    private final ConnectionSource connections;
+    private final FetchSizePolicy fetchSizePolicy;
+    private final DialectBulkPath bulkPath;
+
+    ParallelTableExporter(String dbType, ConnectionSource connections, FetchSizePolicy fetchSizePolicy) {
+        this(dbType, connections, fetchSizePolicy, DialectBulkPath.forDialect(dbType, false));
+    }
+
+    /**
+     * @param dbType the database type
+     * @param connections the source of reader connections
+     * @param fetchSizePolicy the fetch size policy for chunk queries
+     * @param bulkPath how chunks are read and written to their part files
+     */
+    ParallelTableExporter(String dbType, ConnectionSource connections, FetchSizePolicy fetchSizePolicy,
+            DialectBulkPath bulkPath) {
+        this.dbType = dbType.trim().toLowerCase(Locale.ROOT);
+        this.connections = connections;
+        this.fetchSizePolicy = fetchSizePolicy;
+        this.bulkPath = bulkPath;
+    }
+
+    /**
+     * Exports a table.
+     *
+     * @param request what to export and how to split it
+     * @return the number of rows exported
+     * @throws SQLException if a chunk cannot be read or the exported row count does not match the table
+     * @throws IOException if the output cannot be written
+     * @throws InterruptedException if interrupted while waiting for the chunks
+     */
+    long export(ExportRequest request) throws SQLException, IOException, InterruptedException {
+        requireIdentifier(request.table());
+        if (request.splitColumn() != null) {
+            requireIdentifier(request.splitColumn());
+        }
+
+        long expectedRows;
+        List<Chunk> chunks;
+        try (Connection conn = connections.get()) {
+            expectedRows = countRows(conn, request.table());
+            chunks = planChunks(conn, request);
+        }
+        log.info("Exporting {} ({} rows) in {} chunks split by {}", request.table(), expectedRows, chunks.size(),
+            request.split().name().toLowerCase(Locale.ROOT));
+
+        List<Path> parts = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            parts.add(partFile(request.output(), chunk.index()));
+        }
+
+        long exportedRows = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(request.parallelism(), chunks.size()));
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                Path part = parts.get(chunk.index());
+                futures.add(executor.submit(() -> exportChunk(request.table(), chunk, part)));
+            }
+            for (Future<Long> future : futures) {
+                exportedRows += awaitChunk(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (!request.keepParts()) {
+            mergeParts(parts, request.output());
+        }
+        if (exportedRows != expectedRows) {
+            throw new SQLException("Exported " + exportedRows + " rows from " + request.table()
+                + " but the table has " + expectedRows + " rows; was it modified during the export?");
+        }
+        log.info("Exported {} rows from {} to {}", exportedRows, request.table(),
+            request.keepParts() ? parts.size() + " part files" : request.output());
+        return exportedRows;
+    }
+
+    /**
+     * Splits the table into chunks that together cover every row exactly once.
+     *
+     * @param conn a connection for reading the key range or extents
+     * @param request the export request
+     * @return the chunks, indexed from 0
+     * @throws SQLException if the split information cannot be read
+     */
+    List<Chunk> planChunks(Connection conn, ExportRequest request) throws SQLException {
+        return switch (request.split()) {
+            case KEY -> planKeyRanges(conn, request);
+            case ROWID -> planRowidRanges(conn, request);
+            case HASH -> planHashBuckets(request);
+        };
+    }
+
+    private List<Chunk> planKeyRanges(Connection conn, ExportRequest request) throws SQLException {
+        String column = requireSplitColumn(request);
+        long min;
+        long max;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(" + column + "), MAX(" + column + ") FROM " + request.table())) {
+            rs.next();
+            min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return List.of(new Chunk(0, "", List.of()));
+            }
+            max = rs.getLong(2);
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        long span = Math.addExact(Math.subtractExact(max, min), 1);
+        long step = Math.max(1, (span + request.chunks() - 1) / request.chunks());
+        for (long low = min; low <= max; low = Math.addExact(low, step)) {
+            long high = Math.addExact(low, step);
+            chunks.add(new Chunk(chunks.size(), " WHERE " + column + " >= ? AND " + column + " < ?", List.of(low, high)));
+            if (high > max) break;
+        }
+        chunks.add(new Chunk(chunks.size(), " WHERE " + column + " IS NULL", List.of()));
+        return chunks;
+    }
+
+    private List<Chunk> planRowidRanges(Connection conn, ExportRequest request) throws SQLException {
+        if (!dbType.equals("oracle")) {
+            throw new SQLException("ROWID splitting is only supported for Oracle");
+        }
+        String tableName = request.table().substring(request.table().indexOf('.') + 1).toUpperCase(Locale.ROOT);
+        String extentsSql = "SELECT DBMS_ROWID.ROWID_CREATE(1, o.data_object_id, e.relative_fno, e.block_id, 0), "
+            + "DBMS_ROWID.ROWID_CREATE(1, o.data_object_id, e.relative_fno, e.block_id + e.blocks - 1, 32767) "
+            + "FROM user_extents e JOIN user_objects o ON o.object_name = e.segment_name "
+            + "AND NVL(o.subobject_name, '-') = NVL(e.partition_name, '-') "
+            + "WHERE e.segment_name = ? AND o.object_type LIKE 'TABLE%' ORDER BY e.relative_fno, e.block_id";
+
+        List<String[]> extents = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(extentsSql)) {
+            stmt.setString(1, tableName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    extents.add(new String[] {rs.getString(1), rs.getString(2)});
+                }
+            }
+        }
+        if (extents.isEmpty()) {
+            return List.of(new Chunk(0, "", List.of()));
+        }
+
+        // Consecutive extents are grouped so every chunk covers a similar number of extents
+        int chunkCount = Math.min(request.chunks(), extents.size());
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            int from = i * extents.size() / chunkCount;
+            int to = (i + 1) * extents.size() / chunkCount;
+            StringBuilder where = new StringBuilder(" WHERE ");
+            List<Object> params = new ArrayList<>();
+            for (int e = from; e < to; e++) {
+                if (e > from) where.append(" OR ");
+                where.append("ROWID BETWEEN CHARTOROWID(?) AND CHARTOROWID(?)");
+                params.add(extents.get(e)[0]);
+                params.add(extents.get(e)[1]);
+            }
+            chunks.add(new Chunk(i, where.toString(), params));
+        }
+        return chunks;
+    }
+
+    private List<Chunk> planHashBuckets(ExportRequest request) throws SQLException {
+        String column = requireSplitColumn(request);
+        String bucket = switch (dbType) {
+            case "oracle" -> "MOD(ORA_HASH(" + column + "), ?)";
+            case "postgresql" -> "MOD(ABS(HASHTEXT(" + column + "::text)::bigint), ?)";
+            case "mysql" -> "MOD(CRC32(" + column + "), ?)";
+            case "sqlserver" -> "(ABS(CAST(CHECKSUM(" + column + ") AS BIGINT)) % ?)";
+            default -> throw new SQLException("Hash splitting is not supported for " + dbType);
+        };
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i < request.chunks(); i++) {
+            // CHECKSUM(NULL) is not NULL on SQL Server, so NULLs would land in a bucket as well
+            chunks.add(new Chunk(i, " WHERE " + column + " IS NOT NULL AND " + bucket + " = ?",
+                List.of(request.chunks(), i)));
+        }
+        chunks.add(new Chunk(chunks.size(), " WHERE " + column + " IS NULL", List.of()));
+        return chunks;
+    }
+
+    private long exportChunk(String table, Chunk chunk, Path part) throws SQLException, IOException {
+        long start = System.nanoTime();
+        try (Connection conn = connections.get()) {
+            boolean originalAutoCommit = conn.getAutoCommit();
+            // Some drivers (PostgreSQL) only stream results with a cursor inside a transaction
+            conn.setAutoCommit(false);
+            try {
+                long rows = bulkPath.export(conn, "SELECT * FROM " + table + chunk.where(), chunk.parameters(), part,
+                    fetchSizePolicy);
+                log.info("Chunk {} of {}: {} rows in {} ms", chunk.index(), table, rows,
+                    (System.nanoTime() - start) / 1_000_000);
+                return rows;
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(originalAutoCommit);
+            }
+        }
+    }
+
+    private static long awaitChunk(Future<Long> future) throws SQLException, IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) throw sqlException;
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IllegalStateException("Chunk export failed unexpectedly", e.getCause());
+        }
+    }
+
+    /**
+     * Concatenates part files into one CSV file, keeping only the first part's header line,
+     * and deletes the parts.
+     *
+     * @param parts the part files in order
+     * @param output the merged file
+     * @throws IOException if reading the parts or writing the output fails
+     */
+    static void mergeParts(List<Path> parts, Path output) throws IOException {
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < parts.size(); i++) {
+                Path part = parts.get(i);
+                long skip = i == 0 ? 0 : headerLength(part);
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = skip;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        }
+        for (Path part : parts) {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private static long headerLength(Path part) throws IOException {
+        try (InputStream in = Files.newInputStream(part)) {
+            long length = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                length++;
+                if (b == '\n') break;
+            }
+            return length;
+        }
+    }
+
+    static Path partFile(Path output, int index) {
+        String name = output.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String part = String.format("%s.part-%03d%s", dot > 0 ? name.substring(0, dot) : name, index,
+            dot > 0 ? name.substring(dot) : "");
+        return output.resolveSibling(part);
+    }
+
+    private static long countRows(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String requireSplitColumn(ExportRequest request) {
+        if (request.splitColumn() == null) {
+            throw new IllegalArgumentException("Splitting by " + request.split().name().toLowerCase(Locale.ROOT)
+                + " requires a split column");
+        }
+        return request.splitColumn();
+    }
+
+    private static void requireIdentifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid table or column name: " + name);
+        }
+    }
+
+    /**
+     * Borrows connections for the export; each is closed when its chunk is done.
+     */
+    @FunctionalInterface
+    interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+
+    enum Split {
+        KEY, ROWID, HASH
+    }
+
+    /**
+     * What to export and how.
+     *
+     * @param table the table, optionally schema-qualified
+     * @param split how to split the table into chunks
+     * @param splitColumn the key or hash column, unused for ROWID splits
+     * @param chunks the number of chunks to aim for
+     * @param parallelism how many chunks to read at the same time
+     * @param output the CSV file
+     * @param keepParts whether to keep the part files instead of merging them into the output
+     */
+    record ExportRequest(String table, Split split, String splitColumn, int chunks, int parallelism,
+                         Path output, boolean keepParts) {
+        ExportRequest {
+            if (chunks < 1 || parallelism < 1) {
+                throw new IllegalArgumentException("chunks and parallelism must be at least 1");
+            }
+        }
+    }
+
+    /**
+     * One slice of the table.
+     *
+     * @param index the position of the chunk's part file
+     * @param where the WHERE clause selecting the chunk's rows, with a leading space, or empty
+     * @param parameters the bind values for the WHERE clause
+     */
+    record Chunk(int index, String where, List<Object> parameters) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.shelldemo.runner;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the most recently used prepared statements of one connection open, keyed by SQL text,
+ * so that statements sharing a shape are parsed by the database only once.
+ * The least recently used statement is closed when the cache grows past its capacity.
+ */
+class PreparedStatementCache implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    PreparedStatementCache(Connection connection, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached statement for the SQL text, preparing it on first use.
+     * The returned statement stays owned by the cache and must not be closed by the caller.
+     *
+     * @param sql the SQL text with {@code ?} placeholders
+     * @return the prepared statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    /**
+     * Returns the cached callable statement for a call escape, preparing it on first use.
+     * The returned statement stays owned by the cache and must not be closed by the caller.
+     *
+     * @param call the call escape, such as {@code {call proc(?, ?)}}
+     * @return the callable statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    CallableStatement prepareCall(String call) throws SQLException {
+        PreparedStatement stmt = statements.get(call);
+        if (stmt instanceof CallableStatement callable && !callable.isClosed()) {
+            return callable;
+        }
+        if (stmt != null) {
+            closeQuietly(stmt);
+        }
+        CallableStatement callable = connection.prepareCall(call);
+        statements.put(call, callable);
+        return callable;
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    @Override
+    public void close() {
+        statements.values().forEach(PreparedStatementCache::closeQuietly);
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            log.warn("Failed to close cached statement: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.shelldemo.runner;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The parameters of a stored procedure or function as reported by
+ * {@link DatabaseMetaData#getProcedureColumns}, together with the call escape that invokes it.
+ *
+ * @param name the procedure name as given by the user
+ * @param function whether the routine returns a value
+ * @param parameters the placeholders of the call, in order, excluding the return value
+ * @param returnValue the return value of a function, or {@code null} if the metadata has none
+ */
+record ProcedureSignature(String name, boolean function, List<Parameter> parameters, Parameter returnValue) {
+
+    ProcedureSignature {
+        parameters = List.copyOf(parameters);
+    }
+
+    enum Mode {
+        IN, OUT, INOUT;
+
+        boolean isInput() {
+            return this != OUT;
+        }
+
+        boolean isOutput() {
+            return this != IN;
+        }
+    }
+
+    /**
+     * One parameter of a routine.
+     *
+     * @param name the parameter name, or {@code null} if the driver does not report one
+     * @param mode the direction
+     * @param sqlType the {@link java.sql.Types} constant or vendor type code
+     * @param typeName the database type name
+     */
+    record Parameter(String name, Mode mode, int sqlType, String typeName) {
+    }
+
+    /**
+     * Returns the JDBC call escape with one placeholder per parameter.
+     */
+    String callString() {
+        StringBuilder call = new StringBuilder(function ? "{? = call " : "{call ").append(name).append('(');
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) call.append(", ");
+            call.append('?');
+        }
+        return call.append(")}").toString();
+    }
+
+    /**
+     * Reads the signature of a routine from the database metadata. Names may be qualified as
+     * {@code proc}, {@code schema.proc} or {@code package.proc}, and {@code schema.package.proc};
+     * of overloaded routines the one taking {@code argumentCount} parameters is chosen.
+     *
+     * @param conn the connection whose metadata to read
+     * @param name the routine name
+     * @param function whether the routine is called as a function
+     * @param argumentCount the number of parameters the caller supplies
+     * @return the signature, or {@code null} if the driver reports no matching routine
+     * @throws SQLException if reading the metadata fails
+     */
+    static ProcedureSignature describe(Connection conn, String name, boolean function, int argumentCount)
+            throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        String[] parts = normalize(metaData, name).split("\\.");
+        List<String[]> lookups = switch (parts.length) {
+            case 1 -> List.<String[]>of(new String[] {null, null, parts[0]});
+            // Oracle reports the package of a packaged routine as its catalog
+            case 2 -> List.of(new String[] {null, parts[0], parts[1]}, new String[] {parts[0], null, parts[1]});
+            case 3 -> List.<String[]>of(new String[] {parts[1], parts[0], parts[2]});
+            default -> throw new IllegalArgumentException("Invalid procedure name: " + name);
+        };
+
+        for (String[] lookup : lookups) {
+            Map<String, List<Column>> overloads = readColumns(metaData, lookup[0], lookup[1], lookup[2]);
+            if (overloads.isEmpty()) {
+                continue;
+            }
+            List<Column> chosen = null;
+            for (List<Column> columns : overloads.values()) {
+                long placeholders = columns.stream().filter(column -> column.mode() != null).count();
+                if (placeholders == argumentCount) {
+                    chosen = columns;
+                    break;
+                }
+            }
+            if (chosen == null && overloads.size() == 1) {
+                chosen = overloads.values().iterator().next();
+            }
+            return chosen == null ? null : toSignature(name, function, chosen);
+        }
+        return null;
+    }
+
+    private static ProcedureSignature toSignature(String name, boolean function, List<Column> columns) {
+        List<Parameter> parameters = new ArrayList<>();
+        Parameter returnValue = null;
+        for (Column column : columns) {
+            if (column.mode() == null) {
+                returnValue = new Parameter(column.name(), Mode.OUT, column.sqlType(), column.typeName());
+            } else {
+                parameters.add(new Parameter(column.name(), column.mode(), column.sqlType(), column.typeName()));
+            }
+        }
+        return new ProcedureSignature(name, function, parameters, returnValue);
+    }
+
+    private static Map<String, List<Column>> readColumns(DatabaseMetaData metaData, String catalog, String schema,
+            String procedure) throws SQLException {
+        Map<String, List<Column>> overloads = new LinkedHashMap<>();
+        try (ResultSet rs = metaData.getProcedureColumns(catalog, schema, procedure, "%")) {
+            while (rs.next()) {
+                short columnType = rs.getShort("COLUMN_TYPE");
+                Mode mode = switch (columnType) {
+                    case DatabaseMetaData.procedureColumnIn -> Mode.IN;
+                    case DatabaseMetaData.procedureColumnInOut -> Mode.INOUT;
+                    case DatabaseMetaData.procedureColumnOut -> Mode.OUT;
+                    default -> null;
+                };
+                String columnName = rs.getString("COLUMN_NAME");
+                int sqlType = rs.getInt("DATA_TYPE");
+                boolean isReturn = columnType == DatabaseMetaData.procedureColumnReturn;
+                List<Column> columns = overloads.computeIfAbsent(overloadKey(rs), key -> new ArrayList<>());
+                // Oracle reports a routine without parameters as one row with neither name nor type
+                if (isReturn || mode != null && (columnName != null || sqlType != 0)) {
+                    columns.add(new Column(columnName, mode, sqlType, rs.getString("TYPE_NAME"),
+                        rs.getInt("ORDINAL_POSITION")));
+                }
+            }
+        }
+        overloads.values().forEach(columns -> columns.sort(Comparator.comparingInt(Column::position)));
+        return overloads;
+    }
+
+    private static String overloadKey(ResultSet rs) throws SQLException {
+        String specificName;
+        try {
+            specificName = rs.getString("SPECIFIC_NAME");
+        } catch (SQLException e) {
+            specificName = null;
+        }
+        return rs.getString("PROCEDURE_CAT") + "." + rs.getString("PROCEDURE_SCHEM") + "." + rs.getString("PROCEDURE_NAME")
+            + (specificName != null ? "#" + specificName : "");
+    }
+
+    private static String normalize(DatabaseMetaData metaData, String name) throws SQLException {
+        String trimmed = name.trim();
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return trimmed.toUpperCase(Locale.ROOT);
+        }
+        if (metaData.storesLowerCaseIdentifiers()) {
+            return trimmed.toLowerCase(Locale.ROOT);
+        }
+        return trimmed;
+    }
+
+    /**
+     * A row of the procedure metadata; a {@code null} mode marks the return value.
+     */
+    private record Column(String name, Mode mode, int sqlType, String typeName, int position) {
+    }
+}
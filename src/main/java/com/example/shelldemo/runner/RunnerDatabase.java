@@ -1,18 +1,19 @@
 package com.example.shelldemo.runner;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.sql.CallableStatement;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
-import java.sql.Types;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -20,12 +21,13 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ServiceLoader;
 import java.sql.ResultSet;
-import java.io.FileWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.example.shelldemo.cli.ConnectionConfig;
+import com.example.shelldemo.cli.FetchSizePolicy;
+import com.example.shelldemo.cli.ResultCache;
 import com.example.shelldemo.cli.UnifiedDatabaseOperation;
 import com.example.shelldemo.exception.DatabaseException;
 import com.example.shelldemo.analysis.CommandData;
@@ -50,8 +52,15 @@ public class RunnerDatabase implements Callable<Integer> {
     private final Map<String, CommandTestResults> testResults = new ConcurrentHashMap<>();
     private final String basePackage;
 
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final int CSV_FETCH_SIZE = 1000;
+    private static final int LOAD_BATCH_SIZE = 1000;
+
     private UnifiedDatabaseOperation dbOperation;
     private final ConnectionConfig config;
+    private FetchSizePolicy fetchSizePolicy = FetchSizePolicy.DRIVER_DEFAULT;
+    private ScriptProfiler profiler = ScriptProfiler.DISABLED;
+    private int queryFetchSize;
 
     @Option(names = {"-t", "--type"}, required = true,
         description = "Database type (oracle, sqlserver, postgresql, mysql)")
@@ -85,7 +94,48 @@ public class RunnerDatabase implements Callable<Integer> {
         description = "Print SQL statements")
     private boolean printStatements;
 
-    @Parameters(index = "0", description = "SQL script file or stored procedure name")
+    @Option(names = {"--batch-size"}, defaultValue = "0",
+        description = "Send consecutive INSERT/UPDATE/DELETE/MERGE statements in JDBC batches of this size (0 disables batching); "
+            + "Oracle's driver runs unparameterized batches one statement at a time; --load-table defaults to 1000")
+    private int batchSize;
+
+    @Option(names = {"--bind-literals"}, defaultValue = "false",
+        description = "Turn the literals of INSERT ... VALUES statements into bind parameters and reuse "
+            + "one prepared statement per statement shape")
+    private boolean bindLiterals;
+
+    @Option(names = {"--profile"},
+        description = "Write the timing of every script statement to this file, as JSON if it ends in .json and as CSV otherwise")
+    private String profileFile;
+
+    @Option(names = {"--slowest"}, defaultValue = "0",
+        description = "Report the N slowest script statements at the end of the run")
+    private int slowest;
+
+    @Option(names = {"--result-cache-ttl"}, defaultValue = "0",
+        description = "Reuse the results of read-only script queries for this many seconds; statements that write "
+            + "a table invalidate the results read from it (0 disables the cache)")
+    private int resultCacheTtlSeconds;
+
+    @Option(names = {"--result-cache-size"}, defaultValue = "256",
+        description = "Most query results kept in memory by --result-cache-ttl")
+    private int resultCacheSize;
+
+    @Option(names = {"--result-cache-dir"},
+        description = "Also keep cached query results in this directory, for later runs to reuse")
+    private String resultCacheDir;
+
+    @Option(names = {"--pipeline"}, defaultValue = "false",
+        description = "Parse ahead and render query results on separate threads while statements execute")
+    private boolean pipeline;
+
+    @Option(names = {"--parallel-ddl"}, defaultValue = "false",
+        description = "Build the indexes and constraints of a script on up to --parallelism pooled connections, "
+            + "leaving one for the script, while the rest of the script runs in order")
+    private boolean parallelDdl;
+
+    @Parameters(index = "0", arity = "0..1",
+        description = "SQL script file, directory or .manifest file of scripts, or stored procedure name")
     private String target;
 
     @Option(names = {"--function"}, description = "Execute as function")
@@ -104,12 +154,110 @@ public class RunnerDatabase implements Callable<Integer> {
     @Option(names = {"--io"}, description = "Input/Output parameters (name:type:value,...)")
     private String ioParams;
 
+    @Option(names = {"--param-file"},
+        description = "Call the stored procedure once per row of this CSV file, whose header names the parameters "
+            + "(name or name:type); calls are sent in batches of --batch-size (default 1000) and committed every "
+            + "--commit-every rows")
+    private String paramFile;
+
     @Option(names = {"--driver-path"}, description = "Path to JDBC driver JAR file")
     private String driverPath;
 
     @Option(names = {"--csv-output"}, description = "Output file for CSV format (if query results exist)")
     private String csvOutputFile;
 
+    @Option(names = {"--columnar-output"},
+        description = "Output file for the compressed columnar binary format (if query results exist)")
+    private String columnarOutputFile;
+
+    @Option(names = {"--export-table"},
+        description = "Export this table to --csv-output in parallel chunks instead of running a script")
+    private String exportTable;
+
+    @Option(names = {"--split"}, defaultValue = "key",
+        description = "How --export-table splits the table: key (numeric key ranges), rowid (Oracle extents) or hash")
+    private String split;
+
+    @Option(names = {"--split-column"}, description = "Key or hash column for --split key/hash")
+    private String splitColumn;
+
+    @Option(names = {"--chunks"}, defaultValue = "0",
+        description = "Number of chunks for --export-table (0 uses the parallelism)")
+    private int chunks;
+
+    @Option(names = {"--keep-parts"}, defaultValue = "false",
+        description = "Keep the per-chunk part files of --export-table instead of merging them")
+    private boolean keepParts;
+
+    @Option(names = {"--targets"},
+        description = "Run the script or stored procedure against every target in this file, one line per target: "
+            + "name [host=..] [port=..] [database=..] [username=..] [password=..] [schema=..]")
+    private String targetsFile;
+
+    @Option(names = {"--max-concurrency"}, defaultValue = "32",
+        description = "Maximum number of --targets worked on at the same time")
+    private int maxConcurrency;
+
+    @Option(names = {"--target-timeout"}, defaultValue = "0",
+        description = "Seconds allowed per --targets entry before its connection is aborted (0 for no limit)")
+    private int targetTimeoutSeconds;
+
+    @Option(names = {"--load-table"},
+        description = "Load the CSV file given as the target into this table instead of running a script")
+    private String loadTable;
+
+    @Option(names = {"--load-columns"}, split = ",",
+        description = "CSV fields to load, as field or field=column (default: every field into the column of the same name)")
+    private List<String> loadColumns = new ArrayList<>();
+
+    @Option(names = {"--commit-every"}, defaultValue = "10000",
+        description = "Number of rows --load-table or --param-file commits per transaction")
+    private int commitEvery;
+
+    @Option(names = {"--resume"}, defaultValue = "false",
+        description = "Resume --load-table, or a script, after the rows or statements committed by an earlier, failed run")
+    private boolean resume;
+
+    @Option(names = {"--commit-statements"}, defaultValue = "1",
+        description = "Commit a script every this many statements when --auto-commit is false, recording progress "
+            + "in <script>.run-checkpoint for --resume")
+    private int commitStatements;
+
+    @Option(names = {"--commit-seconds"}, defaultValue = "0",
+        description = "Also commit a script once this many seconds have passed since the last commit (0 for no limit)")
+    private int commitSeconds;
+
+    @Option(names = {"--jdbc-bulk"}, defaultValue = "false",
+        description = "Use batched JDBC for --load-table and --export-table instead of the database's native bulk path "
+            + "(COPY, LOAD DATA LOCAL INFILE, bulk copy, direct-path insert)")
+    private boolean jdbcBulk;
+
+    @Option(names = {"--fetch-size"},
+        description = "Rows fetched per round trip for query results, or 'adaptive' to grow the fetch size "
+            + "within --fetch-memory-mb (default: driver default, 1000 for --csv-output)")
+    private String fetchSize;
+
+    @Option(names = {"--fetch-memory-mb"}, defaultValue = "16",
+        description = "Memory budget per fetch for --fetch-size adaptive")
+    private int fetchMemoryMb;
+
+    @Option(names = {"--pool-min-size"}, defaultValue = "1",
+        description = "Connections opened up front and kept open while idle")
+    private int poolMinSize;
+
+    @Option(names = {"--pool-max-size"}, defaultValue = "10",
+        description = "Maximum number of open database connections")
+    private int poolMaxSize;
+
+    @Option(names = {"--parallelism"}, defaultValue = "0",
+        description = "Scripts of a directory or manifest, or chunks of --export-table, processed at the same time "
+            + "(0 uses --pool-max-size)")
+    private int parallelism;
+
+    @Option(names = {"--leak-detection-ms"}, defaultValue = "0",
+        description = "Log connections held longer than this many milliseconds (0 disables leak detection)")
+    private long leakDetectionMillis;
+
     public RunnerDatabase(String basePackage) {
         this.basePackage = basePackage;
         this.config = new ConnectionConfig();
@@ -143,17 +291,58 @@ public class RunnerDatabase implements Callable<Integer> {
             config.setPassword(password);
             config.setDatabase(database);
             config.setPort(port > 0 ? port : getDefaultPort());
+            config.setMinPoolSize(poolMinSize);
+            config.setMaxPoolSize(poolMaxSize);
+            config.setLeakDetectionThresholdMillis(leakDetectionMillis);
+            fetchSizePolicy = resolveFetchSizePolicy();
+            queryFetchSize = fetchSizePolicy.getInitialFetchSize();
+            config.setFetchSizePolicy(fetchSizePolicy);
+            config.setResultCacheTtlMillis(resultCacheTtlSeconds * 1000L);
+            config.setResultCacheMaxEntries(resultCacheSize);
+            config.setResultCacheDirectory(resultCacheDir);
 
             // Create database operation with validated dbType
             String validatedDbType = dbType.trim().toLowerCase();
             if (!isValidDbType(validatedDbType)) {
                 throw new DatabaseException("Invalid database type: " + validatedDbType + ". Supported types are: oracle, sqlserver, postgresql, mysql");
             }
+            if (parallelDdl && (targetsFile != null || usesCheckpoint())) {
+                throw new IllegalArgumentException(
+                    "--parallel-ddl cannot be combined with --targets, --resume, --commit-statements or --commit-seconds");
+            }
+            if (parallelDdl && target != null && ScriptPlan.isPlan(new File(target))) {
+                // the plan's scripts already hold pool connections of their own at the same time
+                throw new IllegalArgumentException("--parallel-ddl runs a single script, not a directory or manifest");
+            }
+            if (parallelDdl && poolMaxSize < 2) {
+                throw new IllegalArgumentException("--parallel-ddl needs a --pool-max-size of at least 2");
+            }
+            profiler = ScriptProfiler.open(profileFile != null ? Path.of(profileFile) : null, slowest);
+            if (targetsFile != null) {
+                return runFanOut(validatedDbType);
+            }
             dbOperation = UnifiedDatabaseOperation.create(validatedDbType, config);
 
             // Determine operation type
+            if (exportTable != null) {
+                return runTableExport();
+            }
+            if (target == null) {
+                if (loadTable != null) {
+                    throw new DatabaseException("--load-table requires a CSV file");
+                }
+                throw new DatabaseException("A script file, script directory or stored procedure name is required");
+            }
+            if (loadTable != null) {
+                return runTableLoad();
+            }
             File scriptFile = new File(target);
-            if (scriptFile.exists()) {
+            if (batchSize > 1 && isOracle() && !bindLiterals) {
+                log.warn("Oracle runs statement batches one statement at a time; combine --batch-size with --bind-literals to save round trips");
+            }
+            if (ScriptPlan.isPlan(scriptFile)) {
+                return runScriptPlan(scriptFile);
+            } else if (scriptFile.exists()) {
                 return runScript(scriptFile);
             } else {
                 return runStoredProc();
@@ -162,6 +351,27 @@ public class RunnerDatabase implements Callable<Integer> {
             throw new DatabaseException(formatOracleError(e), e);
         } catch (Exception e) {
             throw new DatabaseException("Database operation failed: " + e.getMessage(), e);
+        } finally {
+            if (dbOperation != null) {
+                logResultCache();
+                dbOperation.close();
+            }
+            closeProfiler();
+        }
+    }
+
+    private void logResultCache() {
+        ResultCache resultCache = dbOperation.getResultCache();
+        if (resultCache != null) {
+            log.info("Result cache: {} hits, {} misses", resultCache.getHits(), resultCache.getMisses());
+        }
+    }
+
+    private void closeProfiler() {
+        try {
+            profiler.close();
+        } catch (IOException e) {
+            log.warn("Could not write statement profile: {}", e.getMessage());
         }
     }
 
@@ -172,6 +382,26 @@ public class RunnerDatabase implements Callable<Integer> {
                dbType.equals("mysql");
     }
 
+    private FetchSizePolicy resolveFetchSizePolicy() {
+        if (fetchSize == null) {
+            return csvOutputFile != null || columnarOutputFile != null
+                ? FetchSizePolicy.fixed(CSV_FETCH_SIZE) : FetchSizePolicy.DRIVER_DEFAULT;
+        }
+        if ("adaptive".equalsIgnoreCase(fetchSize.trim())) {
+            return FetchSizePolicy.adaptive(fetchMemoryMb * 1024L * 1024L);
+        }
+        try {
+            return FetchSizePolicy.fixed(Integer.parseInt(fetchSize.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid fetch size: " + fetchSize
+                + ". Expected a number of rows or 'adaptive'");
+        }
+    }
+
+    private boolean isOracle() {
+        return "oracle".equalsIgnoreCase(dbType.trim());
+    }
+
     private int getDefaultPort() {
         switch (dbType.toLowerCase()) {
             case "oracle":
@@ -187,63 +417,6 @@ public class RunnerDatabase implements Callable<Integer> {
         }
     }
 
-    private List<String> parseSqlFile(File scriptFile) throws IOException {
-        List<String> statements = new ArrayList<>();
-        StringBuilder currentStatement = new StringBuilder();
-        boolean inMultilineComment = false;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(scriptFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = processLine(line, inMultilineComment);
-                if (line == null) continue;
-                
-                currentStatement.append(line).append("\n");
-                
-                if (line.endsWith(";")) {
-                    addStatement(statements, currentStatement);
-                    currentStatement.setLength(0);
-                }
-            }
-            
-            addStatement(statements, currentStatement);
-        }
-        
-        return statements;
-    }
-
-    private String processLine(String line, boolean inMultilineComment) {
-        line = line.trim();
-        if (line.isEmpty()) return null;
-        
-        if (inMultilineComment) {
-            return null;
-        }
-        
-        if (line.startsWith("/*")) {
-            return null;
-        }
-        
-        if (line.startsWith("--") || line.startsWith("//")) {
-            return null;
-        }
-        
-        int commentStart = line.indexOf("--");
-        return commentStart >= 0 ? line.substring(0, commentStart).trim() : line;
-    }
-
-    private void addStatement(List<String> statements, StringBuilder currentStatement) {
-        String stmt = currentStatement.toString().trim();
-        if (!stmt.isEmpty()) {
-            if (stmt.endsWith(";")) {
-                stmt = stmt.substring(0, stmt.length() - 1).trim();
-            }
-            if (!stmt.isEmpty()) {
-                statements.add(stmt);
-            }
-        }
-    }
-
     private String formatOracleError(SQLException e) {
         String message = e.getMessage();
         int oraIndex = message.indexOf("ORA-");
@@ -263,52 +436,228 @@ public class RunnerDatabase implements Callable<Integer> {
         return message;
     }
 
-    private void executeSqlStatement(Connection conn, String sql) throws SQLException {
+    private void executeSqlStatement(Connection conn, PreparedStatementCache statementCache,
+            ScriptPipeline scriptPipeline, ScriptCommitter committer, ScriptProfiler.Run profile,
+            ResultCache.Session cache, BoundStatement statement) throws SQLException {
         if (printStatements) {
-            log.info("Executing: {}", sql);
+            log.info("Executing: {}", statement.text());
         }
-        
-        try (Statement stmt = csvOutputFile != null ? 
-                conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY) :
-                conn.createStatement()) {
-                
-            boolean isQuery = stmt.execute(sql);
-            
-            if (isQuery) {
-                try (var rs = stmt.getResultSet()) {
-                    if (csvOutputFile != null) {
-                        writeQueryResultsToCsv(rs);
-                    } else {
-                        displayQueryResults(rs);
+
+        committer.executing(statement);
+        ScriptProfiler.Sample sample = profile.start(statement);
+        try {
+            cache.executing(statement.sql());
+            ResultCache.Lookup lookup = cache.lookup(statement.sql(), statement.parameters());
+            ResultSet cached = lookup.result();
+            if (cached != null) {
+                sample.executed();
+                renderResults(cached, scriptPipeline, sample);
+            } else if (statement.isParameterized()) {
+                PreparedStatement stmt = statementCache.prepare(statement.sql());
+                statement.bindTo(stmt);
+                if (queryFetchSize > 0) {
+                    stmt.setFetchSize(queryFetchSize);
+                }
+                boolean isQuery = stmt.execute();
+                sample.executed();
+                processResults(stmt, scriptPipeline, sample, lookup, isQuery);
+            } else {
+                try (Statement stmt = conn.createStatement()) {
+                    if (queryFetchSize > 0) {
+                        stmt.setFetchSize(queryFetchSize);
                     }
+                    boolean isQuery = stmt.execute(statement.sql());
+                    sample.executed();
+                    processResults(stmt, scriptPipeline, sample, lookup, isQuery);
                 }
             }
-            
-            if (!autoCommit) {
-                conn.commit();
-            }
         } catch (SQLException e) {
-            if (!autoCommit) {
-                conn.rollback();
-            }
+            finishSample(sample, true);
+            List<BoundStatement> rolledBack = committer.rollback();
             log.error(formatOracleError(e));
             if (stopOnError) {
                 throw e;
             }
+            replay(conn, statementCache, scriptPipeline, committer, profile, cache, rolledBack);
+            committer.skipped();
+            return;
         }
+        finishSample(sample, false);
+        committer.executed(List.of(statement));
     }
 
-    private void writeQueryResultsToCsv(ResultSet rs) throws SQLException {
+    private void finishSample(ScriptProfiler.Sample sample, boolean failed) {
         try {
-            rs.beforeFirst();
-            writeResultsToCsv(rs, csvOutputFile);
-            log.info("CSV output written to: {}", csvOutputFile);
+            sample.finish(failed);
+        } catch (IOException e) {
+            log.warn("Could not write statement profile: {}", e.getMessage());
+        }
+    }
+
+    private void replay(Connection conn, PreparedStatementCache statementCache, ScriptPipeline scriptPipeline,
+            ScriptCommitter committer, ScriptProfiler.Run profile, ResultCache.Session cache,
+            List<BoundStatement> statements) throws SQLException {
+        for (BoundStatement statement : statements) {
+            if (ScriptCommitter.needsReplay(statement)) {
+                executeSqlStatement(conn, statementCache, scriptPipeline, committer, profile, cache, statement);
+            } else {
+                committer.executed(List.of(statement));
+            }
+        }
+    }
+
+    private void processResults(Statement stmt, ScriptPipeline scriptPipeline, ScriptProfiler.Sample sample,
+            ResultCache.Lookup lookup, boolean isQuery) throws SQLException {
+        if (isQuery) {
+            renderResults(lookup.record(stmt.getResultSet()), scriptPipeline, sample);
+        } else {
+            sample.affected(stmt.getUpdateCount());
+        }
+    }
+
+    private void renderResults(ResultSet resultSet, ScriptPipeline scriptPipeline, ScriptProfiler.Sample sample)
+            throws SQLException {
+        try (ResultSet rs = resultSet) {
+            FetchSizePolicy.Tuner rows = sample.track(fetchSizePolicy.tune(rs));
+            // Columnar output needs typed values, so it is written on the executing thread
+            if (csvOutputFile == null && columnarOutputFile != null) {
+                writeQueryResultsToColumnar(rs, rows);
+            } else if (scriptPipeline != null) {
+                scriptPipeline.submitResult(rs, rows);
+            } else if (csvOutputFile != null) {
+                writeQueryResultsToCsv(rs, rows);
+            } else {
+                displayQueryResults(rs, rows);
+            }
+        }
+        sample.consumed();
+    }
+
+    private void executeBatch(Connection conn, PreparedStatementCache statementCache, ScriptPipeline scriptPipeline,
+            ScriptCommitter committer, ScriptProfiler.Run profile, ResultCache.Session cache, SqlStatementBatch batch)
+            throws SQLException {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        List<BoundStatement> pending = batch.drain();
+        ScriptProfiler.Sample sample = profile.start(pending);
+        for (BoundStatement statement : pending) {
+            cache.executing(statement.sql());
+        }
+        try {
+            if (pending.get(0).isParameterized()) {
+                addUpdateCounts(sample, executePreparedBatch(statementCache, pending));
+            } else {
+                try (Statement stmt = conn.createStatement()) {
+                    for (BoundStatement statement : pending) {
+                        if (printStatements) {
+                            log.info("Batching: {}", statement.text());
+                        }
+                        stmt.addBatch(statement.sql());
+                    }
+                    addUpdateCounts(sample, stmt.executeBatch());
+                }
+            }
+        } catch (BatchUpdateException e) {
+            finishSample(sample, true);
+            handleBatchFailure(conn, statementCache, scriptPipeline, committer, profile, cache, pending, e);
+            return;
+        }
+        finishSample(sample, false);
+        committer.executed(pending);
+    }
+
+    private static void addUpdateCounts(ScriptProfiler.Sample sample, int[] updateCounts) {
+        sample.executed();
+        for (int updateCount : updateCounts) {
+            sample.affected(updateCount);
+        }
+    }
+
+    private int[] executePreparedBatch(PreparedStatementCache statementCache, List<BoundStatement> pending)
+            throws SQLException {
+        PreparedStatement stmt = statementCache.prepare(pending.get(0).sql());
+        try {
+            for (BoundStatement statement : pending) {
+                if (printStatements) {
+                    log.info("Batching: {}", statement.text());
+                }
+                statement.bindTo(stmt);
+                stmt.addBatch();
+            }
+            return stmt.executeBatch();
+        } finally {
+            // The statement is reused for later batches of the same shape
+            stmt.clearBatch();
+        }
+    }
+
+    /**
+     * Reports a failed batch per statement. Without auto-commit nothing from the batch has been
+     * committed, so the batch is rolled back, together with the statements before it that were
+     * not committed yet, and replayed one statement at a time; this yields exactly the error
+     * reporting and stop-on-error behaviour of unbatched execution.
+     * With auto-commit the driver's update counts tell which statements already ran.
+     */
+    private void handleBatchFailure(Connection conn, PreparedStatementCache statementCache,
+            ScriptPipeline scriptPipeline, ScriptCommitter committer, ScriptProfiler.Run profile,
+            ResultCache.Session cache, List<BoundStatement> pending, BatchUpdateException e) throws SQLException {
+        if (!autoCommit) {
+            List<BoundStatement> rolledBack = committer.rollback();
+            log.warn("Batch of {} statements failed, replaying individually: {}", pending.size(), formatOracleError(e));
+            replay(conn, statementCache, scriptPipeline, committer, profile, cache, rolledBack);
+            for (BoundStatement statement : pending) {
+                executeSqlStatement(conn, statementCache, scriptPipeline, committer, profile, cache, statement);
+            }
+            return;
+        }
+
+        int[] updateCounts = e.getUpdateCounts() != null ? e.getUpdateCounts() : new int[0];
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                log.error("{} [statement: {}]", formatOracleError(e), pending.get(i).text());
+                committer.skipped();
+            } else {
+                committer.executed(List.of(pending.get(i)));
+            }
+        }
+
+        // Drivers that stop at the first error only report counts for the statements before it
+        if (updateCounts.length < pending.size()) {
+            log.error("{} [statement: {}]", formatOracleError(e), pending.get(updateCounts.length).text());
+            if (!stopOnError) {
+                committer.skipped();
+                for (BoundStatement statement : pending.subList(updateCounts.length + 1, pending.size())) {
+                    executeSqlStatement(conn, statementCache, scriptPipeline, committer, profile, cache, statement);
+                }
+            }
+        }
+
+        if (stopOnError) {
+            throw e;
+        }
+    }
+
+    private void writeQueryResultsToCsv(ResultSet rs, FetchSizePolicy.Tuner tuner) throws SQLException {
+        try {
+            long rows = CsvResultWriter.export(rs, Path.of(csvOutputFile), tuner);
+            log.info("CSV output written to: {} ({} rows)", csvOutputFile, rows);
         } catch (IOException e) {
             log.error("Error writing to CSV file: {}", e.getMessage());
         }
     }
 
-    private void displayQueryResults(ResultSet rs) throws SQLException {
+    private void writeQueryResultsToColumnar(ResultSet rs, FetchSizePolicy.Tuner tuner) throws SQLException {
+        try {
+            long rows = ColumnarResultWriter.export(rs, Path.of(columnarOutputFile), tuner);
+            log.info("Columnar output written to: {} ({} rows)", columnarOutputFile, rows);
+        } catch (IOException e) {
+            log.error("Error writing to columnar file: {}", e.getMessage());
+        }
+    }
+
+    private void displayQueryResults(ResultSet rs, FetchSizePolicy.Tuner tuner) throws SQLException {
         var metaData = rs.getMetaData();
         int columnCount = metaData.getColumnCount();
         
@@ -321,7 +670,7 @@ public class RunnerDatabase implements Callable<Integer> {
         log.info("{}", header);
         
         // Print rows
-        while (rs.next()) {
+        while (tuner.next()) {
             StringBuilder row = new StringBuilder();
             for (int i = 1; i <= columnCount; i++) {
                 if (i > 1) row.append(",");
@@ -332,32 +681,274 @@ public class RunnerDatabase implements Callable<Integer> {
         }
     }
 
+    private int runScriptPlan(File target) throws IOException, InterruptedException {
+        ScriptPlan plan = ScriptPlan.load(target);
+        int threads = effectiveParallelism();
+        log.info("Running {} scripts from {} with up to {} at a time", plan.getScripts().size(), target, threads);
+
+        List<ParallelScriptExecutor.ScriptResult> results =
+            new ParallelScriptExecutor(threads, stopOnError).execute(plan, this::runScript);
+        ParallelScriptExecutor.logSummary(results);
+        return results.stream().allMatch(result -> result.status() == ParallelScriptExecutor.Status.SUCCEEDED) ? 0 : 1;
+    }
+
+    private int runTableExport() throws SQLException, IOException, InterruptedException {
+        if (csvOutputFile == null) {
+            throw new IllegalArgumentException("--export-table requires --csv-output");
+        }
+        ParallelTableExporter.Split splitBy;
+        try {
+            splitBy = ParallelTableExporter.Split.valueOf(split.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid split: " + split + ". Supported splits are: key, rowid, hash");
+        }
+
+        int threads = effectiveParallelism();
+        ParallelTableExporter.ExportRequest request = new ParallelTableExporter.ExportRequest(exportTable, splitBy,
+            splitColumn, chunks > 0 ? chunks : threads, threads, Path.of(csvOutputFile), keepParts);
+        new ParallelTableExporter(dbType, dbOperation::getConnection, fetchSizePolicy, bulkPath(false)).export(request);
+        return 0;
+    }
+
+    private int runTableLoad() throws SQLException, IOException, InterruptedException {
+        Path input = Path.of(target);
+        CsvTableLoader.LoadRequest request = new CsvTableLoader.LoadRequest(input, loadTable, loadColumns,
+            batchSize > 0 ? batchSize : LOAD_BATCH_SIZE, commitEvery, effectiveParallelism(),
+            CsvTableLoader.checkpointFile(input), resume);
+        new CsvTableLoader(dbOperation::getConnection, bulkPath(request.parallelism() == 1)).load(request);
+        return 0;
+    }
+
+    private DialectBulkPath bulkPath(boolean exclusiveWriter) {
+        return jdbcBulk ? DialectBulkPath.jdbc() : DialectBulkPath.forDialect(dbType, exclusiveWriter);
+    }
+
+    private int effectiveParallelism() {
+        return parallelism > 0 ? parallelism : poolMaxSize;
+    }
+
+    /**
+     * Gets the number of index and constraint builds run at once. The script holds a pooled
+     * connection for its whole run, so the builds get at most the rest of the pool; more workers
+     * would wait for connections that never come back until the script ends.
+     */
+    private int buildParallelism() {
+        return Math.max(1, Math.min(effectiveParallelism(), poolMaxSize - 1));
+    }
+
     private int runScript(File scriptFile) throws SQLException {
-        return dbOperation.executeTransaction(conn -> {
-            conn.setAutoCommit(autoCommit);
-            
-            try {
-                List<String> statements = parseSqlFile(scriptFile);
-                for (String sql : statements) {
-                    executeSqlStatement(conn, sql);
+        ResultCache.Session cache = dbOperation.newCacheSession();
+        return dbOperation.executeTransaction(cache, conn -> executeScript(conn, scriptFile, true, cache));
+    }
+
+    int executeScript(Connection conn, File scriptFile) throws SQLException {
+        return executeScript(conn, scriptFile, true);
+    }
+
+    /**
+     * Runs a script on a connection.
+     *
+     * @param conn the connection
+     * @param scriptFile the script
+     * @param checkpointed whether this run owns the script's checkpoint file; runs of the same
+     *     script against several targets must not share it
+     * @return the exit code
+     * @throws SQLException if a statement fails with stop-on-error, or the script cannot be read
+     */
+    int executeScript(Connection conn, File scriptFile, boolean checkpointed) throws SQLException {
+        return executeScript(conn, scriptFile, checkpointed,
+            dbOperation != null ? dbOperation.newCacheSession() : ResultCache.Session.DISABLED);
+    }
+
+    private int executeScript(Connection conn, File scriptFile, boolean checkpointed, ResultCache.Session cache)
+            throws SQLException {
+        conn.setAutoCommit(autoCommit);
+
+        SqlStatementBatch batch = batchSize > 1 ? new SqlStatementBatch(batchSize) : null;
+        try (SqlScriptReader reader = new SqlScriptReader(scriptFile, isOracle());
+             ScriptPipeline scriptPipeline = pipeline ? new ScriptPipeline(reader, this::bind, resultSink()) : null;
+             PreparedStatementCache statementCache = new PreparedStatementCache(conn, STATEMENT_CACHE_SIZE);
+             DdlBuildScheduler builds = parallelDdl && dbOperation != null
+                 ? new DdlBuildScheduler(dbOperation::getConnection, buildParallelism(), stopOnError)
+                 : null) {
+            ScriptCommitter committer = new ScriptCommitter(conn, autoCommit, commitStatements,
+                Duration.ofSeconds(commitSeconds), checkpointed && usesCheckpoint()
+                    ? ScriptCommitter.ScriptCheckpoint.open(scriptFile.toPath(), resume)
+                    : null, cache);
+            ScriptProfiler.Run profile = profiler.run(scriptFile.toPath());
+            Iterator<BoundStatement> statements = scriptPipeline != null ? scriptPipeline : bindAll(reader);
+            for (long skip = committer.resumeOffset(); skip > 0 && statements.hasNext(); skip--) {
+                statements.next();
+                profile.skipped(1);
+            }
+            while (statements.hasNext()) {
+                long parseStart = profile.now();
+                BoundStatement statement = statements.next();
+                DdlBuildScheduler.Build build = builds != null ? DdlBuildScheduler.classify(statement.text()) : null;
+                if (build != null) {
+                    executeBatch(conn, statementCache, scriptPipeline, committer, profile, cache, batch);
+                    profile.skipped(1);
+                    builds.submit(statement, build);
+                    continue;
+                }
+                if (builds != null) {
+                    builds.awaitTables(statement.text());
+                }
+                profile.parsed(statement, parseStart);
+                if (batch != null && SqlStatementBatch.isBatchable(statement.text())) {
+                    if (!batch.accepts(statement)) {
+                        executeBatch(conn, statementCache, scriptPipeline, committer, profile, cache, batch);
+                    }
+                    batch.add(statement);
+                    if (batch.isFull()) {
+                        executeBatch(conn, statementCache, scriptPipeline, committer, profile, cache, batch);
+                    }
+                } else {
+                    executeBatch(conn, statementCache, scriptPipeline, committer, profile, cache, batch);
+                    executeSqlStatement(conn, statementCache, scriptPipeline, committer, profile, cache, statement);
                 }
-                return 0;
-            } catch (IOException e) {
-                throw new SQLException("Failed to read script file: " + e.getMessage(), e);
             }
-        });
+            executeBatch(conn, statementCache, scriptPipeline, committer, profile, cache, batch);
+            if (builds != null) {
+                builds.awaitAll();
+            }
+            committer.finish();
+            return 0;
+        } catch (IOException e) {
+            throw new SQLException("Failed to read script file: " + e.getMessage(), e);
+        } catch (UncheckedIOException e) {
+            throw new SQLException("Failed to read script file: " + e.getCause().getMessage(), e.getCause());
+        }
     }
 
-    private int runStoredProc() throws SQLException {
-        return dbOperation.executeTransaction(conn -> {
-            List<ProcedureParam> params = parseParameters();
+    private boolean usesCheckpoint() {
+        return commitStatements > 1 || commitSeconds > 0 || resume;
+    }
 
-            if (isFunction) {
-                return runFunction(conn, params);
-            } else {
-                return runProcedure(conn, params);
+    private BoundStatement bind(String sql) {
+        return bindLiterals ? SqlLiteralBinder.bind(sql) : BoundStatement.raw(sql);
+    }
+
+    private Iterator<BoundStatement> bindAll(SqlScriptReader reader) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return reader.hasNext();
             }
-        });
+
+            @Override
+            public BoundStatement next() {
+                return bind(reader.next());
+            }
+        };
+    }
+
+    private ScriptPipeline.ResultSink resultSink() {
+        return csvOutputFile != null ? ScriptPipeline.csvSink(Path.of(csvOutputFile)) : ScriptPipeline.logSink(log);
+    }
+
+    private int runStoredProc() throws SQLException, IOException {
+        if (paramFile != null) {
+            return runBulkProc();
+        }
+        return dbOperation.executeTransaction(this::callStoredProc);
+    }
+
+    private int runBulkProc() throws SQLException, IOException {
+        try (Connection conn = dbOperation.getConnection()) {
+            return callBulkProc(conn);
+        }
+    }
+
+    private int callBulkProc(Connection conn) throws SQLException, IOException {
+        if (isFunction || inputParams != null || outputParams != null || ioParams != null) {
+            throw new IllegalArgumentException("--param-file calls a procedure with the parameters of the file only; "
+                + "it cannot be combined with --function, --input, --output or --io");
+        }
+        new BulkProcedureCaller(conn, batchSize > 0 ? batchSize : LOAD_BATCH_SIZE, commitEvery)
+            .call(target, Path.of(paramFile));
+        return 0;
+    }
+
+    private int callStoredProc(Connection conn) throws SQLException {
+        List<ProcedureParam> params = parseParameters();
+        if (isFunction && returnType == null) {
+            log.error("Return type must be specified for functions");
+            return 1;
+        }
+
+        // One call per connection, here and per fan-out target, leaves no metadata or statement to reuse
+        StoredProcedureCaller.CallResult result =
+            StoredProcedureCaller.callOnce(conn, target, isFunction, returnType, params);
+        if (isFunction) {
+            log.info("Function result: {}", result.returnValue());
+        } else if (result.updateCount() >= 0) {
+            log.info("Rows inserted/updated: {}", result.updateCount());
+        }
+        result.outputs().forEach((name, value) -> log.info("{} = {}", name, value));
+        return 0;
+    }
+
+    private int runFanOut(String validatedDbType) throws IOException, InterruptedException {
+        if (target == null) {
+            throw new IllegalArgumentException("--targets requires a script file or stored procedure name");
+        }
+        if (csvOutputFile != null || columnarOutputFile != null || exportTable != null || loadTable != null) {
+            throw new IllegalArgumentException("--targets cannot be combined with file output, --export-table or --load-table");
+        }
+        File scriptFile = new File(target);
+        if (ScriptPlan.isPlan(scriptFile)) {
+            throw new IllegalArgumentException("--targets runs a single script, not a directory or manifest");
+        }
+
+        List<FanOutExecutor.Target> targets = FanOutExecutor.loadTargets(Path.of(targetsFile));
+        log.info("Running {} against {} targets with up to {} at a time", target, targets.size(), maxConcurrency);
+        FanOutExecutor.TargetWork work;
+        if (scriptFile.exists()) {
+            work = conn -> executeScript(conn, scriptFile, false);
+        } else if (paramFile != null) {
+            work = this::callBulkProc;
+        } else {
+            work = this::callStoredProcInTransaction;
+        }
+        List<FanOutExecutor.TargetResult> results =
+            new FanOutExecutor(maxConcurrency, Duration.ofSeconds(targetTimeoutSeconds))
+                .execute(targets, fanOutTarget -> connectTo(validatedDbType, fanOutTarget), work);
+        FanOutExecutor.logSummary(results);
+        return results.stream().allMatch(result -> result.status() == FanOutExecutor.Status.SUCCEEDED) ? 0 : 1;
+    }
+
+    private int callStoredProcInTransaction(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            int result = callStoredProc(conn);
+            conn.commit();
+            return result;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private Connection connectTo(String validatedDbType, FanOutExecutor.Target fanOutTarget) throws SQLException {
+        ConnectionConfig targetConfig = new ConnectionConfig();
+        targetConfig.setHost(fanOutTarget.setting("host", config.getHost()));
+        targetConfig.setPort(Integer.parseInt(fanOutTarget.setting("port", String.valueOf(config.getPort()))));
+        targetConfig.setDatabase(fanOutTarget.setting("database", config.getDatabase()));
+        targetConfig.setUsername(fanOutTarget.setting("username", config.getUsername()));
+        targetConfig.setPassword(fanOutTarget.setting("password", config.getPassword()));
+
+        Connection conn = UnifiedDatabaseOperation.connect(validatedDbType, targetConfig);
+        String schema = fanOutTarget.setting("schema", null);
+        if (schema != null) {
+            try {
+                conn.setSchema(schema);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
     }
 
     private List<ProcedureParam> parseParameters() {
@@ -445,101 +1036,6 @@ public class RunnerDatabase implements Callable<Integer> {
         return result;
     }
 
-    private int runFunction(Connection conn, List<ProcedureParam> params) throws SQLException {
-        if (returnType == null) {
-            log.error("Return type must be specified for functions");
-            return 1;
-        }
-
-        String call = buildCallString(target, true, params.size());
-        try (CallableStatement stmt = conn.prepareCall(call)) {
-            // Register return parameter
-            stmt.registerOutParameter(1, getSqlType(returnType));
-
-            // Register parameters
-            int paramIndex = 2;
-            for (ProcedureParam param : params) {
-                stmt.setObject(paramIndex++, param.getValue());
-            }
-
-            // Execute the function
-            stmt.execute();
-            Object result = stmt.getObject(1);
-            log.info("Function result: {}", result);
-            return 0;
-        }
-    }
-
-    private int runProcedure(Connection conn, List<ProcedureParam> params) throws SQLException {
-        String call = buildCallString(target, false, params.size());
-        try (CallableStatement stmt = conn.prepareCall(call)) {
-            // Register parameters
-            int paramIndex = 1;
-            for (ProcedureParam param : params) {
-                stmt.setObject(paramIndex++, param.getValue());
-            }
-
-            // Execute the procedure
-            stmt.execute();
-            int updateCount = stmt.getUpdateCount();
-            
-            if (updateCount >= 0) {
-                log.info("Rows inserted/updated: {}", updateCount);
-            }
-            
-            printOutputParams(stmt, params);
-            return 0;
-        }
-    }
-
-    private String buildCallString(String procedureName, boolean isFunction, int paramCount) {
-        StringBuilder call = new StringBuilder();
-
-        if (isFunction) {
-            call.append("{? = call ").append(procedureName).append("(");
-        } else {
-            call.append("{call ").append(procedureName).append("(");
-        }
-
-        for (int i = 0; i < paramCount; i++) {
-            if (i > 0) call.append(", ");
-            call.append("?");
-        }
-
-        call.append(")}");
-        return call.toString();
-    }
-
-    private int getSqlType(String type) {
-        switch (type.toUpperCase()) {
-            case "NUMERIC", "NUMBER":
-                return Types.NUMERIC;
-            case "VARCHAR", "VARCHAR2", "CHAR":
-                return Types.VARCHAR;
-            case "DATE":
-                return Types.DATE;
-            case "TIMESTAMP":
-                return Types.TIMESTAMP;
-            case "CLOB":
-                return Types.CLOB;
-            case "BLOB":
-                return Types.BLOB;
-            default:
-                return Types.VARCHAR;
-        }
-    }
-
-    private void printOutputParams(CallableStatement stmt, List<ProcedureParam> params) throws SQLException {
-        int paramIndex = 1;
-        for (ProcedureParam param : params) {
-            if (param.getValue() == null) { // Output parameter
-                Object value = stmt.getObject(paramIndex);
-                log.info("{} = {}", param.getName(), value);
-            }
-            paramIndex++;
-        }
-    }
-
     private void loadDriverFromPath(String path) {
         try {
             File driverFile = new File(path);
@@ -630,43 +1126,6 @@ public class RunnerDatabase implements Callable<Integer> {
         }
     }
 
-    private void writeResultsToCsv(ResultSet rs, String filename) throws SQLException, IOException {
-        var metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
-        
-        try (FileWriter writer = new FileWriter(filename)) {
-            // Write headers
-            for (int i = 1; i <= columnCount; i++) {
-                if (i > 1) writer.append(',');
-                writer.append(escapeCsvField(metaData.getColumnName(i)));
-            }
-            writer.append('\n');
-            
-            // Write data rows
-            while (rs.next()) {
-                for (int i = 1; i <= columnCount; i++) {
-                    if (i > 1) writer.append(',');
-                    String value = rs.getString(i);
-                    writer.append(escapeCsvField(value != null ? value : ""));
-                }
-                writer.append('\n');
-            }
-        }
-    }
-    
-    private String escapeCsvField(String field) {
-        if (field == null) {
-            return "";
-        }
-        
-        boolean needsQuoting = field.contains(",") || field.contains("\"") || field.contains("\n");
-        if (!needsQuoting) {
-            return field;
-        }
-        
-        return "\"" + field.replace("\"", "\"\"") + "\"";
-    }
-
     public void runAllCommandTests(List<CommandData> commands) {
         commands.forEach(this::testCommand);
     }
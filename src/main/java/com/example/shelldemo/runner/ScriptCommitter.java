@@ -0,0 +1,302 @@
+package com.example.shelldemo.runner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.shelldemo.cli.ResultCache;
+
+/**
+ * Decides when a script run commits: every {@code everyStatements} statements, or once
+ * {@code interval} has passed since the last commit, whichever comes first. After each commit the
+ * number of script statements that are done is recorded in a checkpoint file, so a run that fails
+ * can be resumed after them instead of starting over or running statements twice.
+ * <p>
+ * A statement that failed while stop-on-error is off counts as done, so a resumed run does not
+ * try it again. In auto-commit mode every statement is committed by the database as it runs.
+ * <p>
+ * DDL is a commit point: Oracle and MySQL commit the open transaction implicitly before and after
+ * it, so the transaction is committed before such a statement runs and again after it succeeds.
+ * Otherwise a later rollback would hand back statements that are already committed, and running
+ * them again would insert their rows twice.
+ */
+class ScriptCommitter {
+    private static final Logger log = LoggerFactory.getLogger(ScriptCommitter.class);
+    private static final Pattern IMPLICIT_COMMIT = Pattern.compile(
+        "^(?:\\s*(?:--[^\\n]*(?:\\n|$)|/\\*.*?\\*/))*\\s*"
+            + "(?:CREATE|ALTER|DROP|TRUNCATE|RENAME|GRANT|REVOKE|COMMENT|ANALYZE|AUDIT|NOAUDIT|PURGE|FLASHBACK)\\b",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final Connection conn;
+    private final boolean autoCommit;
+    private final int everyStatements;
+    private final long intervalNanos;
+    private final ScriptCheckpoint checkpoint;
+    private final ResultCache.Session cache;
+    private final List<BoundStatement> uncommitted = new ArrayList<>();
+    private long committedStatements;
+    private long doneStatements;
+    private long lastCommit = System.nanoTime();
+
+    /**
+     * @param conn the connection the script runs on
+     * @param autoCommit whether the connection commits every statement itself
+     * @param everyStatements the statements per transaction, at least 1
+     * @param interval the longest time between commits, or zero for no limit
+     * @param checkpoint where to record progress, or {@code null} to keep no checkpoint
+     */
+    ScriptCommitter(Connection conn, boolean autoCommit, int everyStatements, Duration interval,
+            ScriptCheckpoint checkpoint) {
+        this(conn, autoCommit, everyStatements, interval, checkpoint, ResultCache.Session.DISABLED);
+    }
+
+    /**
+     * @param conn the connection the script runs on
+     * @param autoCommit whether the connection commits every statement itself
+     * @param everyStatements the statements per transaction, at least 1
+     * @param interval the longest time between commits, or zero for no limit
+     * @param checkpoint where to record progress, or {@code null} to keep no checkpoint
+     * @param cache the result cache session of the connection, told about every commit and rollback
+     */
+    ScriptCommitter(Connection conn, boolean autoCommit, int everyStatements, Duration interval,
+            ScriptCheckpoint checkpoint, ResultCache.Session cache) {
+        if (everyStatements < 1) {
+            throw new IllegalArgumentException("Statements per commit must be at least 1");
+        }
+        this.conn = conn;
+        this.autoCommit = autoCommit;
+        this.everyStatements = everyStatements;
+        this.intervalNanos = interval.toNanos();
+        this.checkpoint = checkpoint;
+        this.cache = cache;
+        this.committedStatements = checkpoint != null ? checkpoint.committedStatements() : 0;
+        this.doneStatements = committedStatements;
+    }
+
+    /**
+     * Gets the number of leading script statements a resumed run skips.
+     */
+    long resumeOffset() {
+        return committedStatements;
+    }
+
+    /**
+     * Commits the open transaction before a statement that commits implicitly, so the statements
+     * before it are recorded as committed before the database commits them.
+     *
+     * @param statement the statement about to run
+     * @throws SQLException if the commit fails or the checkpoint cannot be written
+     */
+    void executing(BoundStatement statement) throws SQLException {
+        if (!autoCommit && !uncommitted.isEmpty() && commitsImplicitly(statement)) {
+            commit();
+        }
+    }
+
+    /**
+     * Records statements that ran successfully and commits if the policy says so, or if one of
+     * them commits implicitly.
+     *
+     * @param statements the statements, in script order
+     * @throws SQLException if the commit fails or the checkpoint cannot be written
+     */
+    void executed(List<BoundStatement> statements) throws SQLException {
+        doneStatements += statements.size();
+        if (autoCommit) {
+            cache.transactionEnded();
+            markCommitted();
+            return;
+        }
+        uncommitted.addAll(statements);
+        if (uncommitted.size() >= everyStatements || statements.stream().anyMatch(ScriptCommitter::commitsImplicitly)
+                || intervalNanos > 0 && System.nanoTime() - lastCommit >= intervalNanos) {
+            commit();
+        }
+    }
+
+    /**
+     * Records a statement that failed and is skipped because stop-on-error is off.
+     */
+    void skipped() throws SQLException {
+        doneStatements++;
+        if (autoCommit || uncommitted.isEmpty()) {
+            markCommitted();
+        }
+    }
+
+    /**
+     * Rolls back the open transaction after a failed statement.
+     *
+     * @return the statements of the transaction that succeeded and were rolled back with it, in
+     *     script order; the caller runs them again, or records them with {@link #executed} when
+     *     {@link #needsReplay} says they need not run
+     * @throws SQLException if the rollback fails
+     */
+    List<BoundStatement> rollback() throws SQLException {
+        if (autoCommit) {
+            return List.of();
+        }
+        conn.rollback();
+        cache.transactionEnded();
+        List<BoundStatement> rolledBack = List.copyOf(uncommitted);
+        if (!rolledBack.isEmpty()) {
+            log.warn("Rolled back {} uncommitted statements, running them again", rolledBack.size());
+        }
+        uncommitted.clear();
+        doneStatements = committedStatements;
+        return rolledBack;
+    }
+
+    /**
+     * Tells whether a rolled back statement has to run again. Queries changed nothing, so running
+     * them again would only repeat their output; they are recorded with {@link #executed} instead.
+     */
+    static boolean needsReplay(BoundStatement statement) {
+        return !statement.text().stripLeading().toUpperCase(Locale.ROOT).startsWith("SELECT");
+    }
+
+    /**
+     * Tells whether a statement is DDL, which commits the open transaction on Oracle and MySQL.
+     */
+    static boolean commitsImplicitly(BoundStatement statement) {
+        return IMPLICIT_COMMIT.matcher(statement.text()).find();
+    }
+
+    /**
+     * Commits what is left at the end of the script and removes the checkpoint.
+     *
+     * @throws SQLException if the commit fails
+     */
+    void finish() throws SQLException {
+        if (!autoCommit && !uncommitted.isEmpty()) {
+            commit();
+        }
+        if (checkpoint != null) {
+            try {
+                checkpoint.delete();
+            } catch (IOException e) {
+                log.warn("Could not delete checkpoint {}: {}", checkpoint.file(), e.getMessage());
+            }
+        }
+    }
+
+    private void commit() throws SQLException {
+        conn.commit();
+        cache.transactionEnded();
+        uncommitted.clear();
+        lastCommit = System.nanoTime();
+        markCommitted();
+    }
+
+    private void markCommitted() throws SQLException {
+        committedStatements = doneStatements;
+        if (checkpoint != null) {
+            try {
+                checkpoint.save(committedStatements);
+            } catch (IOException e) {
+                throw new SQLException("Could not write checkpoint " + checkpoint.file() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * The checkpoint file of one script, next to the script as {@code <script>.run-checkpoint}.
+     * It records a checksum of the script, so a changed script is never resumed at a stale offset.
+     */
+    static final class ScriptCheckpoint {
+        private final Path file;
+        private final long checksum;
+        private long committedStatements;
+
+        private ScriptCheckpoint(Path file, long checksum) {
+            this.file = file;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Opens the checkpoint of a script.
+         *
+         * @param script the script file
+         * @param resume whether to continue from an existing checkpoint rather than replace it
+         * @return the checkpoint
+         * @throws IOException if the script or the checkpoint cannot be read
+         * @throws IllegalArgumentException if the checkpoint was written for a different version of the script
+         */
+        static ScriptCheckpoint open(Path script, boolean resume) throws IOException {
+            ScriptCheckpoint checkpoint = new ScriptCheckpoint(checkpointFile(script), checksum(script));
+            if (!resume) {
+                return checkpoint;
+            }
+            if (!Files.exists(checkpoint.file)) {
+                log.info("No checkpoint at {}, running {} from the start", checkpoint.file, script);
+                return checkpoint;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(checkpoint.file)) {
+                properties.load(in);
+            }
+            if (checkpoint.checksum != Long.parseLong(properties.getProperty("checksum", "-1"))) {
+                throw new IllegalArgumentException("Checkpoint " + checkpoint.file + " was written for a different "
+                    + "version of " + script + "; delete it to run the script from the start");
+            }
+            checkpoint.committedStatements = Long.parseLong(properties.getProperty("committedStatements", "0"));
+            log.info("Resuming {} after {} committed statements", script, checkpoint.committedStatements);
+            return checkpoint;
+        }
+
+        static Path checkpointFile(Path script) {
+            return script.resolveSibling(script.getFileName() + ".run-checkpoint");
+        }
+
+        Path file() {
+            return file;
+        }
+
+        long committedStatements() {
+            return committedStatements;
+        }
+
+        void save(long committed) throws IOException {
+            committedStatements = committed;
+            Properties properties = new Properties();
+            properties.setProperty("checksum", Long.toString(checksum));
+            properties.setProperty("committedStatements", Long.toString(committed));
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Script run checkpoint");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+
+        private static long checksum(Path script) throws IOException {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[1 << 16];
+            try (InputStream in = Files.newInputStream(script)) {
+                for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+            return crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.shelldemo.runner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.shelldemo.cli.FetchSizePolicy;
+
+/**
+ * Runs a script as three stages connected by bounded queues, so that parsing, statement execution
+ * and result rendering overlap instead of taking turns on one thread.
+ * <p>
+ * A parser thread reads and binds statements ahead of the caller. The caller executes them in
+ * order on its own connection, so commits, rollbacks and error handling behave exactly as in
+ * sequential execution. Query rows are copied into blocks that a sink thread renders in the order
+ * the queries ran, while the caller moves on to the next statement.
+ */
+class ScriptPipeline implements Iterator<BoundStatement>, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ScriptPipeline.class);
+    private static final int STATEMENT_QUEUE_CAPACITY = 64;
+    private static final int RESULT_QUEUE_CAPACITY = 16;
+    private static final int ROWS_PER_BLOCK = 500;
+    private static final Object END = new Object();
+    private static final Object END_OF_RESULT = new Object();
+
+    private final BlockingQueue<Object> statements = new ArrayBlockingQueue<>(STATEMENT_QUEUE_CAPACITY);
+    private final BlockingQueue<Object> results = new ArrayBlockingQueue<>(RESULT_QUEUE_CAPACITY);
+    private final Thread parser;
+    private final Thread sink;
+    private volatile RuntimeException sinkFailure;
+    private Object next;
+
+    /**
+     * Starts the parser and sink stages.
+     *
+     * @param source the statements of the script
+     * @param binder turns a statement into the form it is executed in
+     * @param resultSink renders query results
+     */
+    ScriptPipeline(Iterator<String> source, Function<String, BoundStatement> binder, ResultSink resultSink) {
+        this.parser = new Thread(() -> parse(source, binder), "script-parser");
+        this.sink = new Thread(() -> render(resultSink), "script-sink");
+        parser.setDaemon(true);
+        sink.setDaemon(true);
+        parser.start();
+        sink.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = statements.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while reading the script"));
+            }
+        }
+        if (next instanceof RuntimeException e) {
+            throw e;
+        }
+        return next != END;
+    }
+
+    @Override
+    public BoundStatement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        BoundStatement statement = (BoundStatement) next;
+        next = null;
+        return statement;
+    }
+
+    /**
+     * Reads a query result on the calling thread and hands its rows to the sink stage.
+     *
+     * @param rs the result set, positioned before the first row
+     * @param tuner the fetch size tuner to read the rows through
+     * @throws SQLException if reading the result set fails
+     */
+    void submitResult(ResultSet rs, FetchSizePolicy.Tuner tuner) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] columns = new String[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            columns[i - 1] = metaData.getColumnName(i);
+        }
+        enqueueResult(columns);
+
+        List<String[]> block = new ArrayList<>(ROWS_PER_BLOCK);
+        while (tuner.next()) {
+            String[] row = new String[columnCount];
+            for (int i = 1; i <= columnCount; i++) {
+                row[i - 1] = rs.getString(i);
+            }
+            block.add(row);
+            if (block.size() == ROWS_PER_BLOCK) {
+                enqueueResult(block);
+                block = new ArrayList<>(ROWS_PER_BLOCK);
+            }
+        }
+        if (!block.isEmpty()) {
+            enqueueResult(block);
+        }
+        enqueueResult(END_OF_RESULT);
+    }
+
+    /**
+     * Stops the parser and waits until the sink has rendered every submitted result.
+     */
+    @Override
+    public void close() throws SQLException {
+        parser.interrupt();
+        try {
+            parser.join();
+            enqueueResult(END);
+            sink.join();
+        } catch (InterruptedException e) {
+            sink.interrupt();
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while rendering query results", e);
+        }
+        if (sinkFailure != null) {
+            throw new SQLException("Rendering query results failed: " + sinkFailure.getMessage(), sinkFailure);
+        }
+    }
+
+    private void parse(Iterator<String> source, Function<String, BoundStatement> binder) {
+        try {
+            try {
+                while (source.hasNext()) {
+                    statements.put(binder.apply(source.next()));
+                }
+                statements.put(END);
+            } catch (RuntimeException e) {
+                statements.put(e);
+            }
+        } catch (InterruptedException e) {
+            // The caller closed the pipeline before reading every statement
+        }
+    }
+
+    private void render(ResultSink resultSink) {
+        boolean skipping = false;
+        try {
+            for (Object item = results.take(); item != END; item = results.take()) {
+                try {
+                    if (item instanceof String[] columns) {
+                        skipping = false;
+                        resultSink.start(columns);
+                    } else if (skipping) {
+                        continue;
+                    } else if (item == END_OF_RESULT) {
+                        resultSink.end();
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        List<String[]> rows = (List<String[]>) item;
+                        resultSink.rows(rows);
+                    }
+                } catch (IOException e) {
+                    log.error("Error writing query results: {}", e.getMessage());
+                    skipping = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            sinkFailure = e;
+        }
+    }
+
+    private void enqueueResult(Object item) throws SQLException {
+        try {
+            while (!results.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                if (!sink.isAlive()) {
+                    RuntimeException failure = sinkFailure;
+                    throw new SQLException("Rendering query results failed: "
+                        + (failure != null ? failure.getMessage() : "sink stopped"), failure);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while handing over query results", e);
+        }
+    }
+
+    /**
+     * Renders query results on the sink thread. Calls for one result arrive as {@code start},
+     * any number of {@code rows}, then {@code end}.
+     */
+    interface ResultSink {
+        void start(String[] columns) throws IOException;
+
+        void rows(List<String[]> rows) throws IOException;
+
+        void end() throws IOException;
+    }
+
+    /**
+     * Returns a sink that logs results the way the runner displays them.
+     *
+     * @param out the logger to write to
+     * @return the sink
+     */
+    static ResultSink logSink(Logger out) {
+        return new ResultSink() {
+            @Override
+            public void start(String[] columns) {
+                StringBuilder header = new StringBuilder();
+                for (int i = 0; i < columns.length; i++) {
+                    if (i > 0) header.append(",");
+                    header.append(columns[i].trim());
+                }
+                out.info("{}", header);
+            }
+
+            @Override
+            public void rows(List<String[]> rows) {
+                for (String[] values : rows) {
+                    StringBuilder row = new StringBuilder();
+                    for (int i = 0; i < values.length; i++) {
+                        if (i > 0) row.append(",");
+                        row.append(values[i] != null ? values[i].trim() : "NULL");
+                    }
+                    out.info("{}", row);
+                }
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+    }
+
+    /**
+     * Returns a sink that writes each result to a CSV file, replacing the previous result.
+     *
+     * @param file the CSV file
+     * @return the sink
+     */
+    static ResultSink csvSink(Path file) {
+        return new ResultSink() {
+            private Writer writer;
+            private CsvResultWriter csv;
+            private long rowCount;
+
+            @Override
+            public void start(String[] columns) throws IOException {
+                closeWriter();
+                writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8),
+                    1 << 20);
+                csv = new CsvResultWriter(writer);
+                csv.writeRecord(columns);
+                rowCount = 0;
+            }
+
+            @Override
+            public void rows(List<String[]> rows) throws IOException {
+                try {
+                    for (String[] row : rows) {
+                        csv.writeRecord(row);
+                    }
+                } catch (IOException e) {
+                    // The rest of this result is skipped, so release the file now
+                    writer.close();
+                    writer = null;
+                    throw e;
+                }
+                rowCount += rows.size();
+            }
+
+            @Override
+            public void end() throws IOException {
+                closeWriter();
+                log.info("CSV output written to: {} ({} rows)", file, rowCount);
+            }
+
+            private void closeWriter() throws IOException {
+                if (writer != null) {
+                    Writer current = writer;
+                    writer = null;
+                    current.close();
+                }
+            }
+        };
+    }
+}
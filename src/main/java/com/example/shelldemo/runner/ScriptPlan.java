@@ -0,0 +1,200 @@
+package com.example.shelldemo.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A set of SQL scripts and the order constraints between them.
+ * <p>
+ * A plan is read either from a manifest file or from a directory of {@code .sql} files.
+ * Manifest lines have the form {@code script.sql: dependency.sql, other.sql}, with paths relative
+ * to the manifest; {@code #} starts a comment. A directory containing {@value #MANIFEST_NAME} uses
+ * that manifest. Otherwise scripts are ordered by their numeric prefix ({@code 1_users.sql},
+ * {@code 2_tables.sql}, ...): every script depends on all scripts of the next lower prefix, so scripts
+ * sharing a prefix may run together. Scripts without a prefix run after the numbered ones, one at a time.
+ */
+class ScriptPlan {
+    static final String MANIFEST_NAME = "scripts.manifest";
+    private static final String MANIFEST_EXTENSION = ".manifest";
+    private static final Pattern NUMERIC_PREFIX = Pattern.compile("^(\\d+)[_\\-. ]");
+
+    private final Map<String, Script> scripts;
+
+    private ScriptPlan(Map<String, Script> scripts) {
+        this.scripts = Collections.unmodifiableMap(scripts);
+        validate();
+    }
+
+    /**
+     * Checks whether a script target names a plan rather than a single script.
+     *
+     * @param target the script target
+     * @return true for directories and manifest files
+     */
+    static boolean isPlan(File target) {
+        return target.isDirectory() || (target.isFile() && target.getName().endsWith(MANIFEST_EXTENSION));
+    }
+
+    /**
+     * Reads the plan for a directory or manifest file.
+     *
+     * @param target a directory of scripts or a manifest file
+     * @return the plan
+     * @throws IOException if the directory or manifest cannot be read
+     * @throws IllegalArgumentException if the plan references unknown scripts or has a cycle
+     */
+    static ScriptPlan load(File target) throws IOException {
+        if (!target.isDirectory()) {
+            return fromManifest(target);
+        }
+        File manifest = new File(target, MANIFEST_NAME);
+        return manifest.isFile() ? fromManifest(manifest) : fromDirectory(target);
+    }
+
+    static ScriptPlan fromManifest(File manifest) throws IOException {
+        File baseDir = manifest.getAbsoluteFile().getParentFile();
+        Map<String, Script> scripts = new LinkedHashMap<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(manifest.toPath())) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            line = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (line.isEmpty()) continue;
+
+            int colon = line.indexOf(':');
+            String name = (colon >= 0 ? line.substring(0, colon) : line).trim();
+            Set<String> dependencies = new LinkedHashSet<>();
+            if (colon >= 0) {
+                for (String dependency : line.substring(colon + 1).split(",")) {
+                    if (!dependency.isBlank()) {
+                        dependencies.add(dependency.trim());
+                    }
+                }
+            }
+            if (scripts.put(name, new Script(name, new File(baseDir, name), dependencies)) != null) {
+                throw new IllegalArgumentException("Script " + name + " is listed twice in "
+                    + manifest + " (line " + lineNumber + ")");
+            }
+        }
+        return new ScriptPlan(scripts);
+    }
+
+    static ScriptPlan fromDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.toLowerCase().endsWith(".sql"));
+        if (files == null) {
+            throw new IOException("Cannot list scripts in " + directory);
+        }
+        Arrays.sort(files, Comparator.comparingLong(ScriptPlan::prefixOf).thenComparing(File::getName));
+
+        Map<String, Script> scripts = new LinkedHashMap<>();
+        List<String> previousGroup = List.of();
+        List<String> currentGroup = new ArrayList<>();
+        long currentPrefix = Long.MIN_VALUE;
+        for (File file : files) {
+            long prefix = prefixOf(file);
+            if (prefix != currentPrefix || prefix == Long.MAX_VALUE) {
+                if (!currentGroup.isEmpty()) {
+                    previousGroup = currentGroup;
+                    currentGroup = new ArrayList<>();
+                }
+                currentPrefix = prefix;
+            }
+            scripts.put(file.getName(), new Script(file.getName(), file, new LinkedHashSet<>(previousGroup)));
+            currentGroup.add(file.getName());
+        }
+        return new ScriptPlan(scripts);
+    }
+
+    private static long prefixOf(File file) {
+        Matcher matcher = NUMERIC_PREFIX.matcher(file.getName());
+        if (!matcher.find()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Gets the scripts in declaration order.
+     *
+     * @return the scripts
+     */
+    List<Script> getScripts() {
+        return List.copyOf(scripts.values());
+    }
+
+    /**
+     * Gets the scripts that declare a dependency on each script.
+     *
+     * @return the dependents by script name
+     */
+    Map<String, List<String>> getDependents() {
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Script script : scripts.values()) {
+            dependents.putIfAbsent(script.name(), new ArrayList<>());
+            for (String dependency : script.dependencies()) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(script.name());
+            }
+        }
+        return dependents;
+    }
+
+    private void validate() {
+        Map<String, Integer> inDegree = new HashMap<>();
+        for (Script script : scripts.values()) {
+            for (String dependency : script.dependencies()) {
+                if (!scripts.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Script " + script.name()
+                        + " depends on unknown script " + dependency);
+                }
+            }
+            inDegree.put(script.name(), script.dependencies().size());
+        }
+
+        Deque<String> ready = new ArrayDeque<>();
+        inDegree.forEach((name, degree) -> {
+            if (degree == 0) ready.add(name);
+        });
+        Map<String, List<String>> dependents = getDependents();
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            visited++;
+            for (String dependent : dependents.get(ready.poll())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (visited < scripts.size()) {
+            throw new IllegalArgumentException("Script dependencies contain a cycle");
+        }
+    }
+
+    /**
+     * A script in the plan.
+     *
+     * @param name the script name, unique within the plan
+     * @param file the script file
+     * @param dependencies the names of the scripts that must finish first
+     */
+    record Script(String name, File file, Set<String> dependencies) {
+    }
+}
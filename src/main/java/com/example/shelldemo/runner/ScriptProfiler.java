@@ -0,0 +1,447 @@
+package com.example.shelldemo.runner;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.shelldemo.cli.FetchSizePolicy;
+
+/**
+ * Times the statements of script runs: reading and binding each statement, running it, fetching
+ * its rows and rendering them, plus the rows it changed or returned. Every finished statement is
+ * streamed to a CSV or JSON profile, and only the slowest are kept in memory for the report at the
+ * end of the run, so profiling a long script costs no more memory than a short one.
+ * <p>
+ * {@link #DISABLED} does no timing at all; its samples ignore every call.
+ */
+final class ScriptProfiler implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ScriptProfiler.class);
+    private static final int MAX_SQL_LENGTH = 120;
+
+    static final ScriptProfiler DISABLED = new ScriptProfiler(null, null, 0);
+
+    private final Path profileFile;
+    private final ProfileWriter writer;
+    private final int slowest;
+    private final PriorityQueue<Timing> slowestTimings =
+        new PriorityQueue<>(Comparator.comparingLong(Timing::totalNanos));
+    private long statementCount;
+    private long totalNanos;
+
+    private ScriptProfiler(Path profileFile, ProfileWriter writer, int slowest) {
+        this.profileFile = profileFile;
+        this.writer = writer;
+        this.slowest = slowest;
+    }
+
+    /**
+     * Opens a profiler.
+     *
+     * @param profileFile the profile to write, as JSON if the name ends in {@code .json} and as CSV
+     *     otherwise, or {@code null} to write none
+     * @param slowest the number of slowest statements to report when the profiler is closed
+     * @return the profiler, or {@link #DISABLED} if there is nothing to record
+     * @throws IOException if the profile cannot be created
+     */
+    static ScriptProfiler open(Path profileFile, int slowest) throws IOException {
+        if (slowest < 0) {
+            throw new IllegalArgumentException("The number of slowest statements cannot be negative");
+        }
+        if (profileFile == null && slowest == 0) {
+            return DISABLED;
+        }
+        ProfileWriter writer = null;
+        if (profileFile != null) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(profileFile),
+                StandardCharsets.UTF_8));
+            writer = profileFile.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                ? new JsonProfileWriter(out) : new CsvProfileWriter(out);
+        }
+        return new ScriptProfiler(profileFile, writer, slowest);
+    }
+
+    boolean isEnabled() {
+        return this != DISABLED;
+    }
+
+    /**
+     * Starts profiling one run of a script. A run belongs to the thread executing the script;
+     * runs of several scripts may share the profiler.
+     *
+     * @param script the script
+     * @return the run
+     */
+    Run run(Path script) {
+        return new Run(isEnabled() ? script.getFileName().toString() : null);
+    }
+
+    private synchronized void record(Timing timing) throws IOException {
+        statementCount += timing.statements();
+        totalNanos += timing.totalNanos();
+        if (slowest > 0) {
+            slowestTimings.add(timing);
+            if (slowestTimings.size() > slowest) {
+                slowestTimings.poll();
+            }
+        }
+        if (writer != null) {
+            writer.write(timing);
+        }
+    }
+
+    /**
+     * Finishes the profile and logs the slowest statements.
+     *
+     * @throws IOException if the profile cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        if (writer != null) {
+            writer.close();
+            log.info("Statement profile written to: {}", profileFile);
+        }
+        if (slowest > 0) {
+            logSlowest();
+        }
+    }
+
+    private void logSlowest() {
+        List<Timing> timings = new ArrayList<>(slowestTimings);
+        timings.sort(Comparator.comparingLong(Timing::totalNanos).reversed());
+        log.info("Slowest {} of {} statements ({} ms in total):", timings.size(), statementCount,
+            millis(totalNanos));
+        for (Timing timing : timings) {
+            log.info("  {} ms  {} #{}{}  parse {} / execute {} / fetch {} / render {} ms, {} rows affected, "
+                    + "{} fetched{}: {}",
+                millis(timing.totalNanos()), timing.script(), timing.statement(),
+                timing.statements() > 1 ? " (batch of " + timing.statements() + ")" : "",
+                millis(timing.parseNanos()), millis(timing.executeNanos()), millis(timing.fetchNanos()),
+                millis(timing.renderNanos()), timing.rowsAffected(), timing.rowsFetched(),
+                timing.failed() ? ", failed" : "", abbreviate(timing.sql()));
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+
+    private static String abbreviate(String sql) {
+        String line = sql.strip().replaceAll("\\s+", " ");
+        return line.length() > MAX_SQL_LENGTH ? line.substring(0, MAX_SQL_LENGTH - 3) + "..." : line;
+    }
+
+    /**
+     * The profile of one script run. Statement numbers count from 1 in script order, so they match
+     * the offsets of a checkpointed run.
+     */
+    final class Run {
+        private final String script;
+        private final Map<BoundStatement, long[]> parsed = new IdentityHashMap<>();
+        private long statementNumber;
+
+        private Run(String script) {
+            this.script = script;
+        }
+
+        /**
+         * Gets the clock reading to pass to {@link #parsed}, or 0 when profiling is disabled.
+         */
+        long now() {
+            return script != null ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Numbers a statement that was just read from the script.
+         *
+         * @param statement the statement
+         * @param start the {@link #now} reading taken before it was read
+         */
+        void parsed(BoundStatement statement, long start) {
+            statementNumber++;
+            if (script != null) {
+                parsed.put(statement, new long[] {statementNumber, System.nanoTime() - start});
+            }
+        }
+
+        /**
+         * Counts statements a resumed run skipped, so later statements keep their script numbers.
+         */
+        void skipped(long statements) {
+            statementNumber += statements;
+        }
+
+        /**
+         * Starts timing the execution of one statement, just before it is sent to the database.
+         */
+        Sample start(BoundStatement statement) {
+            return script != null ? start(List.of(statement)) : Sample.NONE;
+        }
+
+        /**
+         * Starts timing the execution of a batch of statements, just before it is sent to the database.
+         */
+        Sample start(List<BoundStatement> statements) {
+            if (script == null) {
+                return Sample.NONE;
+            }
+            long[] numbers = new long[statements.size()];
+            long parseNanos = 0;
+            for (int i = 0; i < numbers.length; i++) {
+                // Statements that succeeded and were rolled back run again without a number
+                long[] numbered = parsed.remove(statements.get(i));
+                if (numbered != null) {
+                    numbers[i] = numbered[0];
+                    parseNanos += numbered[1];
+                }
+            }
+            return new Sample(this, statements, numbers, parseNanos);
+        }
+
+        /**
+         * Keeps the numbers of failed statements, which run again one by one when a batch fails.
+         */
+        private void failed(List<BoundStatement> statements, long[] numbers) {
+            for (int i = 0; i < numbers.length; i++) {
+                if (numbers[i] != 0) {
+                    parsed.put(statements.get(i), new long[] {numbers[i], 0});
+                }
+            }
+        }
+
+        private void record(Timing timing) throws IOException {
+            ScriptProfiler.this.record(timing);
+        }
+    }
+
+    /**
+     * The timing of one statement or batch while it runs. A sample belongs to one thread.
+     */
+    static final class Sample {
+        static final Sample NONE = new Sample(null, List.of(), new long[0], 0);
+
+        private final Run run;
+        private final List<BoundStatement> statements;
+        private final long[] numbers;
+        private final long parseNanos;
+        private final long start;
+        private long executed;
+        private long consumed;
+        private long fetchNanos;
+        private long rowsAffected;
+        private long rowsFetched;
+
+        private Sample(Run run, List<BoundStatement> statements, long[] numbers, long parseNanos) {
+            this.run = run;
+            this.statements = statements;
+            this.numbers = numbers;
+            this.parseNanos = parseNanos;
+            this.start = run != null ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Marks the end of execution, when the database has answered.
+         */
+        void executed() {
+            if (run != null) {
+                executed = System.nanoTime();
+            }
+        }
+
+        /**
+         * Adds rows changed by the statement; negative counts, which drivers report for unknown
+         * results, are ignored.
+         */
+        void affected(long rows) {
+            if (rows > 0) {
+                rowsAffected += rows;
+            }
+        }
+
+        /**
+         * Wraps the tuner the statement's rows are read through, so that the time spent moving to
+         * the next row counts as fetching. The rest of the time until {@link #consumed} counts as
+         * rendering. The rows themselves are still read from the result set directly.
+         *
+         * @param rows the tuner of the statement's result set
+         * @return the tuner to read the rows through instead, or {@code rows} itself when profiling is disabled
+         */
+        FetchSizePolicy.Tuner track(FetchSizePolicy.Tuner rows) {
+            if (run == null) {
+                return rows;
+            }
+            return () -> {
+                long fetchStart = System.nanoTime();
+                boolean fetched = rows.next();
+                fetchNanos += System.nanoTime() - fetchStart;
+                if (fetched) {
+                    rowsFetched++;
+                }
+                return fetched;
+            };
+        }
+
+        /**
+         * Marks the end of reading and rendering the results.
+         */
+        void consumed() {
+            if (run != null) {
+                consumed = System.nanoTime();
+            }
+        }
+
+        /**
+         * Records the sample.
+         *
+         * @param failed whether the statement failed
+         * @throws IOException if the profile cannot be written
+         */
+        void finish(boolean failed) throws IOException {
+            if (run == null) {
+                return;
+            }
+            long end = System.nanoTime();
+            long executeEnd = executed != 0 ? executed : end;
+            long renderNanos = consumed != 0 ? Math.max(0, consumed - executeEnd - fetchNanos) : 0;
+            if (failed) {
+                run.failed(statements, numbers);
+            }
+            run.record(new Timing(run.script, numbers[0], statements.size(), statements.get(0).text(), parseNanos,
+                executeEnd - start, fetchNanos, renderNanos, rowsAffected, rowsFetched, failed));
+        }
+    }
+
+    /**
+     * The finished timing of one statement or batch.
+     *
+     * @param script the script file name
+     * @param statement the number of the (first) statement in the script, 0 for a statement that
+     *     runs again after a rollback
+     * @param statements the statements timed together, more than 1 for a batch
+     * @param sql the (first) statement
+     * @param parseNanos the time spent reading and binding the statements
+     * @param executeNanos the time until the database answered
+     * @param fetchNanos the time spent fetching rows
+     * @param renderNanos the time spent displaying or writing rows
+     * @param rowsAffected the rows changed
+     * @param rowsFetched the rows returned
+     * @param failed whether the statement failed
+     */
+    record Timing(String script, long statement, int statements, String sql, long parseNanos, long executeNanos,
+            long fetchNanos, long renderNanos, long rowsAffected, long rowsFetched, boolean failed) {
+
+        long totalNanos() {
+            return parseNanos + executeNanos + fetchNanos + renderNanos;
+        }
+    }
+
+    private interface ProfileWriter extends Closeable {
+        void write(Timing timing) throws IOException;
+    }
+
+    private static final class CsvProfileWriter implements ProfileWriter {
+        private final Writer out;
+        private final CsvResultWriter csv;
+
+        CsvProfileWriter(Writer out) throws IOException {
+            this.out = out;
+            this.csv = new CsvResultWriter(out);
+            csv.writeRecord(new String[] {"script", "statement", "statements", "status", "parse_us", "execute_us",
+                "fetch_us", "render_us", "total_us", "rows_affected", "rows_fetched", "sql"});
+        }
+
+        @Override
+        public void write(Timing timing) throws IOException {
+            csv.writeRecord(new String[] {timing.script(), Long.toString(timing.statement()),
+                Integer.toString(timing.statements()), timing.failed() ? "failed" : "ok",
+                micros(timing.parseNanos()), micros(timing.executeNanos()), micros(timing.fetchNanos()),
+                micros(timing.renderNanos()), micros(timing.totalNanos()), Long.toString(timing.rowsAffected()),
+                Long.toString(timing.rowsFetched()), timing.sql()});
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class JsonProfileWriter implements ProfileWriter {
+        private final Writer out;
+        private boolean first = true;
+
+        JsonProfileWriter(Writer out) throws IOException {
+            this.out = out;
+            out.write('[');
+        }
+
+        @Override
+        public void write(Timing timing) throws IOException {
+            out.write(first ? "\n  {" : ",\n  {");
+            first = false;
+            out.write("\"script\": ");
+            writeString(timing.script());
+            out.write(", \"statement\": " + timing.statement()
+                + ", \"statements\": " + timing.statements()
+                + ", \"status\": \"" + (timing.failed() ? "failed" : "ok") + "\""
+                + ", \"parse_us\": " + micros(timing.parseNanos())
+                + ", \"execute_us\": " + micros(timing.executeNanos())
+                + ", \"fetch_us\": " + micros(timing.fetchNanos())
+                + ", \"render_us\": " + micros(timing.renderNanos())
+                + ", \"total_us\": " + micros(timing.totalNanos())
+                + ", \"rows_affected\": " + timing.rowsAffected()
+                + ", \"rows_fetched\": " + timing.rowsFetched()
+                + ", \"sql\": ");
+            writeString(timing.sql());
+            out.write('}');
+        }
+
+        private void writeString(String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> out.write("\\\"");
+                    case '\\' -> out.write("\\\\");
+                    case '\n' -> out.write("\\n");
+                    case '\r' -> out.write("\\r");
+                    case '\t' -> out.write("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                    }
+                }
+            }
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.write(first ? "]\n" : "\n]\n");
+            out.close();
+        }
+    }
+
+    private static String micros(long nanos) {
+        return Long.toString(nanos / 1000);
+    }
+}
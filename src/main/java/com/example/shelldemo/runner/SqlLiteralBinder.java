@@ -0,0 +1,166 @@
+package com.example.shelldemo.runner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Lifts the string and numeric literals out of {@code INSERT ... VALUES} statements and replaces
+ * them with {@code ?} placeholders, so that generated scripts repeating the same INSERT shape
+ * reuse one prepared statement instead of having every statement hard-parsed by the database.
+ * <p>
+ * Only the VALUES part of an INSERT is rewritten. Statements that contain constructs where a
+ * bind variable is not allowed or the literal cannot be scanned reliably (typed literals such as
+ * {@code DATE '2024-01-01'}, {@code INTERVAL}, {@code CAST}, Oracle {@code q'[...]'} quoting)
+ * keep those literals or are left untouched.
+ */
+final class SqlLiteralBinder {
+    private static final Pattern INSERT_VALUES = Pattern.compile(
+        "^INSERT\\s.*?\\bVALUES\\s*\\(", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern UNSUPPORTED = Pattern.compile(
+        "(\\bCAST\\s*\\(|\\bINTERVAL\\b|(^|[^\\w$#])[nN]?[qQ]')", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TYPED_LITERAL_PREFIX = Pattern.compile(
+        "(^|[^\\w$#])(DATE|TIME|TIMESTAMP)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private SqlLiteralBinder() {
+    }
+
+    /**
+     * Rewrites the literals of an INSERT statement into bind parameters.
+     *
+     * @param sql the statement text
+     * @return the parameterized statement, or the raw statement if there is nothing to bind
+     */
+    static BoundStatement bind(String sql) {
+        var matcher = INSERT_VALUES.matcher(sql);
+        if (!matcher.find() || UNSUPPORTED.matcher(sql).find()) {
+            return BoundStatement.raw(sql);
+        }
+
+        int valuesStart = matcher.end() - 1;
+        StringBuilder shape = new StringBuilder(sql.length()).append(sql, 0, valuesStart);
+        List<Object> parameters = new ArrayList<>();
+
+        int i = valuesStart;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                int end = findStringEnd(sql, i);
+                if (end < 0) {
+                    return BoundStatement.raw(sql);
+                }
+                if (isIdentifierChar(sql, i - 1) || TYPED_LITERAL_PREFIX.matcher(tail(shape)).find()) {
+                    shape.append(sql, i, end + 1);
+                } else {
+                    parameters.add(sql.substring(i + 1, end).replace("''", "'"));
+                    shape.append('?');
+                }
+                i = end + 1;
+            } else if (c == '"') {
+                int end = sql.indexOf('"', i + 1);
+                if (end < 0) {
+                    return BoundStatement.raw(sql);
+                }
+                shape.append(sql, i, end + 1);
+                i = end + 1;
+            } else if (c == '/' && sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                if (end < 0) {
+                    return BoundStatement.raw(sql);
+                }
+                shape.append(sql, i, end + 2);
+                i = end + 2;
+            } else if (startsNumber(sql, i)) {
+                int end = findNumberEnd(sql, i);
+                if (isIdentifierChar(sql, end)) {
+                    // Suffixed literals such as Oracle's 1.5f stay as they are
+                    shape.append(sql, i, end);
+                } else {
+                    parameters.add(parseNumber(sql.substring(i, end)));
+                    shape.append('?');
+                }
+                i = end;
+            } else if (isIdentifierChar(sql, i)) {
+                int end = i;
+                while (isIdentifierChar(sql, end)) end++;
+                shape.append(sql, i, end);
+                i = end;
+            } else {
+                shape.append(c);
+                i++;
+            }
+        }
+
+        return parameters.isEmpty()
+            ? BoundStatement.raw(sql)
+            : new BoundStatement(sql, shape.toString(), List.copyOf(parameters));
+    }
+
+    private static int findStringEnd(String sql, int openQuote) {
+        int i = openQuote + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean startsNumber(String sql, int i) {
+        char c = sql.charAt(i);
+        if (Character.isDigit(c)) {
+            return true;
+        }
+        return c == '.' && i + 1 < sql.length() && Character.isDigit(sql.charAt(i + 1))
+            && !isIdentifierChar(sql, i - 1);
+    }
+
+    private static int findNumberEnd(String sql, int start) {
+        int i = start;
+        while (i < sql.length() && Character.isDigit(sql.charAt(i))) i++;
+        if (i < sql.length() && sql.charAt(i) == '.') {
+            i++;
+            while (i < sql.length() && Character.isDigit(sql.charAt(i))) i++;
+        }
+        if (i < sql.length() && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int exponent = i + 1;
+            if (exponent < sql.length() && (sql.charAt(exponent) == '+' || sql.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < sql.length() && Character.isDigit(sql.charAt(exponent))) {
+                i = exponent;
+                while (i < sql.length() && Character.isDigit(sql.charAt(i))) i++;
+            }
+        }
+        return i;
+    }
+
+    private static Object parseNumber(String literal) {
+        if (literal.chars().allMatch(Character::isDigit)) {
+            try {
+                return Long.parseLong(literal);
+            } catch (NumberFormatException e) {
+                return new BigDecimal(literal);
+            }
+        }
+        return new BigDecimal(literal);
+    }
+
+    private static boolean isIdentifierChar(String sql, int i) {
+        if (i < 0 || i >= sql.length()) {
+            return false;
+        }
+        char c = sql.charAt(i);
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    private static CharSequence tail(StringBuilder shape) {
+        return shape.subSequence(Math.max(0, shape.length() - 16), shape.length());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.shelldemo.runner;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+/**
+ * Streams SQL statements out of a script one at a time.
+ * A statement is handed out as soon as its terminator has been read, so memory use is bounded
+ * by the largest single statement rather than by the size of the script.
+ * <p>
+ * Plain statements end with a trailing {@code ;}. When PL/SQL block support is enabled (Oracle),
+ * procedures, functions, triggers, packages, types and anonymous blocks end with a {@code /} on a
+ * line of its own instead.
+ */
+class SqlScriptReader implements Iterator<String>, Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern PLSQL_BLOCK_START = Pattern.compile(
+        "^(CREATE\\s+(OR\\s+REPLACE\\s+)?(PROCEDURE|FUNCTION|TRIGGER|PACKAGE|TYPE)\\b|DECLARE\\b|BEGIN\\b)",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern TRANSACTION_BEGIN = Pattern.compile(
+        "^BEGIN(\\s+(TRANSACTION|WORK))?\\s*;$", Pattern.CASE_INSENSITIVE);
+
+    private final BufferedReader reader;
+    private final boolean plsqlBlocks;
+    private final StringBuilder currentStatement = new StringBuilder();
+    private boolean inMultilineComment;
+    private boolean inPlsqlBlock;
+    private boolean endOfInput;
+    private String nextStatement;
+
+    SqlScriptReader(File scriptFile, boolean plsqlBlocks) throws IOException {
+        this(new FileReader(scriptFile), plsqlBlocks);
+    }
+
+    SqlScriptReader(Reader source, boolean plsqlBlocks) {
+        this.reader = source instanceof BufferedReader buffered
+            ? buffered
+            : new BufferedReader(source, BUFFER_SIZE);
+        this.plsqlBlocks = plsqlBlocks;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextStatement == null && !endOfInput) {
+            try {
+                nextStatement = readStatement();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return nextStatement != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String statement = nextStatement;
+        nextStatement = null;
+        return statement;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String readStatement() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = processLine(line);
+            if (line == null) continue;
+
+            if (inPlsqlBlock) {
+                if (line.equals("/")) {
+                    String statement = takeStatement(false);
+                    if (statement != null) return statement;
+                    continue;
+                }
+                currentStatement.append(line).append('\n');
+                continue;
+            }
+
+            if (line.equals("/")) {
+                // SQL*Plus "run" terminator after a statement that already ended with ';'
+                continue;
+            }
+
+            if (currentStatement.isEmpty() && startsPlsqlBlock(line)) {
+                inPlsqlBlock = true;
+                currentStatement.append(line).append('\n');
+                continue;
+            }
+
+            currentStatement.append(line).append('\n');
+            if (line.endsWith(";")) {
+                String statement = takeStatement(true);
+                if (statement != null) return statement;
+            }
+        }
+
+        endOfInput = true;
+        return takeStatement(!inPlsqlBlock);
+    }
+
+    private boolean startsPlsqlBlock(String line) {
+        return plsqlBlocks
+            && PLSQL_BLOCK_START.matcher(line).find()
+            && !TRANSACTION_BEGIN.matcher(line).matches();
+    }
+
+    private String processLine(String line) {
+        line = line.trim();
+        if (line.isEmpty()) return null;
+
+        if (inMultilineComment) {
+            if (line.contains("*/")) {
+                inMultilineComment = false;
+            }
+            return null;
+        }
+
+        if (line.startsWith("/*")) {
+            inMultilineComment = line.indexOf("*/", 2) < 0;
+            return null;
+        }
+
+        if (line.startsWith("--") || line.startsWith("//")) {
+            return null;
+        }
+
+        int commentStart = line.indexOf("--");
+        line = commentStart >= 0 ? line.substring(0, commentStart).trim() : line;
+        return line.isEmpty() ? null : line;
+    }
+
+    private String takeStatement(boolean stripTerminator) {
+        String stmt = currentStatement.toString().trim();
+        currentStatement.setLength(0);
+        inPlsqlBlock = false;
+
+        if (stripTerminator && stmt.endsWith(";")) {
+            stmt = stmt.substring(0, stmt.length() - 1).trim();
+        }
+        return stmt.isEmpty() ? null : stmt;
+    }
+}
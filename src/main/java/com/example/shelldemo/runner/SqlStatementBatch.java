@@ -0,0 +1,82 @@
+package com.example.shelldemo.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Collects consecutive data-modification statements so they can be sent to the database
+ * in a single {@code executeBatch} round trip.
+ * Only plain DML (INSERT, UPDATE, DELETE, MERGE) is batchable; queries, DDL and PL/SQL
+ * must run on their own because they either return results or change what later statements see.
+ * <p>
+ * A batch holds either raw statements, sent through one {@code Statement}, or parameter rows
+ * of a single parameterized shape, sent through one {@code PreparedStatement}.
+ * Oracle's driver runs a {@code Statement} batch one statement at a time, so on Oracle
+ * only parameterized batches save round trips.
+ */
+class SqlStatementBatch {
+    private static final Pattern BATCHABLE_DML = Pattern.compile(
+        "^(INSERT|UPDATE|DELETE|MERGE)\\s", Pattern.CASE_INSENSITIVE);
+
+    private final int batchSize;
+    private final List<BoundStatement> statements;
+
+    SqlStatementBatch(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+        this.statements = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Checks whether a statement can be grouped into a JDBC batch.
+     *
+     * @param sql the statement text
+     * @return true if the statement is plain DML
+     */
+    static boolean isBatchable(String sql) {
+        return BATCHABLE_DML.matcher(sql).find();
+    }
+
+    /**
+     * Checks whether a statement can join the pending statements without flushing them first.
+     *
+     * @param statement the statement to add
+     * @return true if the batch is empty or holds statements of the same kind and shape
+     */
+    boolean accepts(BoundStatement statement) {
+        if (statements.isEmpty()) {
+            return true;
+        }
+        BoundStatement first = statements.get(0);
+        if (!first.isParameterized()) {
+            return !statement.isParameterized();
+        }
+        return first.sql().equals(statement.sql());
+    }
+
+    void add(BoundStatement statement) {
+        statements.add(statement);
+    }
+
+    boolean isFull() {
+        return statements.size() >= batchSize;
+    }
+
+    boolean isEmpty() {
+        return statements.isEmpty();
+    }
+
+    /**
+     * Removes and returns the pending statements in the order they were added.
+     *
+     * @return the pending statements
+     */
+    List<BoundStatement> drain() {
+        List<BoundStatement> pending = List.copyOf(statements);
+        statements.clear();
+        return pending;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.shelldemo.runner;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Locale;
+
+/**
+ * Binds values given as text, such as CSV fields or command line arguments, with the setter
+ * that matches the parameter's JDBC type, so the driver never has to guess a conversion.
+ */
+final class SqlValueBinder {
+
+    private SqlValueBinder() {
+    }
+
+    /**
+     * Binds a text value as the given JDBC type.
+     *
+     * @param stmt the statement
+     * @param index the 1-based parameter index
+     * @param value the value, {@code null} or empty for NULL
+     * @param sqlType the {@link Types} constant of the parameter
+     * @throws SQLException if binding fails
+     * @throws IllegalArgumentException if the value cannot be converted to the type
+     */
+    static void bind(PreparedStatement stmt, int index, String value, int sqlType) throws SQLException {
+        if (value == null || value.isEmpty()) {
+            stmt.setNull(index, sqlType);
+            return;
+        }
+        switch (sqlType) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT, Types.NUMERIC, Types.DECIMAL,
+                 Types.REAL, Types.FLOAT, Types.DOUBLE -> stmt.setBigDecimal(index, new BigDecimal(value.trim()));
+            case Types.BIT, Types.BOOLEAN -> stmt.setBoolean(index, parseBoolean(value.trim()));
+            case Types.DATE, Types.TIMESTAMP -> {
+                String trimmed = value.trim();
+                if (trimmed.length() == 10) {
+                    stmt.setDate(index, Date.valueOf(trimmed));
+                } else {
+                    stmt.setTimestamp(index, Timestamp.valueOf(trimmed.replace('T', ' ')));
+                }
+            }
+            default -> stmt.setString(index, value);
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "1", "t", "true", "y", "yes" -> true;
+            case "0", "f", "false", "n", "no" -> false;
+            default -> throw new IllegalArgumentException("Not a boolean: " + value);
+        };
+    }
+}
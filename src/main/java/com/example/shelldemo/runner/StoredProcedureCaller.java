@@ -0,0 +1,220 @@
+package com.example.shelldemo.runner;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calls stored procedures and functions on one connection. The signature of each routine is
+ * read once from the database metadata, and the callable statement for it is prepared once and
+ * kept open, so repeated calls only bind values and execute.
+ * <p>
+ * Values are matched to parameters by name when every supplied name is known to the routine,
+ * and by position otherwise, and are bound with the setter for the parameter's declared type.
+ * When the driver reports no metadata for a routine, the call falls back to the types given on
+ * the command line.
+ * <p>
+ * A routine called only once gains nothing from either, so {@link #callOnce} skips the metadata
+ * lookup and prepares the call directly with the types given on the command line.
+ */
+class StoredProcedureCaller implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(StoredProcedureCaller.class);
+
+    private final Connection connection;
+    private final PreparedStatementCache statementCache;
+    private final Map<String, Optional<ProcedureSignature>> signatures = new HashMap<>();
+
+    StoredProcedureCaller(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statementCache = new PreparedStatementCache(connection, statementCacheSize);
+    }
+
+    /**
+     * Calls a routine.
+     *
+     * @param name the routine name, optionally qualified
+     * @param function whether to call it as a function
+     * @param returnType the return type named on the command line, used when the metadata has none
+     * @param params the parameters; a {@code null} value marks an output parameter
+     * @return the return value, update count and output parameters
+     * @throws SQLException if the call fails
+     * @throws IllegalArgumentException if the parameters do not fit the routine
+     */
+    CallResult call(String name, boolean function, String returnType, List<RunnerDatabase.ProcedureParam> params)
+            throws SQLException {
+        ProcedureSignature signature = signature(name, function, params);
+        CallableStatement stmt = statementCache.prepareCall(signature.callString());
+        stmt.clearParameters();
+        return execute(stmt, signature, returnType, params);
+    }
+
+    /**
+     * Calls a routine once with the parameter types given on the command line, without reading
+     * its metadata or keeping the statement.
+     *
+     * @param connection the connection
+     * @param name the routine name, optionally qualified
+     * @param function whether to call it as a function
+     * @param returnType the return type of a function
+     * @param params the parameters; a {@code null} value marks an output parameter
+     * @return the return value, update count and output parameters
+     * @throws SQLException if the call fails
+     */
+    static CallResult callOnce(Connection connection, String name, boolean function, String returnType,
+            List<RunnerDatabase.ProcedureParam> params) throws SQLException {
+        ProcedureSignature signature = declaredSignature(name, function, params);
+        try (CallableStatement stmt = connection.prepareCall(signature.callString())) {
+            return execute(stmt, signature, returnType, params);
+        }
+    }
+
+    private static CallResult execute(CallableStatement stmt, ProcedureSignature signature, String returnType,
+            List<RunnerDatabase.ProcedureParam> params) throws SQLException {
+        String name = signature.name();
+        boolean function = signature.function();
+        int offset = function ? 2 : 1;
+        if (function) {
+            stmt.registerOutParameter(1, signature.returnValue() != null
+                ? signature.returnValue().sqlType()
+                : sqlTypeOf(returnType));
+        }
+        List<ProcedureSignature.Parameter> parameters = signature.parameters();
+        List<RunnerDatabase.ProcedureParam> ordered = matchParameters(signature, params);
+        for (int i = 0; i < parameters.size(); i++) {
+            ProcedureSignature.Parameter parameter = parameters.get(i);
+            RunnerDatabase.ProcedureParam param = ordered.get(i);
+            if (parameter.mode().isInput()) {
+                if (param == null) {
+                    throw new IllegalArgumentException("No value for parameter " + displayName(parameter, i)
+                        + " of " + name);
+                }
+                SqlValueBinder.bind(stmt, offset + i, param.getValue() != null ? param.getValue().toString() : null,
+                    parameter.sqlType());
+            }
+            if (parameter.mode().isOutput()) {
+                stmt.registerOutParameter(offset + i, parameter.sqlType());
+            }
+        }
+
+        stmt.execute();
+        Map<String, Object> outputs = new LinkedHashMap<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            ProcedureSignature.Parameter parameter = parameters.get(i);
+            if (parameter.mode().isOutput()) {
+                RunnerDatabase.ProcedureParam param = ordered.get(i);
+                outputs.put(param != null ? param.getName() : displayName(parameter, i), stmt.getObject(offset + i));
+            }
+        }
+        return new CallResult(function ? stmt.getObject(1) : null, stmt.getUpdateCount(), outputs);
+    }
+
+    @Override
+    public void close() {
+        statementCache.close();
+    }
+
+    private ProcedureSignature signature(String name, boolean function, List<RunnerDatabase.ProcedureParam> params)
+            throws SQLException {
+        String key = name.trim().toUpperCase(Locale.ROOT) + (function ? "()" : "") + "/" + params.size();
+        Optional<ProcedureSignature> described = signatures.get(key);
+        if (described == null) {
+            described = Optional.ofNullable(ProcedureSignature.describe(connection, name, function, params.size()));
+            if (described.isEmpty()) {
+                log.debug("No parameter metadata for {}, using the declared parameter types", name);
+            }
+            signatures.put(key, described);
+        }
+        return described.orElseGet(() -> declaredSignature(name, function, params));
+    }
+
+    private static ProcedureSignature declaredSignature(String name, boolean function,
+            List<RunnerDatabase.ProcedureParam> params) {
+        List<ProcedureSignature.Parameter> parameters = new ArrayList<>();
+        for (RunnerDatabase.ProcedureParam param : params) {
+            parameters.add(new ProcedureSignature.Parameter(param.getName(),
+                param.getValue() == null ? ProcedureSignature.Mode.OUT : ProcedureSignature.Mode.IN,
+                sqlTypeOf(param.getType()), param.getType()));
+        }
+        return new ProcedureSignature(name, function, parameters, null);
+    }
+
+    /**
+     * Orders supplied parameters like the routine's, by name if every name is known and by position otherwise.
+     *
+     * @return one entry per routine parameter, {@code null} where nothing was supplied
+     * @throws IllegalArgumentException if more parameters are supplied than the routine takes
+     */
+    static List<RunnerDatabase.ProcedureParam> matchParameters(ProcedureSignature signature,
+            List<RunnerDatabase.ProcedureParam> params) {
+        List<ProcedureSignature.Parameter> parameters = signature.parameters();
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i).name() != null) {
+                positions.put(parameters.get(i).name().toUpperCase(Locale.ROOT), i);
+            }
+        }
+
+        List<RunnerDatabase.ProcedureParam> ordered = new ArrayList<>();
+        parameters.forEach(parameter -> ordered.add(null));
+        boolean byName = !params.isEmpty()
+            && params.stream().allMatch(param -> positions.containsKey(param.getName().toUpperCase(Locale.ROOT)));
+        if (byName) {
+            for (RunnerDatabase.ProcedureParam param : params) {
+                ordered.set(positions.get(param.getName().toUpperCase(Locale.ROOT)), param);
+            }
+            return ordered;
+        }
+
+        if (params.size() > parameters.size()) {
+            throw new IllegalArgumentException(signature.name() + " takes " + parameters.size()
+                + " parameters but " + params.size() + " were given");
+        }
+        for (int i = 0; i < params.size(); i++) {
+            ordered.set(i, params.get(i));
+        }
+        return ordered;
+    }
+
+    private static String displayName(ProcedureSignature.Parameter parameter, int index) {
+        return parameter.name() != null ? parameter.name() : "#" + (index + 1);
+    }
+
+    /**
+     * Maps a type name given on the command line to a JDBC type.
+     *
+     * @param type the type name, such as NUMBER or VARCHAR2
+     * @return the {@link Types} constant, VARCHAR for unknown names
+     */
+    static int sqlTypeOf(String type) {
+        return switch (type.toUpperCase(Locale.ROOT)) {
+            case "NUMERIC", "NUMBER" -> Types.NUMERIC;
+            case "VARCHAR", "VARCHAR2", "CHAR" -> Types.VARCHAR;
+            case "DATE" -> Types.DATE;
+            case "TIMESTAMP" -> Types.TIMESTAMP;
+            case "CLOB" -> Types.CLOB;
+            case "BLOB" -> Types.BLOB;
+            default -> Types.VARCHAR;
+        };
+    }
+
+    /**
+     * The outcome of a call.
+     *
+     * @param returnValue the value returned by a function, or {@code null}
+     * @param updateCount the update count reported by the driver, or -1
+     * @param outputs the output parameter values by name, in parameter order
+     */
+    record CallResult(Object returnValue, int updateCount, Map<String, Object> outputs) {
+    }
+}
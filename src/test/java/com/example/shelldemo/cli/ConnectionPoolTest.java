@@ -0,0 +1,171 @@
+package com.example.shelldemo.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionPoolTest {
+
+    private final List<Connection> opened = new ArrayList<>();
+
+    private static ConnectionConfig config(int maxSize) {
+        ConnectionConfig config = new ConnectionConfig();
+        config.setMinPoolSize(0);
+        config.setMaxPoolSize(maxSize);
+        config.setBorrowTimeoutMillis(50);
+        config.setIdleTimeoutMillis(60_000);
+        config.setValidationTimeoutSeconds(1);
+        return config;
+    }
+
+    /**
+     * Opens a mock connection in auto-commit mode that remembers its auto-commit and read-only settings.
+     */
+    private Connection open() throws SQLException {
+        Connection conn = mock(Connection.class);
+        boolean[] autoCommit = {true};
+        boolean[] readOnly = {false};
+        when(conn.getAutoCommit()).thenAnswer(get -> autoCommit[0]);
+        doAnswer(set -> autoCommit[0] = set.getArgument(0)).when(conn).setAutoCommit(anyBoolean());
+        when(conn.isReadOnly()).thenAnswer(get -> readOnly[0]);
+        doAnswer(set -> readOnly[0] = set.getArgument(0)).when(conn).setReadOnly(anyBoolean());
+        when(conn.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        when(conn.isValid(anyInt())).thenReturn(true);
+        opened.add(conn);
+        return conn;
+    }
+
+    @Test
+    void testBorrowTimesOutWhenEveryConnectionIsInUse() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(this::open, config(1))) {
+            Connection held = pool.borrow();
+
+            assertThrows(SQLTimeoutException.class, pool::borrow);
+
+            held.close();
+            try (Connection next = pool.borrow()) {
+                assertNotNull(next);
+            }
+        }
+    }
+
+    @Test
+    void testReturnedConnectionIsRolledBackResetAndReused() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(this::open, config(2))) {
+            Connection first = pool.borrow();
+            first.setAutoCommit(false);
+            first.setReadOnly(true);
+            first.close();
+            assertThrows(SQLException.class, first::commit);
+
+            Connection physical = opened.get(0);
+            verify(physical).rollback();
+            assertTrue(physical.getAutoCommit());
+            assertFalse(physical.isReadOnly());
+            assertEquals(1, pool.getIdleCount());
+
+            try (Connection second = pool.borrow()) {
+                assertTrue(second.getAutoCommit());
+                assertEquals(1, pool.getActiveCount());
+            }
+            assertEquals(1, opened.size());
+        }
+    }
+
+    @Test
+    void testConnectionThatCannotBeResetIsDiscarded() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(this::open, config(1))) {
+            Connection first = pool.borrow();
+            first.setAutoCommit(false);
+            doThrow(new SQLException("Connection reset")).when(opened.get(0)).rollback();
+            first.close();
+
+            verify(opened.get(0)).close();
+            assertEquals(0, pool.getIdleCount());
+            try (Connection second = pool.borrow()) {
+                assertTrue(second.getAutoCommit());
+            }
+            assertEquals(2, opened.size());
+        }
+    }
+
+    @Test
+    void testInvalidIdleConnectionIsReplacedAndExpiredOnesAreClosed() throws Exception {
+        ConnectionConfig config = config(1);
+        config.setIdleTimeoutMillis(100);
+        try (ConnectionPool pool = new ConnectionPool(this::open, config)) {
+            pool.borrow().close();
+            when(opened.get(0).isValid(anyInt())).thenReturn(false);
+            // connections returned within the last 500 ms are handed out without validation
+            Thread.sleep(600);
+
+            pool.borrow().close();
+            verify(opened.get(0)).close();
+            assertEquals(2, opened.size());
+
+            // the housekeeper runs at least once a second
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getIdleCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, pool.getIdleCount());
+            // the housekeeper closes the connection right after taking it off the idle list
+            verify(opened.get(1), timeout(1000)).close();
+        }
+    }
+
+    @Test
+    void testOpensMinimumUpFront() throws Exception {
+        ConnectionConfig config = config(3);
+        config.setMinPoolSize(2);
+        try (ConnectionPool pool = new ConnectionPool(this::open, config)) {
+            assertEquals(2, opened.size());
+            assertEquals(2, pool.getIdleCount());
+
+            try (Connection first = pool.borrow(); Connection second = pool.borrow()) {
+                assertEquals(2, opened.size());
+            }
+        }
+    }
+
+    @Test
+    void testBorrowedConnectionUnwrapsToItself() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(this::open, config(1))) {
+            Connection borrowed = pool.borrow();
+
+            assertSame(borrowed, borrowed.unwrap(Connection.class));
+            assertTrue(borrowed.isWrapperFor(Connection.class));
+            borrowed.unwrap(Connection.class).close();
+
+            assertTrue(borrowed.isClosed());
+            verify(opened.get(0), never()).close();
+            assertEquals(1, pool.getIdleCount());
+        }
+    }
+
+    @Test
+    void testConnectionHeldTooLongIsReportedOnce() throws Exception {
+        ConnectionConfig config = config(1);
+        config.setLeakDetectionThresholdMillis(100);
+        try (ConnectionPool pool = new ConnectionPool(this::open, config)) {
+            Connection leaked = pool.borrow();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getLeaksReported() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, pool.getLeaksReported());
+            Thread.sleep(1200);
+            assertEquals(1, pool.getLeaksReported());
+            leaked.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.shelldemo.cli;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FetchSizePolicyTest {
+
+    /** One INTEGER column: 64 bytes of row overhead plus 8 for the value. */
+    private static final long INT_ROW_BYTES = 72;
+
+    private static ResultSetMetaData columns(int[] types, int[] precisions) throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(types.length);
+        for (int i = 0; i < types.length; i++) {
+            when(metaData.getColumnType(i + 1)).thenReturn(types[i]);
+            when(metaData.getPrecision(i + 1)).thenReturn(precisions[i]);
+        }
+        return metaData;
+    }
+
+    private static ResultSet intRows() throws Exception {
+        ResultSetMetaData metaData = columns(new int[] {Types.INTEGER}, new int[] {10});
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true);
+        return rs;
+    }
+
+    private static void fetch(FetchSizePolicy.Tuner tuner, int rows) throws Exception {
+        for (int i = 0; i < rows; i++) {
+            assertTrue(tuner.next());
+        }
+    }
+
+    @Test
+    void testEstimatesRowBytesFromTheDeclaredColumns() throws Exception {
+        ResultSetMetaData metaData = columns(
+            new int[] {Types.VARCHAR, Types.VARCHAR, Types.NVARCHAR, Types.NUMERIC, Types.TIMESTAMP,
+                Types.BIGINT, Types.CLOB, Types.OTHER},
+            new int[] {100, 0, 1_000_000, 10, 0, 19, 0, 0});
+
+        // overhead, 2 bytes per declared character with at least 1 and at most 4000 characters,
+        // then fixed sizes by type
+        assertEquals(64 + 200 + 2 + 8000 + 24 + 16 + 8 + 4096 + 64, FetchSizePolicy.estimateRowBytes(metaData));
+    }
+
+    @Test
+    void testAdaptiveTunerDoublesTheFetchSizeAfterEachFullFetch() throws Exception {
+        FetchSizePolicy policy = FetchSizePolicy.adaptive(INT_ROW_BYTES * 1_000_000);
+        ResultSet rs = intRows();
+        Statement stmt = mock(Statement.class);
+
+        policy.applyTo(stmt);
+        FetchSizePolicy.Tuner tuner = policy.tune(rs);
+        fetch(tuner, 99);
+        verify(rs, never()).setFetchSize(anyInt());
+        fetch(tuner, 1 + 200 + 400);
+
+        verify(stmt).setFetchSize(100);
+        InOrder order = inOrder(rs);
+        order.verify(rs).setFetchSize(200);
+        order.verify(rs).setFetchSize(400);
+        order.verify(rs).setFetchSize(800);
+        verifyNoMoreInteractions(ignoreStubs(rs));
+    }
+
+    @Test
+    void testAdaptiveTunerStopsAtTheRowsThatFitTheMemoryBudget() throws Exception {
+        FetchSizePolicy policy = FetchSizePolicy.adaptive(INT_ROW_BYTES * 250);
+        ResultSet rs = intRows();
+
+        FetchSizePolicy.Tuner tuner = policy.tune(rs);
+        fetch(tuner, 100 + 200 + 250 * 10);
+
+        InOrder order = inOrder(rs);
+        order.verify(rs).setFetchSize(200);
+        order.verify(rs).setFetchSize(250);
+        verify(rs, times(2)).setFetchSize(anyInt());
+    }
+
+    @Test
+    void testAdaptiveTunerNeverGoesBelowTheInitialFetchSize() throws Exception {
+        FetchSizePolicy policy = FetchSizePolicy.adaptive(1);
+        ResultSet rs = intRows();
+
+        fetch(policy.tune(rs), 1000);
+
+        verify(rs, never()).setFetchSize(anyInt());
+    }
+
+    @Test
+    void testFixedPolicyNeverChangesTheFetchSize() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        Statement stmt = mock(Statement.class);
+
+        FetchSizePolicy.fixed(500).applyTo(stmt);
+        fetch(FetchSizePolicy.fixed(500).tune(rs), 10_000);
+        FetchSizePolicy.DRIVER_DEFAULT.applyTo(stmt);
+
+        verify(stmt, times(1)).setFetchSize(500);
+        verify(rs, never()).setFetchSize(anyInt());
+        assertSame(FetchSizePolicy.DRIVER_DEFAULT, FetchSizePolicy.fixed(0));
+        assertThrows(IllegalArgumentException.class, () -> FetchSizePolicy.fixed(-1));
+        assertThrows(IllegalArgumentException.class, () -> FetchSizePolicy.adaptive(0));
+    }
+}
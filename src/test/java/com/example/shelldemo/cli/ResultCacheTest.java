@@ -0,0 +1,157 @@
+package com.example.shelldemo.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String QUERY = "SELECT region_id, region_name FROM hr.regions WHERE region_id < ?";
+
+    private static ResultSet regions(int rows) throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnName(1)).thenReturn("REGION_ID");
+        when(metaData.getColumnLabel(1)).thenReturn("REGION_ID");
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(metaData.getColumnName(2)).thenReturn("REGION_NAME");
+        when(metaData.getColumnLabel(2)).thenReturn("REGION_NAME");
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        int[] row = {0};
+        when(rs.next()).thenAnswer(next -> ++row[0] <= rows);
+        when(rs.getObject(1)).thenAnswer(get -> new BigDecimal(row[0]));
+        when(rs.getObject(2)).thenAnswer(get -> "Region " + row[0]);
+        return rs;
+    }
+
+    private static void readAll(ResultSet rs) throws Exception {
+        try (rs) {
+            while (rs.next()) {
+                rs.getString(2);
+            }
+        }
+    }
+
+    private static ResultCache cache(Path directory) {
+        return new ResultCache("postgresql app", Duration.ofMinutes(5), 10, 100, directory);
+    }
+
+    @Test
+    void testServesRepeatedQueriesUntilATableTheyReadIsWritten() throws Exception {
+        ResultCache cache = cache(null);
+        ResultCache.Session session = cache.newSession();
+
+        ResultCache.Lookup miss = session.lookup(QUERY, List.of(3));
+        assertNull(miss.result());
+        readAll(miss.record(regions(2)));
+
+        ResultSet hit = cache.newSession().lookup("SELECT region_id,  region_name\nFROM hr.regions  -- lookup\n"
+            + "WHERE region_id < ?;", List.of(3)).result();
+        assertNotNull(hit);
+        assertTrue(hit.next());
+        assertEquals("Region 1", hit.getString("REGION_NAME"));
+        assertEquals(1, hit.getInt(1));
+        assertTrue(hit.next());
+        assertFalse(hit.next());
+        assertNull(session.lookup(QUERY, List.of(4)).result());
+
+        cache.invalidate("UPDATE hr.countries SET region_id = 1");
+        assertNotNull(session.lookup(QUERY, List.of(3)).result());
+        cache.invalidate("DELETE FROM \"HR\".\"REGIONS\" WHERE region_id = 9");
+        assertNull(session.lookup(QUERY, List.of(3)).result());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void testSessionBypassesTablesItWrote() throws Exception {
+        ResultCache cache = cache(null);
+        readAll(cache.newSession().lookup(QUERY, List.of(3)).record(regions(1)));
+
+        ResultCache.Session session = cache.newSession();
+        session.executing("INSERT INTO hr.regions VALUES (5, 'Antarctica')");
+        assertFalse(session.lookup(QUERY, List.of(3)).isCacheable());
+        assertTrue(session.lookup("SELECT * FROM hr.countries", List.of()).isCacheable());
+
+        session.executing("BEGIN hr.refresh_all; END;");
+        assertFalse(session.lookup("SELECT * FROM hr.countries", List.of()).isCacheable());
+    }
+
+    @Test
+    void testCommitInvalidatesResultsCachedWhileTheWriteWasUncommitted() throws Exception {
+        ResultCache cache = cache(null);
+        ResultCache.Session writer = cache.newSession();
+        writer.executing("INSERT INTO hr.regions VALUES (5, 'Antarctica')");
+
+        Thread.sleep(2);
+        ResultCache.Session reader = cache.newSession();
+        readAll(reader.lookup(QUERY, List.of(9)).record(regions(4)));
+        assertNotNull(reader.lookup(QUERY, List.of(9)).result());
+
+        Thread.sleep(2);
+        writer.transactionEnded();
+        assertNull(reader.lookup(QUERY, List.of(9)).result());
+        assertTrue(writer.lookup(QUERY, List.of(9)).isCacheable());
+    }
+
+    @Test
+    void testDoesNotCacheLockingVolatileOrOversizedQueries() throws Exception {
+        ResultCache.Session session = cache(null).newSession();
+
+        assertFalse(session.lookup(QUERY + " FOR UPDATE", List.of(3)).isCacheable());
+        assertFalse(session.lookup("SELECT hr.seq.NEXTVAL FROM dual", List.of()).isCacheable());
+        assertFalse(session.lookup("SELECT CURRENT_DATE", List.of()).isCacheable());
+        assertFalse(session.lookup("SELECT region_id, SYSDATE FROM hr.regions", List.of()).isCacheable());
+        assertFalse(session.lookup("SELECT * FROM hr.jobs WHERE started < CURRENT_TIMESTAMP", List.of())
+            .isCacheable());
+        assertFalse(session.lookup("SELECT * FROM hr.jobs WHERE started < now()", List.of()).isCacheable());
+        assertFalse(session.lookup("WITH moved AS (DELETE FROM t RETURNING *) SELECT * FROM moved", List.of())
+            .isCacheable());
+
+        readAll(session.lookup(QUERY, List.of(500)).record(regions(101)));
+        assertNull(session.lookup(QUERY, List.of(500)).result());
+    }
+
+    @Test
+    void testDiskEntriesOutliveTheCacheAndHonourOtherProcessesInvalidations() throws Exception {
+        readAll(cache(tempDir).newSession().lookup(QUERY, List.of(3)).record(regions(2)));
+
+        ResultSet reloaded = cache(tempDir).newSession().lookup(QUERY, List.of(3)).result();
+        assertNotNull(reloaded);
+        assertTrue(reloaded.last());
+        assertEquals("Region 2", reloaded.getString(2));
+
+        Thread.sleep(2);
+        cache(tempDir).invalidate("TRUNCATE TABLE hr.regions");
+        assertNull(cache(tempDir).newSession().lookup(QUERY, List.of(3)).result());
+    }
+
+    @Test
+    void testCommitMarksWrittenTablesForOtherProcessesRightAway() throws Exception {
+        ResultCache.Session writer = cache(tempDir).newSession();
+        writer.executing("INSERT INTO hr.regions VALUES (5, 'Antarctica')");
+
+        // another process caches the old rows before the commit, within the marker refresh interval
+        Thread.sleep(2);
+        ResultCache other = cache(tempDir);
+        readAll(other.newSession().lookup(QUERY, List.of(9)).record(regions(4)));
+        Thread.sleep(2);
+        writer.transactionEnded();
+
+        assertNull(other.newSession().lookup(QUERY, List.of(9)).result());
+    }
+}
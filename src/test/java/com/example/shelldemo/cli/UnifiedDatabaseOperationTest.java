@@ -0,0 +1,205 @@
+package com.example.shelldemo.cli;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UnifiedDatabaseOperationTest {
+
+    private static final String HOST = "cursor-test";
+    private static final StubDriver DRIVER = new StubDriver();
+
+    private Connection conn;
+    private PreparedStatement stmt;
+    private ResultSet rs;
+    private boolean[] autoCommit;
+
+    @BeforeAll
+    static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(DRIVER);
+    }
+
+    @AfterAll
+    static void deregisterDriver() throws SQLException {
+        DriverManager.deregisterDriver(DRIVER);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        conn = mock(Connection.class);
+        stmt = mock(PreparedStatement.class);
+        rs = mock(ResultSet.class);
+        autoCommit = new boolean[] {true};
+        when(conn.getAutoCommit()).thenAnswer(get -> autoCommit[0]);
+        doAnswer(set -> autoCommit[0] = set.getArgument(0)).when(conn).setAutoCommit(anyBoolean());
+        when(conn.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(stmt);
+        when(stmt.executeQuery()).thenReturn(rs);
+
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnName(1)).thenReturn("REGION_ID");
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+        when(metaData.getColumnName(2)).thenReturn("REGION_NAME");
+        when(metaData.getColumnLabel(2)).thenReturn("REGION_NAME");
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(rs.getMetaData()).thenReturn(metaData);
+        DRIVER.connection = conn;
+    }
+
+    private static UnifiedDatabaseOperation operation(String dbType) throws SQLException {
+        ConnectionConfig config = new ConnectionConfig();
+        config.setHost(HOST);
+        config.setPort(1);
+        config.setDatabase("app");
+        config.setUsername("app");
+        config.setPassword("secret");
+        config.setMaxPoolSize(1);
+        config.setBorrowTimeoutMillis(100);
+        return UnifiedDatabaseOperation.create(dbType, config);
+    }
+
+    @Test
+    void testRowResolvesLabelsAndReadsTypedValues() throws Exception {
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getInt(1)).thenReturn(7, 0);
+        when(rs.wasNull()).thenReturn(false, true);
+        when(rs.getString(2)).thenReturn("Europe", (String) null);
+
+        try (UnifiedDatabaseOperation db = operation("oracle");
+             UnifiedDatabaseOperation.QueryCursor cursor = db.openCursor("SELECT region_id id, region_name FROM regions")) {
+            UnifiedDatabaseOperation.ResultRow row = cursor.row();
+            assertEquals(2, row.getColumnCount());
+            assertEquals("REGION_ID", row.getColumnName(1));
+            assertEquals(1, row.findColumn("ID"));
+            assertEquals(2, row.findColumn("region_name"));
+            assertThrows(SQLException.class, () -> row.findColumn("REGION_ID"));
+
+            assertTrue(cursor.next());
+            assertEquals(7, row.getInt("id"));
+            assertFalse(row.wasNull());
+            assertEquals("Europe", row.getString("Region_Name"));
+            assertTrue(cursor.next());
+            assertEquals(0, row.getInt(1));
+            assertTrue(row.wasNull());
+            assertNull(row.getString(2));
+            assertFalse(cursor.next());
+            assertEquals(2, cursor.getRowCount());
+        }
+    }
+
+    @Test
+    void testPostgresqlCursorRunsInItsOwnTransaction() throws Exception {
+        when(rs.next()).thenReturn(true, false);
+
+        try (UnifiedDatabaseOperation db = operation("postgresql")) {
+            assertEquals(1, db.forEachRow("SELECT * FROM regions", row -> assertFalse(autoCommit[0])));
+        }
+
+        verify(stmt).setFetchSize(1000);
+        verify(conn).commit();
+        assertTrue(autoCommit[0]);
+    }
+
+    @Test
+    void testPostgresqlCursorRestoresAutoCommitWhenTheCommitFails() throws Exception {
+        when(rs.next()).thenReturn(false);
+        doThrow(new SQLException("terminating connection")).when(conn).commit();
+
+        try (UnifiedDatabaseOperation db = operation("postgresql")) {
+            UnifiedDatabaseOperation.QueryCursor cursor = db.openCursor("SELECT * FROM regions");
+            assertThrows(SQLException.class, cursor::close);
+        }
+
+        verify(conn, atLeastOnce()).rollback();
+        assertTrue(autoCommit[0]);
+        verify(rs).close();
+        verify(stmt).close();
+    }
+
+    @Test
+    void testMysqlStreamsRowsWithoutAConfiguredFetchSize() throws Exception {
+        try (UnifiedDatabaseOperation db = operation("mysql")) {
+            db.forEachRow("SELECT * FROM regions", row -> { });
+        }
+
+        verify(stmt).setFetchSize(Integer.MIN_VALUE);
+        verify(conn, never()).setAutoCommit(false);
+    }
+
+    @Test
+    void testFailedQueryGivesTheConnectionBack() throws Exception {
+        when(stmt.executeQuery()).thenThrow(new SQLException("relation \"regions\" does not exist"));
+
+        try (UnifiedDatabaseOperation db = operation("postgresql")) {
+            assertThrows(SQLException.class, () -> db.openCursor("SELECT * FROM regions"));
+
+            verify(stmt).close();
+            assertTrue(autoCommit[0]);
+            // the pool holds a single connection, which has to be back to be borrowed again
+            try (Connection again = db.getConnection()) {
+                assertNotNull(again);
+            }
+        }
+    }
+
+    /**
+     * Hands out the test's mock connection for URLs of the test host.
+     */
+    private static final class StubDriver implements Driver {
+        private volatile Connection connection;
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? connection : null;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.contains("//" + HOST + ":");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
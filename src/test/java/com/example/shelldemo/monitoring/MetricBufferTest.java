@@ -0,0 +1,97 @@
+package com.example.shelldemo.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricBufferTest {
+
+    private static MetricEvent event(double value) {
+        return new MetricEvent("test", "test.value", value, Map.of(), Instant.EPOCH);
+    }
+
+    private static List<Double> values(List<MetricEvent> events) {
+        return events.stream().map(MetricEvent::getValue).toList();
+    }
+
+    @Test
+    void testOverflowPolicies() {
+        MetricBuffer oldest = new MetricBuffer(3);
+        MetricBuffer newest = new MetricBuffer(3, MetricBuffer.OverflowPolicy.DROP_NEWEST);
+        for (int i = 1; i <= 5; i++) {
+            oldest.add(event(i));
+            newest.add(event(i));
+        }
+
+        assertEquals(3, oldest.size());
+        assertEquals(2, oldest.getDroppedCount());
+        assertEquals(List.of(3.0, 4.0, 5.0), values(oldest.drain()));
+        assertFalse(newest.add(event(6)));
+        assertEquals(3, newest.getDroppedCount());
+        assertEquals(List.of(1.0, 2.0, 3.0), values(newest.drain()));
+        assertTrue(newest.isEmpty());
+    }
+
+    @Test
+    void testDrainToMovesBatchesInOrder() {
+        MetricBuffer buffer = new MetricBuffer(5);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(event(i));
+        }
+        List<MetricEvent> batch = new ArrayList<>();
+
+        assertEquals(2, buffer.drainTo(batch::add, 2));
+        assertEquals(3, buffer.size());
+        assertEquals(3, buffer.drainTo(batch::add, 10));
+        assertEquals(0, buffer.drainTo(batch::add, 10));
+        assertEquals(List.of(1.0, 2.0, 3.0, 4.0, 5.0), values(batch));
+    }
+
+    @Test
+    void testBlockingProducersLoseNothing() throws Exception {
+        MetricBuffer buffer = new MetricBuffer(16, MetricBuffer.OverflowPolicy.BLOCK);
+        int producers = 4;
+        int perProducer = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int offset = p * perProducer;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    assertTrue(buffer.add(event(offset + i)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        Set<Double> seen = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+            assertTrue(buffer.size() <= 16);
+            buffer.drainTo(e -> seen.add(e.getValue()), 8);
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(producers * perProducer, seen.size());
+        assertEquals(0, buffer.getDroppedCount());
+        assertTrue(buffer.isEmpty());
+    }
+}
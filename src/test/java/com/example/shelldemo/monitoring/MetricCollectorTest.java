@@ -0,0 +1,76 @@
+package com.example.shelldemo.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricCollectorTest {
+
+    private static List<String> names(MetricSampleStore samples) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < samples.size(); i++) {
+            names.add(samples.symbols().nameOf(samples.name(i)));
+        }
+        return names;
+    }
+
+    @Test
+    void testCollectorReportsEverySample() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        registry.timer("command.execution.time").record(Duration.ofMillis(250));
+        registry.counter("command.execution.count").increment(4);
+        registry.counter("command.error.count").increment();
+        MetricSampleStore samples = new MetricSampleStore(new MetricSymbols(), 1);
+
+        new CommandMetricsCollector(registry).collect(samples);
+
+        assertEquals(List.of("command.execution.time", "command.execution.count", "command.error.count"),
+            names(samples));
+        assertEquals(250.0, samples.value(0));
+        assertEquals(4.0, samples.value(1));
+        assertEquals(1.0, samples.value(2));
+        assertEquals("command", samples.symbols().nameOf(samples.collector(2)));
+    }
+
+    @Test
+    void testMissingMetersAreSkippedWithoutLosingTheOthers() {
+        MetricSampleStore samples = new MetricSampleStore(new MetricSymbols(), 4);
+
+        new JvmMetricsCollector(new SimpleMeterRegistry()).collect(samples);
+
+        assertEquals(List.of("jvm.memory.used", "jvm.threads.live"), names(samples));
+        assertTrue(samples.value(1) > 0);
+    }
+
+    @Test
+    void testBuilderCollectorsStillReportTheirSample() {
+        MetricCollector legacy = new LegacyMetricCollector() {
+            @Override
+            public String getName() {
+                return "legacy";
+            }
+
+            @Override
+            public void collect(MetricEvent.Builder builder) {
+                builder.name("legacy.queue.depth").value(7).timestamp(Instant.ofEpochSecond(2)).tag("queue", "a");
+            }
+        };
+        MetricSampleStore samples = new MetricSampleStore(new MetricSymbols(), 4);
+
+        legacy.collect(samples);
+
+        MetricEvent event = samples.toEvent(0);
+        assertEquals("legacy", event.getCollector());
+        assertEquals("legacy.queue.depth", event.getName());
+        assertEquals(7.0, event.getValue());
+        assertEquals("a", event.getTags().get("queue"));
+        assertEquals(Instant.ofEpochSecond(2), event.getTimestamp());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.shelldemo.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricSampleStoreTest {
+
+    @Test
+    void testSymbolsAreInternedOnce() {
+        MetricSymbols symbols = new MetricSymbols();
+        int used = symbols.name("jvm.memory.used");
+
+        assertEquals(used, symbols.name(new String("jvm.memory.used")));
+        assertNotEquals(used, symbols.name("jvm.threads.live"));
+        assertEquals("jvm.memory.used", symbols.nameOf(used));
+        assertEquals(MetricSymbols.NO_TAGS, symbols.tags(Map.of()));
+        int pool = symbols.tags(Map.of("pool", "main"));
+        assertEquals(pool, symbols.tags(new HashMap<>(Map.of("pool", "main"))));
+        assertEquals(Map.of("pool", "main"), symbols.tagsOf(pool));
+        assertThrows(IllegalArgumentException.class, () -> symbols.nameOf(1000));
+    }
+
+    @Test
+    void testStoreGrowsAndIsReusedAfterClear() {
+        MetricSymbols symbols = new MetricSymbols();
+        int collector = symbols.name("jvm");
+        int name = symbols.name("jvm.threads.live");
+        int tags = symbols.tags(Map.of("host", "db1"));
+        MetricSampleStore store = new MetricSampleStore(symbols, 2);
+        for (int i = 0; i < 5; i++) {
+            store.add(collector, name, tags, 1_500_000_000L + i, i);
+        }
+
+        assertEquals(5, store.size());
+        assertEquals(4.0, store.value(4));
+        assertEquals(1_500_000_004L, store.timestamp(4));
+        MetricEvent event = store.toEvent(1);
+        assertEquals("jvm", event.getCollector());
+        assertEquals("jvm.threads.live", event.getName());
+        assertEquals(Map.of("host", "db1"), event.getTags());
+        assertEquals(Instant.ofEpochSecond(1, 500_000_001), event.getTimestamp());
+
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.value(0));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.shelldemo.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsManagerTest {
+
+    private static MetricCollector counting(String name, AtomicInteger runs, Duration sleep) {
+        return new MetricCollector() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void collect(MetricSampleStore samples) {
+                runs.incrementAndGet();
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    @Test
+    void testSlowCollectorTimesOutWithoutDelayingOthers() throws Exception {
+        AtomicInteger fastRuns = new AtomicInteger();
+        AtomicInteger slowRuns = new AtomicInteger();
+        CountDownLatch fastEnough = new CountDownLatch(10);
+        MetricsManager manager = new MetricsManager(new SimpleMeterRegistry());
+        manager.addCollector(new MetricCollector() {
+            @Override
+            public String getName() {
+                return "fast";
+            }
+
+            @Override
+            public void collect(MetricSampleStore samples) {
+                fastRuns.incrementAndGet();
+                fastEnough.countDown();
+            }
+        }, Duration.ofMillis(20), Duration.ofMillis(500));
+        manager.addCollector(counting("slow", slowRuns, Duration.ofSeconds(10)),
+            Duration.ofMillis(20), Duration.ofMillis(30));
+
+        manager.start();
+        try {
+            assertTrue(fastEnough.await(5, TimeUnit.SECONDS));
+            Thread.sleep(300);
+        } finally {
+            manager.stop();
+        }
+
+        assertTrue(fastRuns.get() >= 10);
+        // the circuit breaker opens after three timeouts in a row
+        assertEquals(3, slowRuns.get());
+    }
+
+    @Test
+    void testRejectsNonPositiveSchedules() {
+        MetricsManager manager = new MetricsManager(new SimpleMeterRegistry());
+        MetricCollector collector = counting("noop", new AtomicInteger(), Duration.ZERO);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> manager.addCollector(collector, Duration.ZERO, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+            () -> manager.addCollector(collector, Duration.ofSeconds(1), Duration.ofMillis(-1)));
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.shelldemo.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MetricsPersistenceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static MetricEvent event(String name, double value, Instant timestamp) {
+        return new MetricEvent("test", name, value, Map.of(), timestamp);
+    }
+
+    private long spillFiles() throws Exception {
+        return files(".spill");
+    }
+
+    private long files(String suffix) throws Exception {
+        if (!Files.isDirectory(tempDir.resolve("spill"))) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(tempDir.resolve("spill"))) {
+            return files.filter(file -> file.toString().endsWith(suffix)).count();
+        }
+    }
+
+    @Test
+    void testWritesBatchesWithOneStatementAndTheEventTimestamps() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(insert);
+        Instant taken = Instant.parse("2024-01-02T03:04:05.123456789Z");
+
+        try (MetricsPersistence persistence = new MetricsPersistence(() -> conn,
+                new MetricBuffer(16, MetricBuffer.OverflowPolicy.BLOCK), 2, Duration.ofSeconds(10), null)) {
+            for (int i = 0; i < 5; i++) {
+                persistence.saveMetric(event("jvm.threads.live", i, taken));
+            }
+        }
+
+        verify(conn, times(1)).prepareStatement("INSERT INTO metrics (name, value, timestamp) VALUES (?, ?, ?)");
+        verify(conn).setAutoCommit(false);
+        verify(insert, times(5)).addBatch();
+        verify(insert, times(5)).setTimestamp(3, Timestamp.from(taken));
+        verify(insert, times(3)).executeBatch();
+        verify(conn, times(3)).commit();
+    }
+
+    @Test
+    void testWriterSurvivesAnUnexpectedFailure() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(insert);
+        doThrow(new IllegalStateException("driver bug")).doNothing().when(insert).addBatch();
+        Instant taken = Instant.ofEpochSecond(1_700_000_000L);
+
+        try (MetricsPersistence persistence = new MetricsPersistence(() -> conn,
+                new MetricBuffer(1, MetricBuffer.OverflowPolicy.BLOCK), 1, Duration.ofMillis(10), null)) {
+            persistence.saveMetric(event("system.cpu.usage", 0.5, taken));
+            // with room for one event, these only return once the writer drained the ones before
+            persistence.saveMetric(event("system.cpu.usage", 0.75, taken));
+            persistence.saveMetric(event("system.cpu.usage", 1.0, taken));
+        }
+
+        verify(conn).rollback();
+        verify(insert, times(3)).addBatch();
+        verify(conn, times(2)).commit();
+    }
+
+    @Test
+    void testSpillsWhileTheDatabaseIsDownAndReplaysLater() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(insert);
+        when(insert.executeBatch()).thenThrow(new SQLNonTransientConnectionException("Connection reset", "08006"))
+            .thenReturn(new int[] {1});
+        Instant taken = Instant.ofEpochSecond(1_700_000_000L, 42);
+        AtomicInteger opened = new AtomicInteger();
+
+        try (MetricsPersistence persistence = new MetricsPersistence(() -> {
+                    opened.incrementAndGet();
+                    return conn;
+                }, new MetricBuffer(16), 2,
+                Duration.ofSeconds(10), tempDir.resolve("spill"))) {
+            persistence.saveMetric(event("system.cpu.usage", 0.5, taken));
+            persistence.saveMetric(event("system.cpu.usage", 0.75, taken));
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (spillFiles() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, spillFiles());
+            verify(conn).rollback();
+
+            // the database is tried again after the one second retry delay
+            Thread.sleep(1100);
+            persistence.saveMetric(event("system.memory.used", 1024, taken));
+        }
+
+        assertEquals(0, spillFiles());
+        // the broken connection was closed and a new one opened for the retry
+        assertEquals(2, opened.get());
+        verify(conn, times(2)).close();
+        verify(insert, times(2)).setDouble(2, 0.75);
+        verify(insert, times(1)).setDouble(2, 1024);
+        verify(insert, times(5)).setTimestamp(3, Timestamp.from(taken));
+        verify(conn, times(2)).commit();
+    }
+
+    @Test
+    void testRejectedBatchesAndSpillFilesAreSetAsideWithoutBlockingTheRest() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(insert);
+        SQLException tooLarge = new BatchUpdateException("value too large for column", "22001", new int[0]);
+        // the spill file from an earlier run, then the first new batch, are rejected
+        when(insert.executeBatch()).thenThrow(tooLarge, tooLarge).thenReturn(new int[] {1});
+        Path spill = Files.createDirectories(tempDir.resolve("spill"));
+        Files.writeString(spill.resolve("metrics-1-000001.spill"), "1700000000\t0\t1.0E300\tsystem.cpu.usage\n");
+        Files.writeString(spill.resolve("metrics-1-000002.spill"), "not a metric\n");
+        Instant taken = Instant.ofEpochSecond(1_700_000_000L);
+
+        try (MetricsPersistence persistence = new MetricsPersistence(() -> conn, new MetricBuffer(16), 1,
+                Duration.ofSeconds(10), spill)) {
+            persistence.saveMetric(event("system.cpu.usage", 0.5, taken));
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (files(".failed") < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            persistence.saveMetric(event("system.cpu.usage", 0.75, taken));
+        }
+
+        assertEquals(0, spillFiles());
+        assertEquals(3, files(".failed"));
+        assertTrue(Files.exists(spill.resolve("metrics-1-000001.failed")));
+        verify(insert).setDouble(2, 0.75);
+        verify(conn, times(1)).commit();
+        verify(conn, times(1)).close();
+    }
+
+    @Test
+    void testTellsConnectionFailuresFromDataFailures() {
+        assertTrue(MetricsPersistence.isConnectionFailure(new SQLException("I/O error", "08006")));
+        assertTrue(MetricsPersistence.isConnectionFailure(new SQLNonTransientConnectionException("closed")));
+        assertTrue(MetricsPersistence.isRetryable(new SQLException("deadlock detected", "40P01")));
+        assertFalse(MetricsPersistence.isRetryable(new SQLException("duplicate key", "23505")));
+        assertFalse(MetricsPersistence.isRetryable(new SQLException("no state")));
+    }
+
+    @Test
+    void testWritesCollectedSamplesUnderTheirTaggedNames() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(insert);
+        MetricSymbols symbols = MetricSymbols.shared();
+        MetricSampleStore samples = new MetricSampleStore();
+        long taken = 1_700_000_000_123_456_789L;
+        samples.add(symbols.name("jvm"), symbols.name("jvm.threads.live"), MetricSymbols.NO_TAGS, taken, 12);
+        samples.add(symbols.name("metrics"), symbols.name("metrics.collection.lag"),
+            symbols.tags(Map.of("collector", "jvm")), taken, 1.5);
+        samples.add(symbols.name("metrics"), symbols.name("metrics.collection.lag"),
+            symbols.tags(Map.of("collector", "system", "host", "db1")), taken, 2.5);
+
+        try (MetricsPersistence persistence = new MetricsPersistence(() -> conn, new MetricBuffer(16), 10,
+                Duration.ofSeconds(10), null)) {
+            persistence.accept(samples);
+            samples.clear();
+        }
+
+        verify(insert).setString(1, "jvm.threads.live");
+        verify(insert).setString(1, "metrics.collection.lag{collector=jvm}");
+        verify(insert).setString(1, "metrics.collection.lag{collector=system,host=db1}");
+        verify(insert, times(3)).setTimestamp(3, Timestamp.from(Instant.ofEpochSecond(1_700_000_000L, 123_456_789)));
+        verify(insert).executeBatch();
+        verify(conn).commit();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.BatchUpdateException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkProcedureCallerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Connection conn;
+    private DatabaseMetaData metaData;
+    private CallableStatement stmt;
+    private Path paramFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        conn = mock(Connection.class);
+        metaData = mock(DatabaseMetaData.class);
+        stmt = mock(CallableStatement.class);
+        when(conn.getMetaData()).thenReturn(metaData);
+        when(conn.getAutoCommit()).thenReturn(true);
+        when(conn.prepareCall("{call add_region(?, ?)}")).thenReturn(stmt);
+        paramFile = Files.writeString(tempDir.resolve("regions.csv"),
+            "p_name,p_id\nEurope,1\nAmericas,2\nAsia,3\n,4\nOceania,5\n");
+    }
+
+    private void describeAddRegion(int idType, String idTypeName, int nameType, String nameTypeName)
+            throws Exception {
+        Object[][] rows = {
+            {DatabaseMetaData.procedureColumnIn, "p_id", idType, idTypeName, 1},
+            {DatabaseMetaData.procedureColumnIn, "p_name", nameType, nameTypeName, 2},
+        };
+        ResultSet rs = mock(ResultSet.class);
+        AtomicInteger row = new AtomicInteger(-1);
+        when(rs.next()).thenAnswer(next -> row.incrementAndGet() < rows.length);
+        when(rs.getShort("COLUMN_TYPE")).thenAnswer(get -> ((Integer) rows[row.get()][0]).shortValue());
+        when(rs.getString("COLUMN_NAME")).thenAnswer(get -> rows[row.get()][1]);
+        when(rs.getInt("DATA_TYPE")).thenAnswer(get -> rows[row.get()][2]);
+        when(rs.getString("TYPE_NAME")).thenAnswer(get -> rows[row.get()][3]);
+        when(rs.getInt("ORDINAL_POSITION")).thenAnswer(get -> rows[row.get()][4]);
+        when(rs.getString("PROCEDURE_NAME")).thenReturn("add_region");
+        when(metaData.getProcedureColumns(null, null, "add_region", "%")).thenReturn(rs);
+    }
+
+    @Test
+    void testSendsRowsInBatchesAndCommitsEveryNRows() throws Exception {
+        describeAddRegion(Types.INTEGER, "int4", Types.VARCHAR, "varchar");
+
+        long rows = new BulkProcedureCaller(conn, 2, 4).call("add_region", paramFile);
+
+        assertEquals(5, rows);
+        verify(stmt, times(5)).addBatch();
+        verify(stmt, times(3)).executeBatch();
+        verify(conn, times(2)).commit();
+        verify(stmt).setBigDecimal(1, new BigDecimal("3"));
+        verify(stmt).setString(2, "Asia");
+        verify(stmt).setNull(2, Types.VARCHAR);
+        verify(conn).setAutoCommit(true);
+    }
+
+    @Test
+    void testBindsChunksAsArraysWhenEveryParameterIsACollection() throws Exception {
+        describeAddRegion(Types.ARRAY, "_int4", Types.ARRAY, "_varchar");
+        when(conn.createArrayOf(anyString(), any(Object[].class))).thenReturn(mock(Array.class));
+
+        long rows = new BulkProcedureCaller(conn, 3, 100).call("add_region", paramFile);
+
+        assertEquals(5, rows);
+        verify(stmt, times(2)).execute();
+        verify(stmt, never()).addBatch();
+        verify(conn).createArrayOf("int4", new Object[] {"1", "2", "3"});
+        verify(conn).createArrayOf("varchar", new Object[] {null, "Oceania"});
+        verify(conn, times(1)).commit();
+    }
+
+    @Test
+    void testRollsBackAndReportsTheFailedRows() throws Exception {
+        describeAddRegion(Types.INTEGER, "int4", Types.VARCHAR, "varchar");
+        when(stmt.executeBatch()).thenReturn(new int[2]).thenThrow(new BatchUpdateException());
+
+        Exception e = assertThrows(SQLException.class,
+            () -> new BulkProcedureCaller(conn, 2, 2).call("add_region", paramFile));
+
+        assertTrue(e.getMessage().contains("rows 3 to 4"));
+        verify(conn, times(1)).commit();
+        verify(conn).rollback();
+    }
+
+    @Test
+    void testMalformedRowRollsBackTheOpenTransactionBeforeRestoringAutoCommit() throws Exception {
+        describeAddRegion(Types.INTEGER, "int4", Types.VARCHAR, "varchar");
+        Files.writeString(paramFile, "p_name,p_id\nEurope,1\nAmericas,2\nAsia,3\nOceania\n");
+
+        Exception e = assertThrows(IllegalArgumentException.class,
+            () -> new BulkProcedureCaller(conn, 2, 4).call("add_region", paramFile));
+
+        assertTrue(e.getMessage().contains("has 1 fields"));
+        verify(stmt, times(1)).executeBatch();
+        verify(conn, never()).commit();
+        var order = inOrder(conn);
+        order.verify(conn).rollback();
+        order.verify(conn).setAutoCommit(true);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import com.example.shelldemo.runner.ColumnarFormat.ColumnType;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ColumnarResultWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTripAcrossBlocks() throws Exception {
+        Timestamp hired = Timestamp.valueOf("2024-03-01 09:30:00.123456");
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(1L, 2L, 3L);
+        when(rs.getString(2)).thenReturn("Europe", "Europe", null);
+        when(rs.getBigDecimal(3)).thenReturn(new BigDecimal("100.50"), null, new BigDecimal("7.25"));
+        when(rs.getTimestamp(4)).thenReturn(hired, hired, null);
+        when(rs.wasNull()).thenReturn(false, false, false, false, false, false, true, false, false, true, false, true);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnType[] types = {ColumnType.LONG, ColumnType.STRING, ColumnType.DECIMAL, ColumnType.TIMESTAMP};
+        try (ColumnarResultWriter writer = new ColumnarResultWriter(out,
+                new String[] {"ID", "REGION", "SALARY", "HIRED"}, types, 2)) {
+            for (int i = 0; i < 3; i++) {
+                writer.addRow(rs);
+            }
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(out.toByteArray()))) {
+            assertArrayEquals(new String[] {"ID", "REGION", "SALARY", "HIRED"}, reader.getColumnNames());
+            assertArrayEquals(types, reader.getColumnTypes());
+
+            assertTrue(reader.next());
+            assertEquals(1L, reader.getLong(1));
+            assertEquals("Europe", reader.getString(2));
+            assertEquals(new BigDecimal("100.50"), reader.getBigDecimal(3));
+            assertEquals(hired, reader.getTimestamp(4));
+
+            assertTrue(reader.next());
+            assertEquals(2L, reader.getObject(1));
+            assertTrue(reader.isNull(3));
+
+            assertTrue(reader.next());
+            assertEquals(3L, reader.getLong(1));
+            assertNull(reader.getString(2));
+            assertEquals(new BigDecimal("7.25"), reader.getBigDecimal(3));
+            assertNull(reader.getTimestamp(4));
+
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void testExportUsesTypedColumnsAndPlainStrings() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnName(1)).thenReturn("EMPLOYEE_ID");
+        when(metaData.getColumnName(2)).thenReturn("EMAIL");
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(metaData.getPrecision(1)).thenReturn(6);
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getLong(1)).thenReturn(100L, 101L);
+        when(rs.getString(2)).thenReturn("SKING", "NKOCHHAR");
+
+        Path file = tempDir.resolve("employees.scol");
+        assertEquals(2, ColumnarResultWriter.export(rs, file, rs::next));
+        verify(rs, never()).getString(1);
+
+        try (ColumnarReader reader = new ColumnarReader(file)) {
+            assertArrayEquals(new ColumnType[] {ColumnType.LONG, ColumnType.STRING}, reader.getColumnTypes());
+            assertTrue(reader.next());
+            assertEquals("SKING", reader.getString(2));
+            assertTrue(reader.next());
+            assertEquals(101L, reader.getLong(1));
+            assertEquals("NKOCHHAR", reader.getString(2));
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("regions.csv"), "ID,NAME\n1,Europe\n");
+
+        assertThrows(IOException.class, () -> new ColumnarReader(file));
+    }
+}
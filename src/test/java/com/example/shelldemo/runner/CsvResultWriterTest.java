@@ -0,0 +1,33 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CsvResultWriterTest {
+
+    @Test
+    void testWritesRowsInOneForwardPass() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnName(1)).thenReturn("ID");
+        when(metaData.getColumnName(2)).thenReturn("NAME");
+        when(rs.next()).thenReturn(true, true, true, false);
+        when(rs.getString(1)).thenReturn("1", "2", "3");
+        when(rs.getString(2)).thenReturn("Europe", "Middle East, \"Africa\"", null);
+
+        StringWriter out = new StringWriter();
+        long rows = new CsvResultWriter(out).write(rs, rs::next);
+
+        assertEquals(3, rows);
+        assertEquals("ID,NAME\n1,Europe\n2,\"Middle East, \"\"Africa\"\"\"\n3,\n", out.toString());
+        verify(rs, never()).beforeFirst();
+    }
+}
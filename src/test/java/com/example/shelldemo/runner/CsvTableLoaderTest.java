@@ -0,0 +1,122 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CsvTableLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Connection conn;
+    private PreparedStatement insert;
+    private Path input;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        conn = mock(Connection.class);
+        insert = mock(PreparedStatement.class);
+        Statement stmt = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(conn.createStatement()).thenReturn(stmt);
+        when(stmt.executeQuery("SELECT REGION_ID, REGION_NAME FROM hr.regions WHERE 1 = 0")).thenReturn(rs);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(conn.prepareStatement("INSERT INTO hr.regions (REGION_ID, REGION_NAME) VALUES (?, ?)")).thenReturn(insert);
+
+        input = Files.writeString(tempDir.resolve("regions.csv"),
+            "ID,NAME\n1,Europe\n2,Americas\n3,Asia\n4,\"Middle East, \"\"Africa\"\"\"\n5,\n");
+    }
+
+    private CsvTableLoader.LoadRequest request(boolean resume) {
+        return new CsvTableLoader.LoadRequest(input, "hr.regions", List.of("ID=REGION_ID", "NAME=REGION_NAME"),
+            2, 2, 1, CsvTableLoader.checkpointFile(input), resume);
+    }
+
+    @Test
+    void testReadsQuotedFieldsAcrossLines() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("ID,NOTE\r\n1,\"two\nlines, \"\"quoted\"\"\"\n\n2,\n"));
+
+        assertArrayEquals(new String[] {"ID", "NOTE"}, reader.next());
+        assertArrayEquals(new String[] {"1", "two\nlines, \"quoted\""}, reader.next());
+        assertArrayEquals(new String[] {"2", ""}, reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testCommitsEveryChunkAndRemovesCheckpoint() throws Exception {
+        long rows = new CsvTableLoader(() -> conn).load(request(false));
+
+        assertEquals(5, rows);
+        verify(insert, times(5)).addBatch();
+        verify(insert, times(3)).executeBatch();
+        verify(conn, times(3)).commit();
+        verify(insert).setBigDecimal(1, new BigDecimal("4"));
+        verify(insert).setString(2, "Middle East, \"Africa\"");
+        verify(insert).setNull(2, Types.VARCHAR);
+        assertFalse(Files.exists(CsvTableLoader.checkpointFile(input)));
+    }
+
+    @Test
+    void testResumeSkipsCommittedChunks() throws Exception {
+        Files.writeString(CsvTableLoader.checkpointFile(input),
+            "table=hr.regions\ncommitEvery=2\ncommittedChunks=1\ncommittedAhead=2\n");
+
+        long rows = new CsvTableLoader(() -> conn).load(request(true));
+
+        assertEquals(2, rows);
+        verify(insert, times(2)).addBatch();
+        verify(insert).setString(2, "Asia");
+        verify(insert, never()).setString(2, "Europe");
+        verify(insert, never()).setNull(anyInt(), anyInt());
+    }
+
+    @Test
+    void testRollsBackFailedChunkAndKeepsCheckpoint() throws Exception {
+        when(insert.executeBatch()).thenReturn(new int[] {1, 1}).thenThrow(new SQLException("ORA-00001: unique constraint violated"));
+
+        SQLException e = assertThrows(SQLException.class,
+            () -> new CsvTableLoader(() -> conn).load(request(false)));
+
+        assertTrue(e.getMessage().startsWith("Loading rows 3 to 4 failed"));
+        verify(conn).rollback();
+        assertTrue(Files.readString(CsvTableLoader.checkpointFile(input)).contains("committedChunks=1"));
+    }
+
+    @Test
+    void testRollsBackChunkBeforeRestoringAutoCommitOnUncheckedFailure() throws Exception {
+        when(conn.getAutoCommit()).thenReturn(true);
+        when(insert.executeBatch()).thenReturn(new int[] {1, 1}).thenThrow(new IllegalStateException("driver bug"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> new CsvTableLoader(() -> conn).load(request(false)));
+
+        assertEquals("driver bug", e.getCause().getMessage());
+        InOrder order = inOrder(conn);
+        order.verify(conn).rollback();
+        order.verify(conn).setAutoCommit(true);
+        verify(conn, times(1)).commit();
+        assertTrue(Files.readString(CsvTableLoader.checkpointFile(input)).contains("committedChunks=1"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DdlBuildSchedulerTest {
+
+    @Test
+    void testClassifiesIndexAndConstraintBuilds() {
+        DdlBuildScheduler.Build index = DdlBuildScheduler.classify(
+            "-- speeds up lookups\nCREATE UNIQUE INDEX emp_email_uk ON hr.employees (email)");
+        assertEquals("employees", index.table());
+        assertEquals(Set.of("employees", "emp_email_uk"), index.keys());
+
+        DdlBuildScheduler.Build foreignKey = DdlBuildScheduler.classify("ALTER TABLE employees ADD "
+            + "( CONSTRAINT emp_dept_fk FOREIGN KEY (department_id) REFERENCES departments )");
+        assertEquals(Set.of("employees", "emp_dept_fk", "departments"), foreignKey.keys());
+
+        assertNotNull(DdlBuildScheduler.classify("ALTER TABLE ONLY public.\"Orders\" ADD PRIMARY KEY (id)"));
+        assertNull(DdlBuildScheduler.classify("CREATE TABLE regions (region_id NUMBER)"));
+        assertNull(DdlBuildScheduler.classify("ALTER TABLE employees ADD (salary NUMBER(8,2))"));
+        assertNull(DdlBuildScheduler.classify("CREATE OR REPLACE TRIGGER t BEFORE INSERT ON employees BEGIN NULL; END;"));
+    }
+
+    @Test
+    void testBuildsOnOneTableRunInOrderAndStatementsWaitForThem() throws Exception {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Statement stmt = mock(Statement.class);
+        when(stmt.execute(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.contains("jobs")) {
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            }
+            executed.add(sql);
+            return false;
+        });
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement()).thenReturn(stmt);
+
+        try (DdlBuildScheduler scheduler = new DdlBuildScheduler(() -> conn, 4, true)) {
+            for (String sql : List.of("CREATE UNIQUE INDEX job_id_pk ON jobs (job_id)",
+                    "ALTER TABLE jobs ADD CONSTRAINT job_id_pk PRIMARY KEY (job_id)",
+                    "CREATE INDEX reg_name_ix ON regions (region_name)")) {
+                scheduler.submit(BoundStatement.raw(sql), DdlBuildScheduler.classify(sql));
+            }
+            scheduler.awaitTables("INSERT INTO regions VALUES (1, 'Europe')");
+            assertEquals(List.of("CREATE INDEX reg_name_ix ON regions (region_name)"), executed);
+
+            release.countDown();
+            scheduler.awaitTables("INSERT INTO jobs VALUES ('AD_PRES', 'President')");
+            assertEquals(List.of("CREATE INDEX reg_name_ix ON regions (region_name)",
+                "CREATE UNIQUE INDEX job_id_pk ON jobs (job_id)",
+                "ALTER TABLE jobs ADD CONSTRAINT job_id_pk PRIMARY KEY (job_id)"), executed);
+            scheduler.awaitAll();
+        }
+        verify(conn, times(3)).setAutoCommit(true);
+        verify(conn, times(3)).close();
+    }
+
+    @Test
+    void testFailedBuildStopsTheScriptWithStopOnError() throws Exception {
+        Statement stmt = mock(Statement.class);
+        when(stmt.execute(anyString())).thenThrow(new SQLException("ORA-00942: table or view does not exist"));
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement()).thenReturn(stmt);
+        String sql = "CREATE INDEX loc_city_ix ON locations (city)";
+
+        try (DdlBuildScheduler scheduler = new DdlBuildScheduler(() -> conn, 2, true)) {
+            scheduler.submit(BoundStatement.raw(sql), DdlBuildScheduler.classify(sql));
+            SQLException e = assertThrows(SQLException.class, () -> scheduler.awaitTables("SELECT * FROM locations"));
+            assertTrue(e.getMessage().contains("ORA-00942"));
+        }
+
+        try (DdlBuildScheduler scheduler = new DdlBuildScheduler(() -> conn, 2, false)) {
+            scheduler.submit(BoundStatement.raw(sql), DdlBuildScheduler.classify(sql));
+            assertDoesNotThrow(scheduler::awaitAll);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DialectBulkPathTest {
+
+    @TempDir
+    Path tempDir;
+
+    /** Stands in for the PostgreSQL driver's connection and CopyManager. */
+    public interface PgConnection extends Connection {
+        CopyManager getCopyAPI();
+    }
+
+    public interface CopyManager {
+        long copyIn(String sql, Reader from) throws SQLException;
+
+        long copyOut(String sql, Writer to) throws SQLException;
+    }
+
+    /** Stands in for the MySQL driver's statement. */
+    public interface MysqlStatement extends Statement {
+        void setLocalInfileInputStream(InputStream stream);
+    }
+
+    private static final DialectBulkPath.LoadTarget REGIONS = new DialectBulkPath.LoadTarget("hr.regions",
+        List.of("REGION_ID", "REGION_NAME"), new int[] {Types.NUMERIC, Types.VARCHAR}, 100);
+
+    private static final List<String[]> ROWS = List.of(
+        new String[] {"1", "Europe"}, new String[] {"2", "Middle East, \"Africa\""}, new String[] {"3", ""});
+
+    @Test
+    void testPostgresCopiesRowsAsCsvWithUnquotedNulls() throws Exception {
+        PgConnection conn = mock(PgConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        when(conn.getCopyAPI()).thenReturn(copyManager);
+        AtomicReference<String> copied = new AtomicReference<>();
+        when(copyManager.copyIn(anyString(), any(Reader.class))).thenAnswer(invocation -> {
+            StringWriter text = new StringWriter();
+            ((Reader) invocation.getArgument(1)).transferTo(text);
+            copied.set(text.toString());
+            return 3L;
+        });
+
+        DialectBulkPath.forDialect("postgresql", false).load(conn, REGIONS, ROWS, 0);
+
+        verify(copyManager).copyIn(eq("COPY hr.regions (REGION_ID, REGION_NAME) FROM STDIN WITH (FORMAT csv)"),
+            any(Reader.class));
+        assertEquals("\"1\",\"Europe\"\n\"2\",\"Middle East, \"\"Africa\"\"\"\n\"3\",\n", copied.get());
+        verify(conn, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    void testPostgresExportInlinesNumericChunkBounds() throws Exception {
+        PgConnection conn = mock(PgConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        when(conn.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyOut(anyString(), any(Writer.class))).thenAnswer(invocation -> {
+            ((Writer) invocation.getArgument(1)).write("REGION_ID\n1\n");
+            return 1L;
+        });
+        Path part = tempDir.resolve("regions.part-000.csv");
+
+        long rows = DialectBulkPath.forDialect("postgresql", false).export(conn,
+            "SELECT * FROM hr.regions WHERE region_id >= ? AND region_id < ?", List.of(1L, 5L), part, null);
+
+        assertEquals(1, rows);
+        verify(copyManager).copyOut(eq("COPY (SELECT * FROM hr.regions WHERE region_id >= 1 AND region_id < 5) "
+            + "TO STDOUT WITH (FORMAT csv, HEADER)"), any(Writer.class));
+        assertEquals("REGION_ID\n1\n", Files.readString(part));
+    }
+
+    @Test
+    void testFallsBackToBatchedInsertWithoutDriverApi() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(conn.prepareStatement("INSERT INTO hr.regions (REGION_ID, REGION_NAME) VALUES (?, ?)")).thenReturn(insert);
+
+        DialectBulkPath path = DialectBulkPath.forDialect("postgresql", false);
+        path.load(conn, REGIONS, ROWS, 0);
+        path.load(conn, REGIONS, ROWS, 3);
+
+        assertTrue(path.fellBack());
+        verify(insert, times(6)).addBatch();
+        verify(insert, times(2)).setNull(2, Types.VARCHAR);
+    }
+
+    @Test
+    void testMysqlStreamsLoadDataAndFallsBackWhenRefused() throws Exception {
+        Connection conn = mock(Connection.class);
+        MysqlStatement stmt = mock(MysqlStatement.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(conn.createStatement()).thenReturn(stmt);
+        when(conn.prepareStatement(anyString())).thenReturn(insert);
+        AtomicReference<String> streamed = new AtomicReference<>();
+        doAnswer(invocation -> {
+            streamed.set(new String(((InputStream) invocation.getArgument(0)).readAllBytes(), StandardCharsets.UTF_8));
+            return null;
+        }).when(stmt).setLocalInfileInputStream(any());
+        when(stmt.executeUpdate(startsWith("LOAD DATA LOCAL INFILE"))).thenReturn(3)
+            .thenThrow(new SQLException("Loading local data is disabled", "42000", 3948));
+
+        DialectBulkPath path = DialectBulkPath.forDialect("mysql", false);
+        path.load(conn, REGIONS, ROWS, 0);
+        assertEquals("\"1\",\"Europe\"\n\"2\",\"Middle East, \"\"Africa\"\"\"\n\"3\",NULL\n", streamed.get());
+        assertFalse(path.fellBack());
+
+        path.load(conn, REGIONS, ROWS, 3);
+        assertTrue(path.fellBack());
+        verify(insert, times(3)).addBatch();
+    }
+
+    @Test
+    void testOracleDirectPathSendsTheWholeChunkAsOneBatch() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(insert);
+        DialectBulkPath.LoadTarget smallBatches = new DialectBulkPath.LoadTarget("hr.regions",
+            List.of("REGION_ID", "REGION_NAME"), new int[] {Types.NUMERIC, Types.VARCHAR}, 2);
+
+        DialectBulkPath.forDialect("oracle", true).load(conn, smallBatches, ROWS, 0);
+        verify(insert, times(1)).executeBatch();
+
+        DialectBulkPath.forDialect("oracle", false).load(conn, smallBatches, ROWS, 0);
+        verify(insert, times(3)).executeBatch();
+    }
+
+    @Test
+    void testOracleUsesDirectPathOnlyForASingleWriter() {
+        assertEquals("INSERT /*+ APPEND_VALUES */ INTO hr.regions (REGION_ID, REGION_NAME) VALUES (?, ?)",
+            DialectBulkPath.forDialect("oracle", true).insertSql(REGIONS));
+        assertEquals("INSERT INTO hr.regions (REGION_ID, REGION_NAME) VALUES (?, ?)",
+            DialectBulkPath.forDialect("oracle", false).insertSql(REGIONS));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FanOutExecutorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<FanOutExecutor.Target> targets(int count) {
+        List<FanOutExecutor.Target> targets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            targets.add(new FanOutExecutor.Target("tenant" + i, Map.of("schema", "T" + i)));
+        }
+        return targets;
+    }
+
+    @Test
+    void testLoadsTargetsWithOverrides() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("tenants.txt"),
+            "# tenants\ntenant1 schema=T1\n\ntenant2 host=db2 port=5433 username=t2\n");
+
+        List<FanOutExecutor.Target> targets = FanOutExecutor.loadTargets(file);
+
+        assertEquals(2, targets.size());
+        assertEquals("T1", targets.get(0).setting("schema", null));
+        assertEquals("db2", targets.get(1).setting("host", "localhost"));
+        assertEquals("localhost", targets.get(0).setting("host", "localhost"));
+
+        Path invalid = Files.writeString(tempDir.resolve("invalid.txt"), "tenant1 url=jdbc:x\n");
+        assertThrows(IllegalArgumentException.class, () -> FanOutExecutor.loadTargets(invalid));
+    }
+
+    @Test
+    void testCapsConcurrencyAndReportsEveryTarget() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<FanOutExecutor.TargetResult> results = new FanOutExecutor(3, Duration.ZERO).execute(targets(20),
+            target -> {
+                if (target.name().equals("tenant7")) {
+                    throw new SQLException("ORA-01017: invalid username/password");
+                }
+                return mock(Connection.class);
+            },
+            conn -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return 0;
+            });
+
+        assertEquals(20, results.size());
+        assertTrue(maxRunning.get() <= 3);
+        assertEquals("tenant7", results.get(7).target());
+        assertEquals(FanOutExecutor.Status.FAILED, results.get(7).status());
+        assertEquals(19, results.stream().filter(r -> r.status() == FanOutExecutor.Status.SUCCEEDED).count());
+    }
+
+    @Test
+    void testTimeoutAbortsConnection() throws Exception {
+        Connection conn = mock(Connection.class);
+
+        List<FanOutExecutor.TargetResult> results = new FanOutExecutor(2, Duration.ofMillis(50)).execute(targets(1),
+            target -> conn,
+            c -> {
+                Thread.sleep(10_000);
+                return 0;
+            });
+
+        assertEquals(FanOutExecutor.Status.TIMED_OUT, results.get(0).status());
+        assertTrue(results.get(0).elapsedMillis() < 10_000);
+        verify(conn).abort(any(Executor.class));
+    }
+}
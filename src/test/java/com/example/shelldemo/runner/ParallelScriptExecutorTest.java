@@ -0,0 +1,105 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelScriptExecutorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private void createScripts(String... names) throws IOException {
+        for (String name : names) {
+            Files.writeString(tempDir.resolve(name), "SELECT 1 FROM dual;\n");
+        }
+    }
+
+    private static Map<String, ParallelScriptExecutor.Status> statuses(List<ParallelScriptExecutor.ScriptResult> results) {
+        return results.stream().collect(Collectors.toMap(
+            ParallelScriptExecutor.ScriptResult::name, ParallelScriptExecutor.ScriptResult::status));
+    }
+
+    @Test
+    void testDirectoryPlanOrdersByNumericPrefix() throws IOException {
+        createScripts("1_create_user.sql", "2_tables_a.sql", "2_tables_b.sql", "10_populate.sql", "cleanup.sql");
+
+        ScriptPlan plan = ScriptPlan.load(tempDir.toFile());
+
+        Map<String, Set<String>> dependencies = plan.getScripts().stream()
+            .collect(Collectors.toMap(ScriptPlan.Script::name, ScriptPlan.Script::dependencies));
+        assertEquals(Set.of(), dependencies.get("1_create_user.sql"));
+        assertEquals(Set.of("1_create_user.sql"), dependencies.get("2_tables_a.sql"));
+        assertEquals(Set.of("1_create_user.sql"), dependencies.get("2_tables_b.sql"));
+        assertEquals(Set.of("2_tables_a.sql", "2_tables_b.sql"), dependencies.get("10_populate.sql"));
+        assertEquals(Set.of("10_populate.sql"), dependencies.get("cleanup.sql"));
+    }
+
+    @Test
+    void testManifestRejectsCycles() throws IOException {
+        createScripts("a.sql", "b.sql");
+        Path manifest = Files.writeString(tempDir.resolve("rebuild.manifest"),
+            "# rebuild\na.sql: b.sql\nb.sql: a.sql\n");
+
+        assertTrue(ScriptPlan.isPlan(manifest.toFile()));
+        assertThrows(IllegalArgumentException.class, () -> ScriptPlan.load(manifest.toFile()));
+    }
+
+    @Test
+    void testRunsIndependentScriptsConcurrently() throws Exception {
+        createScripts("a.sql", "b.sql", "c.sql");
+        Files.writeString(tempDir.resolve(ScriptPlan.MANIFEST_NAME), "a.sql\nb.sql\nc.sql: a.sql, b.sql\n");
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Set<String> finished = ConcurrentHashMap.newKeySet();
+
+        List<ParallelScriptExecutor.ScriptResult> results = new ParallelScriptExecutor(4, true)
+            .execute(ScriptPlan.load(tempDir.toFile()), script -> {
+                if (!script.getName().equals("c.sql")) {
+                    bothStarted.countDown();
+                    // a.sql and b.sql only get past this if they run at the same time
+                    assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                } else {
+                    assertEquals(Set.of("a.sql", "b.sql"), finished);
+                }
+                finished.add(script.getName());
+                return 0;
+            });
+
+        assertEquals(List.of("a.sql", "b.sql", "c.sql"),
+            results.stream().map(ParallelScriptExecutor.ScriptResult::name).toList());
+        assertTrue(results.stream().allMatch(result -> result.status() == ParallelScriptExecutor.Status.SUCCEEDED));
+    }
+
+    @Test
+    void testSkipsDependentsOfFailedScript() throws Exception {
+        createScripts("1_a.sql", "1_b.sql", "2_c.sql");
+
+        List<ParallelScriptExecutor.ScriptResult> results = new ParallelScriptExecutor(1, false)
+            .execute(ScriptPlan.load(tempDir.toFile()), (File script) -> {
+                if (script.getName().equals("1_a.sql")) {
+                    throw new SQLException("ORA-00942: table or view does not exist");
+                }
+                return 0;
+            });
+
+        Map<String, ParallelScriptExecutor.Status> statuses = statuses(results);
+        assertEquals(ParallelScriptExecutor.Status.FAILED, statuses.get("1_a.sql"));
+        assertEquals(ParallelScriptExecutor.Status.SUCCEEDED, statuses.get("1_b.sql"));
+        assertEquals(ParallelScriptExecutor.Status.SKIPPED, statuses.get("2_c.sql"));
+        assertEquals("ORA-00942: table or view does not exist", results.get(0).error());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ParallelTableExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ParallelTableExporter.ExportRequest request(ParallelTableExporter.Split split, int chunks) {
+        return new ParallelTableExporter.ExportRequest("hr.employees", split, "employee_id", chunks, 2,
+            tempDir.resolve("employees.csv"), false);
+    }
+
+    @Test
+    void testKeyRangesCoverMinToMaxAndNulls() throws Exception {
+        Connection conn = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(conn.createStatement()).thenReturn(stmt);
+        when(stmt.executeQuery(startsWith("SELECT MIN(employee_id), MAX(employee_id) FROM hr.employees"))).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(1)).thenReturn(100L);
+        when(rs.getLong(2)).thenReturn(206L);
+
+        List<ParallelTableExporter.Chunk> chunks = new ParallelTableExporter("oracle", () -> conn, null)
+            .planChunks(conn, request(ParallelTableExporter.Split.KEY, 3));
+
+        assertEquals(4, chunks.size());
+        assertEquals(List.of(100L, 136L), chunks.get(0).parameters());
+        assertEquals(List.of(136L, 172L), chunks.get(1).parameters());
+        assertEquals(List.of(172L, 208L), chunks.get(2).parameters());
+        assertEquals(" WHERE employee_id >= ? AND employee_id < ?", chunks.get(0).where());
+        assertEquals(" WHERE employee_id IS NULL", chunks.get(3).where());
+    }
+
+    @Test
+    void testHashBucketsUseDialectHash() throws Exception {
+        List<ParallelTableExporter.Chunk> chunks = new ParallelTableExporter("postgresql", () -> null, null)
+            .planChunks(null, request(ParallelTableExporter.Split.HASH, 4));
+
+        assertEquals(5, chunks.size());
+        assertEquals(" WHERE employee_id IS NOT NULL AND MOD(ABS(HASHTEXT(employee_id::text)::bigint), ?) = ?",
+            chunks.get(2).where());
+        assertEquals(List.of(4, 2), chunks.get(2).parameters());
+        assertEquals(" WHERE employee_id IS NULL", chunks.get(4).where());
+    }
+
+    @Test
+    void testHashBucketsLeaveNullsToTheirOwnChunk() throws Exception {
+        List<ParallelTableExporter.Chunk> chunks = new ParallelTableExporter("sqlserver", () -> null, null)
+            .planChunks(null, request(ParallelTableExporter.Split.HASH, 2));
+
+        // CHECKSUM(NULL) is a number, so a bucket without the IS NOT NULL would also export the NULL rows
+        assertEquals(" WHERE employee_id IS NOT NULL AND (ABS(CAST(CHECKSUM(employee_id) AS BIGINT)) % ?) = ?",
+            chunks.get(0).where());
+        assertEquals(" WHERE employee_id IS NULL", chunks.get(2).where());
+    }
+
+    @Test
+    void testRejectsRowidSplitOutsideOracle() {
+        ParallelTableExporter exporter = new ParallelTableExporter("mysql", () -> null, null);
+
+        assertThrows(SQLException.class,
+            () -> exporter.planChunks(mock(Connection.class), request(ParallelTableExporter.Split.ROWID, 4)));
+    }
+
+    @Test
+    void testMergeKeepsFirstHeaderOnly() throws Exception {
+        Path output = tempDir.resolve("regions.csv");
+        Path first = Files.writeString(ParallelTableExporter.partFile(output, 0), "ID,NAME\n1,Europe\n");
+        Path second = Files.writeString(ParallelTableExporter.partFile(output, 1), "ID,NAME\n2,Americas\n");
+        Path empty = Files.writeString(ParallelTableExporter.partFile(output, 2), "ID,NAME\n");
+
+        ParallelTableExporter.mergeParts(List.of(first, second, empty), output);
+
+        assertEquals(tempDir.resolve("regions.part-001.csv"), second);
+        assertEquals("ID,NAME\n1,Europe\n2,Americas\n", Files.readString(output));
+        assertFalse(Files.exists(first));
+    }
+}
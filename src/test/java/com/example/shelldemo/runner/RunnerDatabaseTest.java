@@ -1,20 +1,50 @@
 package com.example.shelldemo.runner;
 
 import com.example.shelldemo.analysis.CommandData;
+import com.example.shelldemo.exception.DatabaseException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import picocli.CommandLine;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 class RunnerDatabaseTest {
 
+    private static final String SCRIPT = "INSERT INTO t VALUES (1);\n"
+        + "INSERT INTO t VALUES (2);\n"
+        + "INSERT INTO t VALUES (3);\n"
+        + "CREATE TABLE u (a INT);\n";
+
+    @TempDir
+    Path tempDir;
+
     private RunnerDatabase runnerDatabase;
+
+    @Mock
+    private Connection conn;
+
+    @Mock
+    private Statement batchStatement;
+
+    @Mock
+    private Statement statement;
     
     @Mock
     private CommandData command1;
@@ -51,4 +81,104 @@ class RunnerDatabaseTest {
         assertNotNull(successfulCommands);
         assertTrue(successfulCommands.size() <= 2);
     }
-} 
\ No newline at end of file
+
+    private int runScript(String... options) throws Exception {
+        Path script = Files.writeString(tempDir.resolve("script.sql"), SCRIPT);
+        // The first statement created is the batch; replays and other statements get their own
+        when(conn.createStatement()).thenReturn(batchStatement, statement);
+
+        List<String> args = new ArrayList<>(List.of("-t", "postgresql", "-H", "localhost", "-u", "app",
+            "-p", "secret", "-d", "app", "--batch-size", "10"));
+        args.addAll(List.of(options));
+        args.add(script.toString());
+        new CommandLine(runnerDatabase).parseArgs(args.toArray(String[]::new));
+        return runnerDatabase.executeScript(conn, script.toFile());
+    }
+
+    private static BatchUpdateException batchFailure() {
+        return new BatchUpdateException("duplicate key", new int[0]);
+    }
+
+    @Test
+    void testFlushesBatchBeforeNonBatchableStatement() throws Exception {
+        when(batchStatement.executeBatch()).thenReturn(new int[] {1, 1, 1});
+
+        assertEquals(0, runScript());
+
+        InOrder order = inOrder(batchStatement, statement);
+        order.verify(batchStatement, times(3)).addBatch(startsWith("INSERT INTO t"));
+        order.verify(batchStatement).executeBatch();
+        order.verify(statement).execute(startsWith("CREATE TABLE u"));
+        verify(statement, never()).execute(startsWith("INSERT"));
+    }
+
+    @Test
+    void testReplaysFailedBatchStatementByStatement() throws Exception {
+        when(batchStatement.executeBatch()).thenThrow(batchFailure());
+        when(statement.execute(startsWith("INSERT INTO t VALUES (2)"))).thenThrow(new SQLException("duplicate key"));
+
+        assertEquals(0, runScript("--stop-on-error=false"));
+
+        verify(statement).execute(startsWith("INSERT INTO t VALUES (1)"));
+        verify(statement).execute(startsWith("INSERT INTO t VALUES (2)"));
+        verify(statement).execute(startsWith("INSERT INTO t VALUES (3)"));
+        verify(statement).execute(startsWith("CREATE TABLE u"));
+        // Once for the failed batch, once for the failed replayed statement
+        verify(conn, times(2)).rollback();
+    }
+
+    @Test
+    void testStopOnErrorEndsReplayAtFailingStatement() throws Exception {
+        when(batchStatement.executeBatch()).thenThrow(batchFailure());
+        when(statement.execute(startsWith("INSERT INTO t VALUES (2)"))).thenThrow(new SQLException("duplicate key"));
+
+        assertThrows(SQLException.class, this::runScript);
+
+        verify(statement).execute(startsWith("INSERT INTO t VALUES (1)"));
+        verify(statement, never()).execute(startsWith("INSERT INTO t VALUES (3)"));
+        verify(statement, never()).execute(startsWith("CREATE TABLE u"));
+    }
+
+    @Test
+    void testBindLiteralsBatchesThroughCachedPreparedStatement() throws Exception {
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(conn.prepareStatement("INSERT INTO t VALUES (?)")).thenReturn(prepared);
+        when(prepared.executeBatch()).thenReturn(new int[] {1, 1, 1});
+
+        assertEquals(0, runScript("--bind-literals"));
+
+        verify(conn, times(1)).prepareStatement(anyString());
+        verify(prepared).setObject(1, 1L);
+        verify(prepared).setObject(1, 2L);
+        verify(prepared).setObject(1, 3L);
+        verify(prepared, times(3)).addBatch();
+        verify(prepared).executeBatch();
+        verify(prepared).close();
+        verify(batchStatement).execute(startsWith("CREATE TABLE u"));
+    }
+
+    @Test
+    void testPipelineKeepsStatementOrderAndStopOnError() throws Exception {
+        when(batchStatement.executeBatch()).thenThrow(batchFailure());
+        when(statement.execute(startsWith("INSERT INTO t VALUES (2)"))).thenThrow(new SQLException("duplicate key"));
+
+        assertThrows(SQLException.class, () -> runScript("--pipeline"));
+
+        InOrder order = inOrder(batchStatement, statement);
+        order.verify(batchStatement, times(3)).addBatch(startsWith("INSERT INTO t"));
+        order.verify(statement).execute(startsWith("INSERT INTO t VALUES (1)"));
+        order.verify(statement).execute(startsWith("INSERT INTO t VALUES (2)"));
+        verify(statement, never()).execute(startsWith("CREATE TABLE u"));
+    }
+
+    @Test
+    void testParallelDdlRejectsScriptPlans() throws Exception {
+        Files.writeString(tempDir.resolve("01_tables.sql"), SCRIPT);
+        new CommandLine(runnerDatabase).parseArgs("-t", "postgresql", "-H", "localhost", "-u", "app",
+            "-p", "secret", "-d", "app", "--parallel-ddl", tempDir.toString());
+
+        DatabaseException e = assertThrows(DatabaseException.class, runnerDatabase::call);
+
+        assertTrue(e.getMessage().contains("--parallel-ddl runs a single script, not a directory or manifest"));
+    }
+}
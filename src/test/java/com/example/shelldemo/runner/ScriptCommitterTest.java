@@ -0,0 +1,90 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ScriptCommitterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final BoundStatement INSERT = BoundStatement.raw("INSERT INTO t VALUES (1)");
+    private static final BoundStatement SELECT = BoundStatement.raw("SELECT * FROM t");
+
+    @Test
+    void testCommitsEveryNStatementsAndRecordsTheOffset() throws Exception {
+        Path script = Files.writeString(tempDir.resolve("load.sql"), "INSERT INTO t VALUES (1);\n");
+        Connection conn = mock(Connection.class);
+        ScriptCommitter.ScriptCheckpoint checkpoint = ScriptCommitter.ScriptCheckpoint.open(script, false);
+        ScriptCommitter committer = new ScriptCommitter(conn, false, 3, Duration.ZERO, checkpoint);
+
+        committer.executed(List.of(INSERT, INSERT));
+        verify(conn, never()).commit();
+        committer.executed(List.of(INSERT));
+        committer.executed(List.of(INSERT));
+        verify(conn, times(1)).commit();
+        assertEquals(3, ScriptCommitter.ScriptCheckpoint.open(script, true).committedStatements());
+
+        committer.finish();
+        verify(conn, times(2)).commit();
+        assertFalse(Files.exists(ScriptCommitter.ScriptCheckpoint.checkpointFile(script)));
+    }
+
+    @Test
+    void testRollbackReturnsUncommittedStatementsAndResumesAfterCommittedOnes() throws Exception {
+        Path script = Files.writeString(tempDir.resolve("load.sql"), "INSERT INTO t VALUES (1);\n");
+        Connection conn = mock(Connection.class);
+        ScriptCommitter committer = new ScriptCommitter(conn, false, 2, Duration.ZERO,
+            ScriptCommitter.ScriptCheckpoint.open(script, false));
+
+        committer.executed(List.of(INSERT, INSERT));
+        committer.executed(List.of(SELECT));
+        assertEquals(List.of(SELECT), committer.rollback());
+        verify(conn).rollback();
+        assertFalse(ScriptCommitter.needsReplay(SELECT));
+        assertTrue(ScriptCommitter.needsReplay(INSERT));
+
+        ScriptCommitter resumed = new ScriptCommitter(conn, false, 2, Duration.ZERO,
+            ScriptCommitter.ScriptCheckpoint.open(script, true));
+        assertEquals(2, resumed.resumeOffset());
+    }
+
+    @Test
+    void testDdlIsACommitPoint() throws Exception {
+        Path script = Files.writeString(tempDir.resolve("load.sql"), "INSERT INTO t VALUES (1);\n");
+        Connection conn = mock(Connection.class);
+        ScriptCommitter committer = new ScriptCommitter(conn, false, 10, Duration.ZERO,
+            ScriptCommitter.ScriptCheckpoint.open(script, false));
+        BoundStatement ddl = BoundStatement.raw("-- index for lookups\ncreate index t_ix on t (id)");
+
+        committer.executed(List.of(INSERT, INSERT));
+        committer.executing(ddl);
+        verify(conn, times(1)).commit();
+        committer.executed(List.of(ddl));
+        verify(conn, times(2)).commit();
+        assertEquals(3, ScriptCommitter.ScriptCheckpoint.open(script, true).committedStatements());
+
+        committer.executed(List.of(INSERT));
+        assertEquals(List.of(INSERT), committer.rollback());
+        assertFalse(ScriptCommitter.commitsImplicitly(SELECT));
+        assertTrue(ScriptCommitter.commitsImplicitly(BoundStatement.raw("TRUNCATE TABLE t")));
+    }
+
+    @Test
+    void testRejectsTheCheckpointOfAChangedScript() throws Exception {
+        Path script = Files.writeString(tempDir.resolve("load.sql"), "INSERT INTO t VALUES (1);\n");
+        ScriptCommitter.ScriptCheckpoint.open(script, false).save(1);
+        Files.writeString(script, "INSERT INTO t VALUES (2);\n");
+
+        assertThrows(IllegalArgumentException.class, () -> ScriptCommitter.ScriptCheckpoint.open(script, true));
+    }
+}
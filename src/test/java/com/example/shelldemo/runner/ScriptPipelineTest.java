@@ -0,0 +1,81 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ScriptPipelineTest {
+
+    private final List<String> rendered = new ArrayList<>();
+
+    private final ScriptPipeline.ResultSink recordingSink = new ScriptPipeline.ResultSink() {
+        @Override
+        public void start(String[] columns) {
+            rendered.add("start " + String.join(",", columns));
+        }
+
+        @Override
+        public void rows(List<String[]> rows) {
+            rows.forEach(row -> rendered.add(String.join(",", row)));
+        }
+
+        @Override
+        public void end() {
+            rendered.add("end");
+        }
+    };
+
+    private static ResultSet resultSet(String column, String... values) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnName(1)).thenReturn(column);
+        int[] row = {0};
+        when(rs.next()).thenAnswer(invocation -> ++row[0] <= values.length);
+        when(rs.getString(1)).thenAnswer(invocation -> values[row[0] - 1]);
+        return rs;
+    }
+
+    @Test
+    void testHandsOutStatementsInOrderAndRendersResultsInOrder() throws Exception {
+        SqlScriptReader reader = new SqlScriptReader(new StringReader(
+            "SELECT name FROM regions;\nUPDATE regions SET name = 'EU' WHERE id = 1;\nSELECT id FROM regions;\n"), false);
+
+        List<String> executed = new ArrayList<>();
+        try (ScriptPipeline pipeline = new ScriptPipeline(reader, BoundStatement::raw, recordingSink)) {
+            while (pipeline.hasNext()) {
+                executed.add(pipeline.next().sql());
+            }
+            ResultSet regions = resultSet("NAME", "Europe", "Asia");
+            pipeline.submitResult(regions, regions::next);
+            ResultSet ids = resultSet("ID");
+            pipeline.submitResult(ids, ids::next);
+        }
+
+        assertEquals(3, executed.size());
+        assertTrue(executed.get(1).startsWith("UPDATE regions"));
+        assertEquals(List.of("start NAME", "Europe", "Asia", "end", "start ID", "end"), rendered);
+    }
+
+    @Test
+    void testParserFailureSurfacesOnTheExecutingThread() throws Exception {
+        Iterator<String> failing = List.of("SELECT 1 FROM dual").iterator();
+        try (ScriptPipeline pipeline = new ScriptPipeline(failing, sql -> {
+            throw new UncheckedIOException(new IOException("disk error"));
+        }, recordingSink)) {
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, pipeline::hasNext);
+            assertEquals("disk error", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.List;
+
+import com.example.shelldemo.cli.FetchSizePolicy;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ScriptProfilerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final BoundStatement SELECT = BoundStatement.raw("SELECT * FROM hr.regions");
+    private static final BoundStatement INSERT_1 = BoundStatement.raw("INSERT INTO t VALUES (1)");
+    private static final BoundStatement INSERT_2 = BoundStatement.raw("INSERT INTO t VALUES (2)");
+
+    @Test
+    void testWritesOneCsvRecordPerStatementWithFetchedRows() throws Exception {
+        Path profileFile = tempDir.resolve("profile.csv");
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getString(1)).thenReturn("Europe");
+
+        try (ScriptProfiler profiler = ScriptProfiler.open(profileFile, 1)) {
+            ScriptProfiler.Run run = profiler.run(tempDir.resolve("report.sql"));
+            run.parsed(SELECT, run.now());
+            ScriptProfiler.Sample sample = run.start(SELECT);
+            sample.executed();
+            FetchSizePolicy.Tuner rows = sample.track(FetchSizePolicy.DRIVER_DEFAULT.tune(rs));
+            while (rows.next()) {
+                assertEquals("Europe", rs.getString(1));
+            }
+            sample.consumed();
+            sample.finish(false);
+        }
+
+        List<String> lines = Files.readAllLines(profileFile);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("script,statement,statements,status,parse_us"));
+        String[] fields = lines.get(1).split(",");
+        assertEquals("report.sql", fields[0]);
+        assertEquals("1", fields[1]);
+        assertEquals("ok", fields[3]);
+        assertEquals("0", fields[9]);
+        assertEquals("2", fields[10]);
+        assertEquals("SELECT * FROM hr.regions", fields[11]);
+    }
+
+    @Test
+    void testKeepsStatementNumbersOfAFailedBatchForTheReplay() throws Exception {
+        Path profileFile = tempDir.resolve("profile.json");
+
+        try (ScriptProfiler profiler = ScriptProfiler.open(profileFile, 0)) {
+            ScriptProfiler.Run run = profiler.run(tempDir.resolve("load.sql"));
+            run.skipped(4);
+            run.parsed(INSERT_1, run.now());
+            run.parsed(INSERT_2, run.now());
+            run.start(List.of(INSERT_1, INSERT_2)).finish(true);
+            ScriptProfiler.Sample replay = run.start(INSERT_2);
+            replay.affected(1);
+            replay.finish(false);
+        }
+
+        String profile = Files.readString(profileFile);
+        assertTrue(profile.startsWith("[\n  {\"script\": \"load.sql\", \"statement\": 5, \"statements\": 2, "
+            + "\"status\": \"failed\""));
+        assertTrue(profile.contains("\"statement\": 6, \"statements\": 1, \"status\": \"ok\""));
+        assertTrue(profile.contains("\"rows_affected\": 1"));
+        assertTrue(profile.endsWith("}\n]\n"));
+    }
+
+    @Test
+    void testDisabledProfilerLeavesResultSetsAlone() throws Exception {
+        ScriptProfiler profiler = ScriptProfiler.open(null, 0);
+        FetchSizePolicy.Tuner rows = FetchSizePolicy.DRIVER_DEFAULT.tune(mock(ResultSet.class));
+
+        assertSame(ScriptProfiler.DISABLED, profiler);
+        ScriptProfiler.Run run = profiler.run(tempDir.resolve("report.sql"));
+        assertEquals(0, run.now());
+        assertSame(rows, run.start(SELECT).track(rows));
+    }
+}
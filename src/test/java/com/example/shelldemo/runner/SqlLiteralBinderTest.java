@@ -0,0 +1,56 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlLiteralBinderTest {
+
+    @Test
+    void testBindsStringAndNumberLiterals() {
+        BoundStatement statement = SqlLiteralBinder.bind(
+            "INSERT INTO employees (employee_id, last_name, hire_date, salary, commission_pct) "
+                + "VALUES ( 100, 'O''Connell', TO_DATE('17-06-2003', 'dd-MM-yyyy'), 2600.50, NULL)");
+
+        assertTrue(statement.isParameterized());
+        assertEquals("INSERT INTO employees (employee_id, last_name, hire_date, salary, commission_pct) "
+            + "VALUES ( ?, ?, TO_DATE(?, ?), ?, NULL)", statement.sql());
+        assertEquals(List.of(100L, "O'Connell", "17-06-2003", "dd-MM-yyyy", new BigDecimal("2600.50")),
+            statement.parameters());
+    }
+
+    @Test
+    void testSameShapeForDifferentLiterals() {
+        BoundStatement europe = SqlLiteralBinder.bind("INSERT INTO regions (region_id, region_name) VALUES (1, 'Europe')");
+        BoundStatement asia = SqlLiteralBinder.bind("INSERT INTO regions (region_id, region_name) VALUES (3, 'Asia')");
+
+        assertEquals(europe.sql(), asia.sql());
+        assertEquals(List.of(3L, "Asia"), asia.parameters());
+    }
+
+    @Test
+    void testKeepsTypedLiteralsAndIdentifiers() {
+        BoundStatement statement = SqlLiteralBinder.bind(
+            "INSERT INTO t2 (c1, \"Col 2\", d) VALUES (col1 + 1, \"x1\", DATE '2024-01-01')");
+
+        assertEquals("INSERT INTO t2 (c1, \"Col 2\", d) VALUES (col1 + ?, \"x1\", DATE '2024-01-01')", statement.sql());
+        assertEquals(List.of(1L), statement.parameters());
+    }
+
+    @Test
+    void testLeavesUnsupportedStatementsRaw() {
+        for (String sql : List.of(
+                "UPDATE regions SET region_name = 'Europe' WHERE region_id = 1",
+                "INSERT INTO regions SELECT 5, 'Antarctica' FROM dual",
+                "INSERT INTO notes VALUES (1, q'[it's]')",
+                "INSERT INTO codes VALUES (CAST(1 AS VARCHAR(10)))",
+                "INSERT INTO regions (region_id) VALUES (NULL)")) {
+            BoundStatement statement = SqlLiteralBinder.bind(sql);
+            assertFalse(statement.isParameterized(), sql);
+            assertEquals(sql, statement.sql());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlScriptReaderTest {
+
+    private List<String> readAll(String script, boolean plsqlBlocks) throws IOException {
+        List<String> statements = new ArrayList<>();
+        try (SqlScriptReader reader = new SqlScriptReader(new StringReader(script), plsqlBlocks)) {
+            reader.forEachRemaining(statements::add);
+        }
+        return statements;
+    }
+
+    @Test
+    void testSplitsStatementsOnTerminator() throws IOException {
+        List<String> statements = readAll(
+            "INSERT INTO regions VALUES (1, 'Europe');\n" +
+            "\n" +
+            "CREATE TABLE jobs (\n" +
+            "  job_id VARCHAR2(10) -- key\n" +
+            ");\n" +
+            "SELECT 1 FROM dual", false);
+
+        assertEquals(3, statements.size());
+        assertEquals("INSERT INTO regions VALUES (1, 'Europe')", statements.get(0));
+        assertEquals("CREATE TABLE jobs (\njob_id VARCHAR2(10)\n)", statements.get(1));
+        assertEquals("SELECT 1 FROM dual", statements.get(2));
+    }
+
+    @Test
+    void testSkipsComments() throws IOException {
+        List<String> statements = readAll(
+            "-- header\n" +
+            "/* block\n" +
+            "   DROP TABLE regions;\n" +
+            "*/\n" +
+            "// legacy\n" +
+            "DELETE FROM regions;\n", false);
+
+        assertEquals(List.of("DELETE FROM regions"), statements);
+    }
+
+    @Test
+    void testKeepsPlsqlBlocksTogether() throws IOException {
+        String script =
+            "CREATE OR REPLACE PROCEDURE secure_dml\n" +
+            "IS\n" +
+            "BEGIN\n" +
+            "  NULL;\n" +
+            "END secure_dml;\n" +
+            "/\n" +
+            "ALTER TRIGGER secure_employees DISABLE;\n";
+
+        List<String> statements = readAll(script, true);
+
+        assertEquals(2, statements.size());
+        assertTrue(statements.get(0).startsWith("CREATE OR REPLACE PROCEDURE secure_dml"));
+        assertTrue(statements.get(0).endsWith("END secure_dml;"));
+        assertEquals("ALTER TRIGGER secure_employees DISABLE", statements.get(1));
+    }
+
+    @Test
+    void testStopsAtEndOfScript() throws IOException {
+        try (SqlScriptReader reader = new SqlScriptReader(new StringReader("SELECT 1;\nSELECT 2;\n"), false)) {
+            assertEquals("SELECT 1", reader.next());
+            assertEquals("SELECT 2", reader.next());
+            assertFalse(reader.hasNext());
+            assertThrows(NoSuchElementException.class, reader::next);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.shelldemo.runner;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StoredProcedureCallerTest {
+
+    private Connection conn;
+    private DatabaseMetaData metaData;
+    private CallableStatement stmt;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        conn = mock(Connection.class);
+        metaData = mock(DatabaseMetaData.class);
+        stmt = mock(CallableStatement.class);
+        when(conn.getMetaData()).thenReturn(metaData);
+        when(metaData.storesUpperCaseIdentifiers()).thenReturn(true);
+        when(conn.prepareCall(anyString())).thenReturn(stmt);
+        when(stmt.getUpdateCount()).thenReturn(-1);
+    }
+
+    /**
+     * Answers getProcedureColumns for HR.ADD_REGION(P_ID IN NUMBER, P_NAME IN VARCHAR2, P_COUNT OUT NUMBER).
+     */
+    private void describeAddRegion() throws Exception {
+        Object[][] rows = {
+            {DatabaseMetaData.procedureColumnIn, "P_ID", Types.NUMERIC, "NUMBER", 1},
+            {DatabaseMetaData.procedureColumnIn, "P_NAME", Types.VARCHAR, "VARCHAR2", 2},
+            {DatabaseMetaData.procedureColumnOut, "P_COUNT", Types.NUMERIC, "NUMBER", 3},
+        };
+        when(metaData.getProcedureColumns(null, "HR", "ADD_REGION", "%")).thenAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            AtomicInteger row = new AtomicInteger(-1);
+            when(rs.next()).thenAnswer(next -> row.incrementAndGet() < rows.length);
+            when(rs.getShort("COLUMN_TYPE")).thenAnswer(get -> ((Integer) rows[row.get()][0]).shortValue());
+            when(rs.getString("COLUMN_NAME")).thenAnswer(get -> rows[row.get()][1]);
+            when(rs.getInt("DATA_TYPE")).thenAnswer(get -> rows[row.get()][2]);
+            when(rs.getString("TYPE_NAME")).thenAnswer(get -> rows[row.get()][3]);
+            when(rs.getInt("ORDINAL_POSITION")).thenAnswer(get -> rows[row.get()][4]);
+            when(rs.getString("PROCEDURE_SCHEM")).thenReturn("HR");
+            when(rs.getString("PROCEDURE_NAME")).thenReturn("ADD_REGION");
+            return rs;
+        });
+    }
+
+    @Test
+    void testReadsMetadataAndPreparesOnceAcrossCalls() throws Exception {
+        describeAddRegion();
+        when(stmt.getObject(3)).thenReturn(new BigDecimal("1"));
+
+        try (StoredProcedureCaller caller = new StoredProcedureCaller(conn, 8)) {
+            StoredProcedureCaller.CallResult first = caller.call("hr.add_region", false, null, List.of(
+                new RunnerDatabase.ProcedureParam("p_id", "NUMERIC", "5"),
+                new RunnerDatabase.ProcedureParam("p_name", "VARCHAR", "Oceania"),
+                new RunnerDatabase.ProcedureParam("p_count", "NUMERIC", null)));
+            caller.call("hr.add_region", false, null, List.of(
+                new RunnerDatabase.ProcedureParam("p_id", "NUMERIC", "6"),
+                new RunnerDatabase.ProcedureParam("p_name", "VARCHAR", "Antarctica"),
+                new RunnerDatabase.ProcedureParam("p_count", "NUMERIC", null)));
+
+            assertEquals(new BigDecimal("1"), first.outputs().get("p_count"));
+        }
+
+        verify(metaData, times(1)).getProcedureColumns(null, "HR", "ADD_REGION", "%");
+        verify(conn, times(1)).prepareCall("{call hr.add_region(?, ?, ?)}");
+        verify(stmt).setBigDecimal(1, new BigDecimal("5"));
+        verify(stmt).setString(2, "Antarctica");
+        verify(stmt, times(2)).registerOutParameter(3, Types.NUMERIC);
+        verify(stmt).close();
+    }
+
+    @Test
+    void testBindsByNameInAnyOrder() throws Exception {
+        describeAddRegion();
+
+        try (StoredProcedureCaller caller = new StoredProcedureCaller(conn, 8)) {
+            caller.call("hr.add_region", false, null, List.of(
+                new RunnerDatabase.ProcedureParam("P_COUNT", "NUMERIC", null),
+                new RunnerDatabase.ProcedureParam("P_NAME", "VARCHAR", "Oceania"),
+                new RunnerDatabase.ProcedureParam("P_ID", "NUMERIC", "5")));
+        }
+
+        verify(stmt).setBigDecimal(1, new BigDecimal("5"));
+        verify(stmt).setString(2, "Oceania");
+        verify(stmt).registerOutParameter(3, Types.NUMERIC);
+    }
+
+    @Test
+    void testFallsBackToDeclaredTypesWithoutMetadata() throws Exception {
+        ResultSet empty = mock(ResultSet.class);
+        when(metaData.getProcedureColumns(any(), any(), any(), any())).thenReturn(empty);
+        when(stmt.getObject(1)).thenReturn("Europe");
+
+        try (StoredProcedureCaller caller = new StoredProcedureCaller(conn, 8)) {
+            StoredProcedureCaller.CallResult result = caller.call("region_name", true, "VARCHAR2", List.of(
+                new RunnerDatabase.ProcedureParam("p_id", "NUMBER", "1")));
+
+            assertEquals("Europe", result.returnValue());
+        }
+
+        verify(conn).prepareCall("{? = call region_name(?)}");
+        verify(stmt).registerOutParameter(1, Types.VARCHAR);
+        verify(stmt).setBigDecimal(2, new BigDecimal("1"));
+    }
+
+    @Test
+    void testSingleCallSkipsMetadataAndClosesItsStatement() throws Exception {
+        when(stmt.getObject(3)).thenReturn(new BigDecimal("4"));
+
+        StoredProcedureCaller.CallResult result = StoredProcedureCaller.callOnce(conn, "hr.add_region", false, null,
+            List.of(new RunnerDatabase.ProcedureParam("p_id", "NUMBER", "5"),
+                new RunnerDatabase.ProcedureParam("p_name", "VARCHAR2", "Oceania"),
+                new RunnerDatabase.ProcedureParam("p_count", "NUMBER", null)));
+
+        assertEquals(new BigDecimal("4"), result.outputs().get("p_count"));
+        verify(conn, never()).getMetaData();
+        verify(conn).prepareCall("{call hr.add_region(?, ?, ?)}");
+        verify(stmt).setBigDecimal(1, new BigDecimal("5"));
+        verify(stmt).setString(2, "Oceania");
+        verify(stmt).registerOutParameter(3, Types.NUMERIC);
+        verify(stmt).close();
+    }
+}